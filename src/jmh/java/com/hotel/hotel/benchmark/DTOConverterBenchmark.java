@@ -0,0 +1,128 @@
+package com.hotel.hotel.benchmark;
+
+import com.hotel.hotel.components.DTOConverter;
+import com.hotel.hotel.dto.*;
+import com.hotel.hotel.entity.Comment;
+import com.hotel.hotel.entity.Reservation;
+import com.hotel.hotel.entity.Room;
+import com.hotel.hotel.entity.User;
+import com.hotel.hotel.other.Role;
+import com.hotel.hotel.other.Status;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide el coste por objeto de las conversiones de DTOConverter. El parametro modelMapper permite comparar
+ * las conversiones que copian los campos directamente con las que pasan por ModelMapper
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DTOConverterBenchmark {
+    @Param({"false", "true"})
+    public boolean modelMapper;
+
+    private DTOConverter converter;
+    private Room room;
+    private RoomDTO roomDTO;
+    private InsertRoomDTO insertRoomDTO;
+    private User user;
+    private InsertUserDTO insertUserDTO;
+    private Reservation reservation;
+    private Comment comment;
+
+    @Setup
+    public void setUp() {
+        converter = new DTOConverter(new ModelMapper());
+        ReflectionTestUtils.setField(converter, "useModelMapper", modelMapper);
+
+        room = new Room();
+        room.setId(1L);
+        room.setType("Individual");
+        room.setCapacity(1);
+        room.setPrice(40L);
+        room.setDescripcion("Habitacion con bonitas vistas");
+        room.setImage("/imagenes/room.jpg");
+        roomDTO = converter.convertRoomToDTO(room);
+
+        insertRoomDTO = new InsertRoomDTO();
+        insertRoomDTO.setType("Doble");
+        insertRoomDTO.setCapacity(2);
+        insertRoomDTO.setPrice(60L);
+        insertRoomDTO.setDescripcion("Habitacion doble");
+
+        user = new User();
+        user.setId(1L);
+        user.setName("fernando");
+        user.setEmail("fernando@gmail.com");
+        user.setPassword("HASHED_PASSWORD");
+        user.setType(Role.USER);
+
+        insertUserDTO = new InsertUserDTO();
+        insertUserDTO.setName("fernando");
+        insertUserDTO.setEmail("fernando@gmail.com");
+        insertUserDTO.setPassword("123456789");
+
+        reservation = new Reservation();
+        reservation.setId(1L);
+        reservation.setUser(user);
+        reservation.setRoom(room);
+        reservation.setEntryDate(new Date());
+        reservation.setExitDate(new Date());
+        reservation.setCreationDate(LocalDateTime.now());
+        reservation.setTotalPrice(BigDecimal.valueOf(120));
+        reservation.setStatus(Status.PENDIENTE);
+
+        comment = new Comment();
+        comment.setId(1L);
+        comment.setUser(user);
+        comment.setRoom(room);
+        comment.setQualification(4);
+        comment.setComment("Muy bonita la habitacion");
+        comment.setDate(LocalDateTime.now());
+    }
+
+    @Benchmark
+    public RoomDTO convertRoomToDTO() {
+        return converter.convertRoomToDTO(room);
+    }
+
+    @Benchmark
+    public Room convertDTOToRoom() {
+        return converter.convertToRoom(roomDTO);
+    }
+
+    @Benchmark
+    public Room convertInsertDTOToRoom() {
+        return converter.convertToRoom(insertRoomDTO);
+    }
+
+    @Benchmark
+    public UserDTO convertToUserDto() {
+        return converter.convertToUserDto(user);
+    }
+
+    @Benchmark
+    public User convertToUser() {
+        return converter.convertToUSer(insertUserDTO);
+    }
+
+    @Benchmark
+    public ReservationDTO convertReservationToDTO() {
+        return converter.convertReservationToDTO(reservation);
+    }
+
+    @Benchmark
+    public CommentDTO convertCommentToDTO() {
+        return converter.convertCommentToDTO(comment);
+    }
+}
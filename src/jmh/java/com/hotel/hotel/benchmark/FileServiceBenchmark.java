@@ -0,0 +1,119 @@
+package com.hotel.hotel.benchmark;
+
+import com.hotel.hotel.components.BoundedExecutor;
+import com.hotel.hotel.service.FileService.StoredImage;
+import com.hotel.hotel.service.impl.FileServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la subida de una imagen con FileServiceImpl a un directorio temporal. La imagen se lee de un fichero
+ * temporal, igual que hace Tomcat con las partes que superan el umbral de memoria
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileServiceBenchmark {
+    @Param({"65536", "1048576"})
+    public int size;
+
+    private BoundedExecutor executor;
+    private FileServiceImpl fileService;
+    private MultipartFile file;
+    private Path directory;
+    private StoredImage uploaded;
+
+    @Setup
+    public void setUp() throws IOException {
+        executor = new BoundedExecutor("image-upload", 2, 16, 30000);
+        fileService = new FileServiceImpl(5 * 1024 * 1024, executor);
+        directory = Files.createTempDirectory("hotel-bench");
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        //cabecera de un fichero jpeg
+        bytes[0] = (byte) 0xFF;
+        bytes[1] = (byte) 0xD8;
+        bytes[2] = (byte) 0xFF;
+        Path part = Files.write(directory.resolve("upload.tmp"), bytes);
+        file = new DiskMultipartFile(part);
+    }
+
+    @Benchmark
+    public StoredImage uploadImage() {
+        uploaded = fileService.uploadImage(file, directory.toString());
+        return uploaded;
+    }
+
+    @TearDown(Level.Invocation)
+    public void removeUploaded() {
+        fileService.remove(uploaded.path());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        executor.shutdown();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    /**
+     * Parte de una peticion multipart guardada en disco
+     */
+    private record DiskMultipartFile(Path path) implements MultipartFile {
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return "room.jpg";
+        }
+
+        @Override
+        public String getContentType() {
+            return "image/jpeg";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getSize() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            try {
+                return Files.size(path);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(path);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.copy(path, dest.toPath());
+        }
+    }
+}
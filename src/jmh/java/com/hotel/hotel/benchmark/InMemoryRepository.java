@@ -0,0 +1,127 @@
+package com.hotel.hotel.benchmark;
+
+import java.beans.Introspector;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Implementacion en memoria de un repositorio de Spring Data para poder medir los servicios sin base de datos.
+ * Soporta save, findById, findAll, count, delete y las consultas derivadas findByPropiedad sobre una
+ * propiedad de la entidad. El resto de consultas se pueden resolver registrando una implementacion con on()
+ */
+public final class InMemoryRepository<T> implements InvocationHandler {
+    private final Class<T> entityType;
+    private final Map<Long, T> rows = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Function<Object[], Object>> queries = new ConcurrentHashMap<>();
+
+    private InMemoryRepository(Class<T> entityType) {
+        this.entityType = entityType;
+    }
+
+    public static <T> InMemoryRepository<T> of(Class<T> entityType) {
+        return new InMemoryRepository<>(entityType);
+    }
+
+    /**
+     * Este metodo permite registrar la implementacion de una consulta del repositorio
+     *
+     * @param method es el nombre del metodo del repositorio
+     * @param query  es la implementacion que recibe los argumentos de la llamada
+     * @return el propio repositorio
+     */
+    public InMemoryRepository<T> on(String method, Function<Object[], Object> query) {
+        queries.put(method, query);
+        return this;
+    }
+
+    /**
+     * Este metodo permite obtener el repositorio como la interfaz de Spring Data indicada
+     *
+     * @param repositoryType es la interfaz del repositorio
+     * @return un proxy de la interfaz respaldado por este repositorio
+     */
+    public <R> R as(Class<R> repositoryType) {
+        return repositoryType.cast(Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType}, this));
+    }
+
+    public Collection<T> rows() {
+        return rows.values();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        Function<Object[], Object> query = queries.get(name);
+        if (query != null) {
+            return query.apply(args);
+        }
+        switch (name) {
+            case "save":
+                return save(entityType.cast(args[0]));
+            case "findById":
+                return Optional.ofNullable(rows.get((Long) args[0]));
+            case "findAll":
+                if (args == null) {
+                    return new ArrayList<>(rows.values());
+                }
+                break;
+            case "count":
+                return (long) rows.size();
+            case "delete":
+                rows.remove(id(entityType.cast(args[0])));
+                return null;
+            case "deleteById":
+                rows.remove((Long) args[0]);
+                return null;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "InMemoryRepository<" + entityType.getSimpleName() + ">";
+            default:
+                if (name.startsWith("findBy") && args != null && args.length == 1) {
+                    return findBy(method, Introspector.decapitalize(name.substring("findBy".length())), args[0]);
+                }
+        }
+        throw new UnsupportedOperationException(name);
+    }
+
+    private T save(T entity) throws ReflectiveOperationException {
+        Long id = id(entity);
+        if (id == null) {
+            id = sequence.incrementAndGet();
+            entityType.getMethod("setId", Long.class).invoke(entity, id);
+        }
+        rows.put(id, entity);
+        return entity;
+    }
+
+    private Object findBy(Method method, String property, Object value) throws ReflectiveOperationException {
+        Method getter = entityType.getMethod("get" + Character.toUpperCase(property.charAt(0)) + property.substring(1));
+        List<T> result = new ArrayList<>();
+        for (T row : rows.values()) {
+            if (Objects.equals(getter.invoke(row), value)) {
+                result.add(row);
+            }
+        }
+        if (Optional.class.equals(method.getReturnType())) {
+            return result.stream().findFirst();
+        }
+        return result;
+    }
+
+    private Long id(T entity) {
+        try {
+            return (Long) entityType.getMethod("getId").invoke(entity);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.hotel.hotel.benchmark;
+
+import com.hotel.hotel.components.HotelMetrics;
+import com.hotel.hotel.components.JWTUtil;
+import com.hotel.hotel.components.TokenVersions;
+import com.hotel.hotel.entity.User;
+import com.hotel.hotel.other.Role;
+import com.hotel.hotel.repository.UserRepository;
+import io.jsonwebtoken.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la creacion de tokens y la obtencion del id del usuario a partir de un token. Con cacheSize=0 cada
+ * llamada a getKey verifica la firma con el parser compartido. Los metodos legacy reproducen la version
+ * anterior, que construia la clave y el parser en cada llamada, para poder comparar latencia y memoria
+ * reservada por token (gc.alloc.rate.norm)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JWTUtilBenchmark {
+    private static final String SECRET = "7XmQSHRwugl0DF82c6NzBvp+fQwiF2e3H8/3HrZPTE0=";
+
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    private JWTUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JWTUtil();
+        ReflectionTestUtils.setField(jwtUtil, "key", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "issuer", "Main");
+        ReflectionTestUtils.setField(jwtUtil, "ttlMillis", 604800000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheSize", cacheSize);
+        ReflectionTestUtils.setField(jwtUtil, "kid", "main");
+        ReflectionTestUtils.setField(jwtUtil, "keysFile", "");
+        ReflectionTestUtils.setField(jwtUtil, "keysRefreshMillis", 60000L);
+        UserRepository users = InMemoryRepository.of(User.class)
+                .on("findTokenVersionById", args -> Optional.of(0))
+                .as(UserRepository.class);
+        ReflectionTestUtils.setField(jwtUtil, "tokenVersions", new TokenVersions(users));
+        ReflectionTestUtils.setField(jwtUtil, "metrics", new HotelMetrics(new SimpleMeterRegistry()));
+        jwtUtil.init();
+        token = jwtUtil.create("1", "fernando@gmail.com", Role.ADMIN, 0);
+    }
+
+    @Benchmark
+    public String create() {
+        return jwtUtil.create("1", "fernando@gmail.com", Role.ADMIN, 0);
+    }
+
+    @Benchmark
+    public String getKey() {
+        return jwtUtil.getKey(token);
+    }
+
+    @Benchmark
+    public void validarAdmin() {
+        jwtUtil.validarAdmin(token);
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public String legacyCreate() {
+        SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.HS256;
+        long nowMillis = System.currentTimeMillis();
+        Key signingKey = new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), signatureAlgorithm.getJcaName());
+        JwtParser parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        return Jwts.builder()
+                .setId("1")
+                .setIssuedAt(new Date(nowMillis))
+                .setSubject("fernando@gmail.com")
+                .setIssuer("Main")
+                .signWith(signingKey, signatureAlgorithm)
+                .setExpiration(new Date(nowMillis + 604800000L))
+                .compact();
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public String legacyGetKey() {
+        return Jwts.parser().setSigningKey(SECRET.getBytes(StandardCharsets.UTF_8))
+                .parseClaimsJws(token).getBody().getId();
+    }
+}
@@ -0,0 +1,85 @@
+package com.hotel.hotel.benchmark;
+
+import com.hotel.hotel.components.BoundedExecutor;
+import com.hotel.hotel.components.DTOConverter;
+import com.hotel.hotel.components.HotelMetrics;
+import com.hotel.hotel.components.JsonStreamWriter;
+import com.hotel.hotel.components.MessageComponent;
+import com.hotel.hotel.components.Pagination;
+import com.hotel.hotel.components.PasswordHasher;
+import com.hotel.hotel.components.RoomRatings;
+import com.hotel.hotel.components.TokenVersions;
+import com.hotel.hotel.dto.InsertUserDTO;
+import com.hotel.hotel.dto.LoginUserDTO;
+import com.hotel.hotel.entity.User;
+import com.hotel.hotel.repository.UserRepository;
+import com.hotel.hotel.service.impl.UserServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Mide el coste del hash Argon2 de UserServiceImpl al cambiar la contrasena y al verificarla en el login
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordBenchmark {
+    private UserServiceImpl service;
+    private BoundedExecutor executor;
+    private PasswordHasher passwordHasher;
+    private LoginUserDTO login;
+    private Long userId;
+
+    @Setup
+    public void setUp() {
+        StaticMessageSource messageSource = new StaticMessageSource();
+        messageSource.addMessage("mensaje.usuario.password", Locale.getDefault(), "ok");
+        MessageComponent message = new MessageComponent();
+        ReflectionTestUtils.setField(message, "messageSource", messageSource);
+
+        HotelMetrics metrics = new HotelMetrics(new SimpleMeterRegistry());
+        executor = new BoundedExecutor("argon2", 0, 64, 10000);
+        passwordHasher = new PasswordHasher(1, 1024, 1, executor, metrics);
+        UserRepository repository = InMemoryRepository.of(User.class).as(UserRepository.class);
+        service = new UserServiceImpl(repository, new DTOConverter(new ModelMapper()), message,
+                new TokenVersions(repository), passwordHasher, new Pagination(50, 500),
+                mock(JsonStreamWriter.class), mock(RoomRatings.class), metrics, mock(ObjectProvider.class));
+
+        InsertUserDTO dto = new InsertUserDTO();
+        dto.setName("fernando");
+        dto.setEmail("fernando@gmail.com");
+        dto.setPassword("123456789");
+        userId = service.insert(dto).getId();
+
+        login = new LoginUserDTO();
+        login.setEmail("fernando@gmail.com");
+        login.setPassword("123456789");
+    }
+
+    @Benchmark
+    public String hash() {
+        return service.updatePassword("123456789", userId);
+    }
+
+    @Benchmark
+    public User verify() {
+        return service.login(login);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,171 @@
+package com.hotel.hotel.benchmark;
+
+import com.hotel.hotel.components.AvailabilityIndex;
+import com.hotel.hotel.components.DTOConverter;
+import com.hotel.hotel.components.DailyStatsRollup;
+import com.hotel.hotel.components.HotelMetrics;
+import com.hotel.hotel.components.ImageVariants;
+import com.hotel.hotel.components.JsonStreamWriter;
+import com.hotel.hotel.components.MessageComponent;
+import com.hotel.hotel.components.OccupancyCalendar;
+import com.hotel.hotel.components.Pagination;
+import com.hotel.hotel.components.ReservationAnalytics;
+import com.hotel.hotel.components.ReservationChangeLog;
+import com.hotel.hotel.components.RoomCache;
+import com.hotel.hotel.components.RoomCatalogue;
+import com.hotel.hotel.components.RoomLocks;
+import com.hotel.hotel.components.RoomRatings;
+import com.hotel.hotel.dto.RoomDTO;
+import com.hotel.hotel.entity.Reservation;
+import com.hotel.hotel.entity.Room;
+import com.hotel.hotel.entity.RoomRating;
+import com.hotel.hotel.repository.ReservationRepository;
+import com.hotel.hotel.repository.RoomRatingRepository;
+import com.hotel.hotel.repository.RoomRepository;
+import com.hotel.hotel.service.FileService;
+import com.hotel.hotel.service.UserService;
+import com.hotel.hotel.service.impl.ReservationServiceImpl;
+import com.hotel.hotel.service.impl.RoomServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Mide el calculo de dias, las comprobaciones de disponibilidad y los recuentos de ocupacion de
+ * ReservationServiceImpl sobre un hotel con {@link #rooms} habitaciones y una reserva cada pocos dias durante el proximo ano
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"100", "2000"})
+    public int rooms;
+
+    private ReservationServiceImpl service;
+    private AvailabilityIndex index;
+    private OccupancyCalendar calendar;
+    private Path calendarFile;
+    private List<Long> allRoomIds;
+    private final Date[] entries = new Date[QUERIES];
+    private final Date[] exits = new Date[QUERIES];
+    private final long[] roomIds = new long[QUERIES];
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        InMemoryRepository<Room> roomRows = InMemoryRepository.of(Room.class);
+        RoomRepository roomRepository = roomRows.as(RoomRepository.class);
+        ReservationRepository reservationRepository = InMemoryRepository.of(Reservation.class)
+                .on("findStaysByStatusNot", args -> List.of())
+                .on("findStaysByRoomIdAndStatusNot", args -> List.of())
+                .as(ReservationRepository.class);
+        DTOConverter converter = new DTOConverter(new ModelMapper());
+        RoomServiceImpl roomService = new RoomServiceImpl(converter, mock(FileService.class), roomRepository,
+                new Pagination(50, 500), mock(JsonStreamWriter.class), new RoomCache(roomRepository, 10000, 600000),
+                new RoomCatalogue(roomRepository),
+                new RoomRatings(InMemoryRepository.of(RoomRating.class).as(RoomRatingRepository.class)),
+                new ImageVariants("/api/rooms/images/", 0.8f, 64));
+        index = new AvailabilityIndex(reservationRepository);
+        index.load();
+        calendarFile = Files.createTempFile("occupancy-calendar", ".bin");
+        Files.delete(calendarFile);
+        calendar = new OccupancyCalendar(reservationRepository, calendarFile.toString(), 4, 1024);
+        calendar.load();
+        service = new ReservationServiceImpl(reservationRepository, mock(UserService.class), roomService, converter,
+                mock(MessageComponent.class), index, new RoomLocks(256),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new Pagination(50, 500),
+                mock(JsonStreamWriter.class), calendar, new HotelMetrics(new SimpleMeterRegistry()),
+                new ReservationAnalytics(reservationRepository, 10000, 1830), mock(DailyStatsRollup.class), mock(ReservationChangeLog.class));
+        ReflectionTestUtils.setField(service, "useIndex", true);
+
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+        long stay = 0;
+        for (int i = 0; i < rooms; i++) {
+            Room room = new Room();
+            room.setType(i % 2 == 0 ? "Individual" : "Doble");
+            room.setCapacity(1 + i % 4);
+            room.setPrice(40L + i % 100);
+            Long roomId = roomRepository.save(room).getId();
+            for (LocalDate day = today.plusDays(random.nextInt(5)); day.isBefore(today.plusDays(365)); day = day.plusDays(4 + random.nextInt(6))) {
+                Date exit = toDate(day.plusDays(1 + random.nextInt(3)));
+                index.add(++stay, roomId, toDate(day), exit);
+                calendar.reserve(stay, roomId, toDate(day), exit);
+            }
+        }
+        allRoomIds = roomRows.rows().stream().map(Room::getId).toList();
+        for (int i = 0; i < QUERIES; i++) {
+            LocalDate entry = today.plusDays(random.nextInt(365));
+            entries[i] = toDate(entry);
+            exits[i] = toDate(entry.plusDays(1 + random.nextInt(7)));
+            roomIds[i] = 1 + random.nextInt(rooms);
+        }
+    }
+
+    @Benchmark
+    public int calculateDays() {
+        int i = next++ & (QUERIES - 1);
+        return service.calculateDays(entries[i], exits[i]);
+    }
+
+    @Benchmark
+    public boolean isAvailable() {
+        int i = next++ & (QUERIES - 1);
+        return service.isAvailable(roomIds[i], entries[i], exits[i]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<RoomDTO> findAvailableRooms() {
+        int i = next++ & (QUERIES - 1);
+        return service.findAvailableRooms(entries[i], exits[i], null, 2, null, null);
+    }
+
+    @Benchmark
+    public long countFreeRooms() {
+        int i = next++ & (QUERIES - 1);
+        return calendar.countFree(allRoomIds, entries[i], exits[i]);
+    }
+
+    @Benchmark
+    public long countFreeRoomsWithIndex() {
+        int i = next++ & (QUERIES - 1);
+        return allRoomIds.stream().filter(roomId -> index.isAvailable(roomId, entries[i], exits[i])).count();
+    }
+
+    @Benchmark
+    public long occupiedNights() {
+        int i = next++ & (QUERIES - 1);
+        return calendar.countOccupiedNights(allRoomIds, entries[i], toDate(LocalDate.now().plusDays(365)));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        calendar.close();
+        Files.deleteIfExists(calendarFile);
+    }
+
+    private static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,65 @@
+package com.hotel.hotel.benchmark;
+
+import com.hotel.hotel.components.RoomCatalogue;
+import com.hotel.hotel.entity.Room;
+import com.hotel.hotel.repository.RoomRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Mide un filtro combinado de tipo, capacidad y precio sobre {@link #rooms} habitaciones. El metodo scan
+ * recorre todas las habitaciones comprobando cada filtro, como se hacia antes con el listado completo, y
+ * catalogue interseca los indices del catalogo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomCatalogueBenchmark {
+    private static final String[] TYPES = {"Individual", "Doble", "Triple", "Suite"};
+
+    @Param({"1000", "20000"})
+    public int rooms;
+
+    private RoomCatalogue catalogue;
+    private List<Room> all;
+    private final List<String> types = List.of("Doble", "Suite");
+
+    @Setup
+    public void setUp() {
+        InMemoryRepository<Room> rows = InMemoryRepository.of(Room.class);
+        RoomRepository repository = rows.as(RoomRepository.class);
+        Random random = new Random(42);
+        for (int i = 0; i < rooms; i++) {
+            Room room = new Room();
+            room.setType(TYPES[random.nextInt(TYPES.length)]);
+            room.setCapacity(1 + random.nextInt(6));
+            room.setPrice(30L + random.nextInt(400));
+            room.setDescripcion("Habitacion " + i);
+            repository.save(room);
+        }
+        all = new ArrayList<>(rows.rows());
+        catalogue = new RoomCatalogue(repository);
+        catalogue.load();
+    }
+
+    @Benchmark
+    public List<Room> catalogue() {
+        return catalogue.search(types, 3, null, 100L, 150L);
+    }
+
+    @Benchmark
+    public List<Room> scan() {
+        return all.stream()
+                .filter(room -> types.contains(room.getType()) && room.getCapacity() >= 3
+                        && room.getPrice() >= 100L && room.getPrice() <= 150L)
+                .collect(Collectors.toList());
+    }
+}
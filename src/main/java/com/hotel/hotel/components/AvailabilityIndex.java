@@ -0,0 +1,172 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.other.Status;
+import com.hotel.hotel.repository.ReservationRepository;
+import com.hotel.hotel.repository.projection.ReservationStay;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indice en memoria con las estancias no canceladas de cada habitacion. Permite comprobar
+ * si una habitacion esta libre entre dos fechas sin consultar la base de datos
+ */
+@Component
+@RequiredArgsConstructor
+public class AvailabilityIndex {
+    /**
+     * Instancia del repositorio de reservas
+     */
+    private final ReservationRepository repository;
+    /**
+     * Estancias de cada habitacion indexadas por el id de la habitacion
+     */
+    private final Map<Long, RoomStays> rooms = new ConcurrentHashMap<>();
+    /**
+     * Indica si se han cargado las estancias de todas las habitaciones
+     */
+    private volatile boolean loaded;
+
+    private final Logger log = LoggerFactory.getLogger(AvailabilityIndex.class);
+
+    /**
+     * Este metodo permite cargar el indice con todas las reservas no canceladas al arrancar la aplicacion.
+     * Si la base de datos no esta disponible las habitaciones se cargaran bajo demanda
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            Map<Long, RoomStays> snapshot = new HashMap<>();
+            for (ReservationStay stay : repository.findStaysByStatusNot(Status.CANCELADA)) {
+                snapshot.computeIfAbsent(stay.getRoomId(), id -> new RoomStays()).add(stay.getId(),
+                        DateUtils.toEpochDay(stay.getEntryDate()), DateUtils.toEpochDay(stay.getExitDate()));
+            }
+            //las habitaciones cargadas bajo demanda mientras tanto ya estan actualizadas
+            snapshot.forEach(rooms::putIfAbsent);
+            loaded = true;
+            log.info("Indice de disponibilidad cargado con {} habitaciones", snapshot.size());
+        } catch (RuntimeException ex) {
+            log.warn("No se ha podido cargar el indice de disponibilidad, se cargara bajo demanda", ex);
+        }
+    }
+
+    /**
+     * Este metodo permite comprobar si una habitacion esta libre entre dos fechas. Al igual que la consulta
+     * ReservationRepository.isAvailable, si el dia de salida de una reserva coincide con el de entrada
+     * de otra tambien se considera solapamiento
+     *
+     * @param roomId es el id de la habitacion
+     * @param entry  es la fecha de entrada
+     * @param exit   es la fecha de salida
+     * @return true si no hay ninguna estancia que se solape con las fechas indicadas, false si no
+     */
+    public boolean isAvailable(Long roomId, Date entry, Date exit) {
+        return !stays(roomId).overlaps(DateUtils.toEpochDay(entry), DateUtils.toEpochDay(exit));
+    }
+
+    /**
+     * Este metodo permite registrar una estancia en el indice. Si la estancia ya estaba registrada
+     * se sustituye por la nueva
+     *
+     * @param reservationId es el id de la reserva
+     * @param roomId        es el id de la habitacion
+     * @param entry         es la fecha de entrada
+     * @param exit          es la fecha de salida
+     */
+    public void add(Long reservationId, Long roomId, Date entry, Date exit) {
+        stays(roomId).add(reservationId, DateUtils.toEpochDay(entry), DateUtils.toEpochDay(exit));
+    }
+
+    /**
+     * Este metodo permite eliminar una estancia del indice
+     *
+     * @param reservationId es el id de la reserva
+     * @param roomId        es el id de la habitacion
+     */
+    public void remove(Long reservationId, Long roomId) {
+        stays(roomId).remove(reservationId);
+    }
+
+    /**
+     * Este metodo permite obtener las estancias de una habitacion, cargandolas de la base de datos si
+     * el indice todavia no se ha podido cargar completo
+     *
+     * @param roomId es el id de la habitacion
+     * @return las estancias de la habitacion
+     */
+    private RoomStays stays(Long roomId) {
+        RoomStays stays = rooms.get(roomId);
+        if (stays != null) {
+            return stays;
+        }
+        return rooms.computeIfAbsent(roomId, id -> loaded ? new RoomStays() : loadRoom(id));
+    }
+
+    /**
+     * Este metodo permite cargar de la base de datos las estancias no canceladas de una habitacion
+     *
+     * @param roomId es el id de la habitacion
+     * @return las estancias de la habitacion
+     */
+    private RoomStays loadRoom(Long roomId) {
+        RoomStays stays = new RoomStays();
+        for (ReservationStay stay : repository.findStaysByRoomIdAndStatusNot(roomId, Status.CANCELADA)) {
+            stays.add(stay.getId(), DateUtils.toEpochDay(stay.getEntryDate()), DateUtils.toEpochDay(stay.getExitDate()));
+        }
+        return stays;
+    }
+
+    /**
+     * Estancias de una habitacion ordenadas por dia de entrada. Como las estancias tienen una duracion
+     * acotada, para buscar solapamientos solo hace falta recorrer las que empiezan entre
+     * (entrada - duracion maxima) y la salida, lo que supone O(log n) mas las pocas estancias del rango
+     */
+    private static final class RoomStays {
+        private final TreeMap<Long, List<Stay>> byEntry = new TreeMap<>();
+        private final Map<Long, Stay> byId = new HashMap<>();
+        /**
+         * Duracion de la estancia mas larga registrada. No se reduce al borrar para no tener que recalcularla
+         */
+        private long maxLength;
+
+        synchronized boolean overlaps(long entry, long exit) {
+            for (List<Stay> stays : byEntry.subMap(Math.min(entry - maxLength, exit), true, exit, true).values()) {
+                for (Stay stay : stays) {
+                    if (stay.exit() >= entry) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        synchronized void add(Long id, long entry, long exit) {
+            remove(id);
+            Stay stay = new Stay(id, entry, exit);
+            byId.put(id, stay);
+            byEntry.computeIfAbsent(entry, day -> new ArrayList<>(1)).add(stay);
+            maxLength = Math.max(maxLength, exit - entry);
+        }
+
+        synchronized void remove(Long id) {
+            Stay stay = byId.remove(id);
+            if (stay == null) {
+                return;
+            }
+            List<Stay> stays = byEntry.get(stay.entry());
+            stays.remove(stay);
+            if (stays.isEmpty()) {
+                byEntry.remove(stay.entry());
+            }
+        }
+    }
+
+    private record Stay(Long id, long entry, long exit) {
+    }
+}
@@ -0,0 +1,218 @@
+package com.hotel.hotel.components;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Cache en memoria con un numero maximo de entradas y caducidad por entrada. Las lecturas no bloquean: las
+ * entradas estan en un ConcurrentHashMap y cada lectura solo apunta el instante de su ultimo uso. Cuando se
+ * supera el tamano maximo se descarta, de cada muestra de entradas, la usada hace mas tiempo, por lo que el
+ * orden de desalojo es aproximado. Lleva la cuenta de aciertos, fallos y desalojos
+ */
+public class BoundedCache<K, V> {
+    /**
+     * Numero de entradas que se comparan para elegir la que se descarta
+     */
+    private static final int SAMPLE = 8;
+    /**
+     * Precision con la que se apunta el ultimo uso, para que las lecturas seguidas de una misma entrada desde
+     * varios hilos no escriban todas en ella
+     */
+    private static final long TOUCH_NANOS = 1_000_000;
+
+    private final ConcurrentHashMap<K, Entry<V>> entries;
+    /**
+     * Numero maximo de entradas
+     */
+    private final int maxSize;
+    /**
+     * Tiempo de vida por defecto de las entradas en milisegundos
+     */
+    private final long ttlMillis;
+    /**
+     * Solo un hilo desaloja entradas a la vez, el resto sigue sin esperar
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    /**
+     * Recorrido de las entradas que continua donde lo dejo el ultimo desalojo, para que las muestras no salgan
+     * siempre de las mismas posiciones de la tabla
+     */
+    private Iterator<Map.Entry<K, Entry<V>>> sweep;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize   es el numero maximo de entradas
+     * @param ttlMillis es el tiempo de vida por defecto de las entradas en milisegundos
+     */
+    public BoundedCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new ConcurrentHashMap<>(Math.min(maxSize, 1 << 16));
+    }
+
+    /**
+     * Este metodo permite obtener el valor de una entrada que no haya caducado
+     *
+     * @param key es la clave de la entrada
+     * @return el valor de la entrada o null si no existe o ha caducado
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        long now = System.nanoTime();
+        if (now - entry.lastUsed > TOUCH_NANOS) {
+            entry.lastUsed = now;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Este metodo permite guardar una entrada con el tiempo de vida por defecto
+     *
+     * @param key   es la clave de la entrada
+     * @param value es el valor de la entrada
+     */
+    public void put(K key, V value) {
+        put(key, value, System.currentTimeMillis() + ttlMillis);
+    }
+
+    /**
+     * Este metodo permite guardar una entrada que caduca en el instante indicado
+     *
+     * @param key       es la clave de la entrada
+     * @param value     es el valor de la entrada
+     * @param expiresAt es el instante en milisegundos en el que caduca la entrada
+     */
+    public void put(K key, V value, long expiresAt) {
+        entries.put(key, new Entry<>(value, Math.min(expiresAt, System.currentTimeMillis() + ttlMillis), System.nanoTime()));
+        if (entries.size() > maxSize) {
+            evictOverflow();
+        }
+    }
+
+    /**
+     * Este metodo permite obtener el valor de una entrada o calcularlo y guardarlo si no existe. El calculo
+     * se hace fuera de la cache, por lo que dos llamadas simultaneas pueden calcularlo a la vez
+     *
+     * @param key    es la clave de la entrada
+     * @param loader es la funcion que calcula el valor
+     * @return el valor de la entrada
+     */
+    public V computeIfAbsent(K key, Function<K, V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Este metodo permite eliminar una entrada
+     *
+     * @param key es la clave de la entrada
+     */
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Este metodo permite eliminar todas las entradas
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Este metodo permite descartar entradas hasta volver al tamano maximo. De cada muestra se descarta una
+     * entrada caducada o, si no hay ninguna, la usada hace mas tiempo. Si otro hilo ya esta desalojando no se
+     * espera, ese hilo tambien descarta las entradas que sobran por esta
+     */
+    private void evictOverflow() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            while (entries.size() > maxSize) {
+                Map.Entry<K, Entry<V>> victim = null;
+                for (int i = 0; i < SAMPLE; i++) {
+                    if (sweep == null || !sweep.hasNext()) {
+                        sweep = entries.entrySet().iterator();
+                        if (!sweep.hasNext()) {
+                            break;
+                        }
+                    }
+                    Map.Entry<K, Entry<V>> candidate = sweep.next();
+                    if (candidate.getValue().expiresAt <= now) {
+                        victim = candidate;
+                        break;
+                    }
+                    if (victim == null || candidate.getValue().lastUsed - victim.getValue().lastUsed < 0) {
+                        victim = candidate;
+                    }
+                }
+                if (victim == null) {
+                    return;
+                }
+                if (entries.remove(victim.getKey(), victim.getValue())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+        /**
+         * Instante del ultimo uso en nanosegundos. Se escribe sin bloquear, si dos lecturas coinciden
+         * cualquiera de los dos valores sirve
+         */
+        private volatile long lastUsed;
+
+        private Entry(V value, long expiresAt, long lastUsed) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.exception.TooManyRequestsException;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool de hilos propio con una cola acotada para los trabajos caros que no deben ocupar los hilos de Tomcat.
+ * Cuando la cola esta llena, o el trabajo no termina a tiempo, se rechaza la peticion con un 429, por lo que
+ * una rafaga de peticiones no bloquea el resto de la aplicacion. Se crea un pool por tipo de trabajo en
+ * ExecutorConfig
+ */
+public class BoundedExecutor {
+    private final ThreadPoolExecutor executor;
+    /**
+     * Tiempo maximo en milisegundos que una peticion espera a que termine su trabajo
+     */
+    private final long timeoutMillis;
+
+    /**
+     * @param name          es el prefijo del nombre de los hilos
+     * @param threads       es el numero de hilos del pool, si es 0 se usa el numero de nucleos
+     * @param queueSize     es el numero maximo de trabajos pendientes
+     * @param timeoutMillis es el tiempo maximo que se espera a que termine un trabajo
+     */
+    public BoundedExecutor(String name, int threads, int queueSize, long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Este metodo permite ejecutar un trabajo en el pool y esperar a su resultado
+     *
+     * @param task es el trabajo que se quiere ejecutar
+     * @return el resultado del trabajo
+     * @throws TooManyRequestsException si la cola esta llena o el trabajo no termina a tiempo
+     */
+    public <T> T call(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException ex) {
+            throw new TooManyRequestsException("error.general.saturado");
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            throw new TooManyRequestsException("error.general.saturado");
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -4,6 +4,7 @@ import com.hotel.hotel.dto.ErrorDTO;
 import com.hotel.hotel.exception.*;
 import jakarta.servlet.ServletException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MissingRequestHeaderException;
@@ -83,6 +84,15 @@ public class CustomExceptionHandler {
         errorDTO.setMessage(this.message.getMessage(ex.getMessage()));
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorDTO);
     }
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorDTO> handleTooManyRequestsException(TooManyRequestsException ex) {
+        ErrorDTO errorDTO = new ErrorDTO();
+        errorDTO.setStatus(HttpStatus.TOO_MANY_REQUESTS);
+        errorDTO.setMessage(this.message.getMessage(ex.getMessage()));
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorDTO);
+    }
     @ExceptionHandler(RoomNotAvailableException.class)
     public ResponseEntity<ErrorDTO> handleRoomNotAvailableException(RoomNotAvailableException ex) {
         ErrorDTO errorDTO = new ErrorDTO();
@@ -90,5 +100,12 @@ public class CustomExceptionHandler {
         errorDTO.setMessage(this.message.getMessage(ex.getMessage()));
         return ResponseEntity.status(HttpStatus.CONFLICT).body(errorDTO);
     }
+    @ExceptionHandler(FileStorageException.class)
+    public ResponseEntity<ErrorDTO> handleFileStorageException(FileStorageException ex) {
+        ErrorDTO errorDTO = new ErrorDTO();
+        errorDTO.setStatus(HttpStatus.INTERNAL_SERVER_ERROR);
+        errorDTO.setMessage(this.message.getMessage(ex.getMessage()));
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorDTO);
+    }
 
 }
@@ -5,6 +5,7 @@ import com.hotel.hotel.entity.*;
 import com.hotel.hotel.other.Status;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
@@ -16,6 +17,12 @@ public class DTOConverter {
      * Instancia de ModelMapper para realizar las conversiones
      */
     private final ModelMapper modelMapper;
+    /**
+     * Indica si las conversiones entre entidades y dtos se hacen con ModelMapper en lugar de copiar los
+     * campos directamente. Solo se deberia activar para comprobar alguna diferencia entre ambas
+     */
+    @Value("${dto.converter.modelmapper:false}")
+    private boolean useModelMapper;
 
     /**
      * Este metodo permite convertir un InsertUserDTO a User
@@ -24,7 +31,15 @@ public class DTOConverter {
      * @return un objeto User con los datos del dto
      */
     public User convertToUSer(InsertUserDTO userDTO) {
-        return modelMapper.map(userDTO, User.class);
+        if (useModelMapper) {
+            return modelMapper.map(userDTO, User.class);
+        }
+        User user = new User();
+        user.setId(userDTO.getId());
+        user.setName(userDTO.getName());
+        user.setEmail(userDTO.getEmail());
+        user.setPassword(userDTO.getPassword());
+        return user;
     }
 
     /**
@@ -34,7 +49,14 @@ public class DTOConverter {
      * @return un Objeto UserDTO con los datos del usuario
      */
     public UserDTO convertToUserDto(User user) {
-        return modelMapper.map(user, UserDTO.class);
+        if (useModelMapper) {
+            return modelMapper.map(user, UserDTO.class);
+        }
+        UserDTO dto = new UserDTO();
+        dto.setId(user.getId());
+        dto.setName(user.getName());
+        dto.setEmail(user.getEmail());
+        return dto;
     }
     /**
      * Este metodo permite convertir un UserLoginDto en User
@@ -43,7 +65,13 @@ public class DTOConverter {
      * @return un Objeto User con los datos del usuario
      */
     public User convertDTOLoginToUser(LoginUserDTO dto) {
-        return modelMapper.map(dto, User.class);
+        if (useModelMapper) {
+            return modelMapper.map(dto, User.class);
+        }
+        User user = new User();
+        user.setEmail(dto.getEmail());
+        user.setPassword(dto.getPassword());
+        return user;
     }
 
     /**
@@ -52,7 +80,15 @@ public class DTOConverter {
      * @return una instancia de la clase Room con los datos del dto
      */
     public Room convertToRoom(InsertRoomDTO dto){
-        return modelMapper.map(dto, Room.class);
+        if (useModelMapper) {
+            return modelMapper.map(dto, Room.class);
+        }
+        Room room = new Room();
+        room.setType(dto.getType());
+        room.setCapacity(dto.getCapacity());
+        room.setPrice(dto.getPrice());
+        room.setDescripcion(dto.getDescripcion());
+        return room;
     }
 
     /**
@@ -61,7 +97,17 @@ public class DTOConverter {
      * @return una instancia de la clase RoomDTO con los datos del objeto room
      */
     public RoomDTO convertRoomToDTO(Room room){
-        return modelMapper.map(room,RoomDTO.class);
+        if (useModelMapper) {
+            return modelMapper.map(room, RoomDTO.class);
+        }
+        RoomDTO dto = new RoomDTO();
+        dto.setId(room.getId());
+        dto.setType(room.getType());
+        dto.setCapacity(room.getCapacity());
+        dto.setPrice(room.getPrice());
+        dto.setDescripcion(room.getDescripcion());
+        dto.setImage(room.getImage());
+        return dto;
     }
 
     /**
@@ -70,7 +116,17 @@ public class DTOConverter {
      * @return una instancia de la clase room con los datos del dto
      */
     public Room convertToRoom(RoomDTO dto){
-        return modelMapper.map(dto, Room.class);
+        if (useModelMapper) {
+            return modelMapper.map(dto, Room.class);
+        }
+        Room room = new Room();
+        room.setId(dto.getId());
+        room.setType(dto.getType());
+        room.setCapacity(dto.getCapacity());
+        room.setPrice(dto.getPrice());
+        room.setDescripcion(dto.getDescripcion());
+        room.setImage(dto.getImage());
+        return room;
     }
 
     /**
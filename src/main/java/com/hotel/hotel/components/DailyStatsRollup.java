@@ -0,0 +1,220 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.dto.DailyStatDTO;
+import com.hotel.hotel.entity.DailyStat;
+import com.hotel.hotel.entity.DailyStatId;
+import com.hotel.hotel.entity.Reservation;
+import com.hotel.hotel.entity.Room;
+import com.hotel.hotel.other.Status;
+import com.hotel.hotel.repository.DailyStatRepository;
+import com.hotel.hotel.repository.ReservationRepository;
+import com.hotel.hotel.repository.RoomRepository;
+import com.hotel.hotel.repository.projection.ReservationFact;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Contadores diarios de las reservas por tipo de habitacion guardados en la tabla daily_stats: noches
+ * vendidas, ingresos, entradas, salidas y cancelaciones. Cada cambio de una reserva se traduce en los
+ * incrementos de los dias a los que afecta y se suman en la misma transaccion que guarda la reserva, por lo
+ * que los paneles leen unas pocas filas por dia en lugar de agregar la tabla de reservas.
+ * <p>
+ * El precio de una reserva se reparte entre sus noches y una reserva cancelada solo cuenta como cancelacion
+ * en su dia de entrada, asi que confirmar una reserva no cambia ningun contador. Las reservas cuentan en el
+ * tipo que tenia la habitacion al reservar, que se guarda en la reserva, para que cambiar el tipo de una
+ * habitacion no mueva sus reservas de fila. Las reservas anteriores a guardarlo usan el tipo actual
+ */
+@Component
+public class DailyStatsRollup {
+    private static final int NIGHTS = 0;
+    private static final int REVENUE = 1;
+    private static final int ARRIVALS = 2;
+    private static final int DEPARTURES = 3;
+    private static final int CANCELLATIONS = 4;
+    /**
+     * Orden en el que se escriben las filas, siempre el mismo para que dos transacciones que tocan los mismos
+     * dias no se bloqueen mutuamente
+     */
+    private static final Comparator<DailyStatId> ORDER = Comparator.comparing(DailyStatId::getDay).thenComparing(DailyStatId::getRoomType);
+
+    private final DailyStatRepository repository;
+    private final ReservationRepository reservationRepository;
+    private final RoomRepository roomRepository;
+    private final TransactionTemplate transactionTemplate;
+    /**
+     * Numero de reservas que se leen en cada consulta al reconstruir los contadores
+     */
+    private final int chunkSize;
+
+    private final Logger log = LoggerFactory.getLogger(DailyStatsRollup.class);
+
+    /**
+     * @param repository            es el repositorio de los contadores
+     * @param reservationRepository es el repositorio de reservas
+     * @param roomRepository        es el repositorio de habitaciones
+     * @param transactionManager    es el gestor de transacciones con el que se reconstruyen los contadores
+     * @param chunkSize             es el numero de reservas que se leen en cada consulta al reconstruir
+     */
+    public DailyStatsRollup(DailyStatRepository repository, ReservationRepository reservationRepository,
+                            RoomRepository roomRepository, PlatformTransactionManager transactionManager,
+                            @Value("${reports.rollup.chunk-size:10000}") int chunkSize) {
+        this.repository = repository;
+        this.reservationRepository = reservationRepository;
+        this.roomRepository = roomRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Este metodo permite sumar a los contadores el cambio de estado de una reserva. Se tiene que llamar
+     * dentro de la transaccion que guarda la reserva
+     *
+     * @param reservation es la reserva tal y como se ha guardado
+     * @param previous    es el estado anterior de la reserva o nulo si es nueva
+     */
+    public void apply(Reservation reservation, Status previous) {
+        Map<DailyStatId, long[]> deltas = new TreeMap<>(ORDER);
+        if (previous != null) {
+            add(deltas, type(reservation), reservation.getEntryDate(), reservation.getExitDate(),
+                    reservation.getTotalPrice(), previous, -1);
+        }
+        add(deltas, type(reservation), reservation.getEntryDate(), reservation.getExitDate(),
+                reservation.getTotalPrice(), reservation.getStatus(), 1);
+        flush(deltas);
+    }
+
+    /**
+     * Este metodo permite sumar a los contadores un lote de reservas nuevas, agrupando antes los incrementos
+     * de los dias que comparten. Se tiene que llamar dentro de la transaccion que guarda las reservas
+     *
+     * @param reservations son las reservas nuevas
+     */
+    public void applyAll(Collection<Reservation> reservations) {
+        Map<DailyStatId, long[]> deltas = new TreeMap<>(ORDER);
+        for (Reservation reservation : reservations) {
+            add(deltas, type(reservation), reservation.getEntryDate(), reservation.getExitDate(),
+                    reservation.getTotalPrice(), reservation.getStatus(), 1);
+        }
+        flush(deltas);
+    }
+
+    /**
+     * Este metodo permite volver a calcular todos los contadores a partir de la tabla de reservas. Las reservas
+     * se leen por bloques ordenados por id y los incrementos de cada bloque se escriben antes de leer el
+     * siguiente, por lo que la memoria usada no depende del numero de reservas. Todo se hace en una
+     * transaccion: el borrado bloquea la tabla de contadores, asi que las reservas que se guarden mientras
+     * tanto suman sus incrementos cuando termina y no se cuentan dos veces
+     *
+     * @return el numero de reservas leidas
+     */
+    public long rebuild() {
+        Long count = transactionTemplate.execute(status -> {
+            repository.deleteAllInBatch();
+            Map<Long, String> types = roomRepository.findAll().stream()
+                    .collect(Collectors.toMap(Room::getId, Room::getType));
+            long last = 0;
+            long read = 0;
+            List<ReservationFact> chunk;
+            do {
+                chunk = reservationRepository.findFactsByIdGreaterThan(last, PageRequest.of(0, chunkSize));
+                Map<DailyStatId, long[]> deltas = new TreeMap<>(ORDER);
+                for (ReservationFact fact : chunk) {
+                    String type = fact.getRoomType() != null ? fact.getRoomType() : types.get(fact.getRoomId());
+                    if (type != null) {
+                        add(deltas, type, fact.getEntryDate(), fact.getExitDate(), fact.getTotalPrice(), fact.getStatus(), 1);
+                    }
+                    last = fact.getId();
+                }
+                flush(deltas);
+                read += chunk.size();
+            } while (chunk.size() == chunkSize);
+            return read;
+        });
+        log.info("Contadores diarios reconstruidos a partir de {} reservas", count);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Este metodo permite obtener los contadores entre dos dias
+     *
+     * @param from     es el primer dia
+     * @param to       es el ultimo dia, incluido
+     * @param roomType es el tipo de habitacion, si es nulo se devuelven todos
+     * @return los contadores ordenados por dia y tipo de habitacion
+     */
+    public List<DailyStatDTO> find(LocalDate from, LocalDate to, String roomType) {
+        List<DailyStat> stats = roomType == null
+                ? repository.findByDayBetweenOrderByDayAscRoomTypeAsc(from, to)
+                : repository.findByDayBetweenAndRoomTypeOrderByDayAsc(from, to, roomType);
+        return stats.stream()
+                .map(stat -> new DailyStatDTO(Date.from(stat.getDay().atStartOfDay(ZoneId.systemDefault()).toInstant()),
+                        stat.getRoomType(), stat.getNightsSold(), stat.getRevenue(), stat.getArrivals(),
+                        stat.getDepartures(), stat.getCancellations()))
+                .toList();
+    }
+
+    private static String type(Reservation reservation) {
+        return reservation.getRoomType() != null ? reservation.getRoomType() : reservation.getRoom().getType();
+    }
+
+    /**
+     * Este metodo permite sumar los incrementos de una reserva en un estado a los de cada dia
+     *
+     * @param deltas     son los incrementos por dia y tipo de habitacion
+     * @param type       es el tipo de habitacion
+     * @param entryDate  es la fecha de entrada
+     * @param exitDate   es la fecha de salida
+     * @param totalPrice es el precio total de la reserva
+     * @param status     es el estado de la reserva
+     * @param sign       es 1 para sumar la reserva y -1 para restarla
+     */
+    private static void add(Map<DailyStatId, long[]> deltas, String type, Date entryDate, Date exitDate,
+                            BigDecimal totalPrice, Status status, int sign) {
+        long entry = DateUtils.toEpochDay(entryDate);
+        long exit = DateUtils.toEpochDay(exitDate);
+        if (status == Status.CANCELADA) {
+            cell(deltas, entry, type)[CANCELLATIONS] += sign;
+            return;
+        }
+        long price = totalPrice == null ? 0 : totalPrice.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        long nights = exit - entry;
+        for (long night = 0; night < nights; night++) {
+            long[] cell = cell(deltas, entry + night, type);
+            cell[NIGHTS] += sign;
+            //reparto exacto en centimos, las noches suman siempre el precio total
+            cell[REVENUE] += sign * (price * (night + 1) / nights - price * night / nights);
+        }
+        cell(deltas, entry, type)[ARRIVALS] += sign;
+        cell(deltas, exit, type)[DEPARTURES] += sign;
+    }
+
+    private static long[] cell(Map<DailyStatId, long[]> deltas, long day, String type) {
+        return deltas.computeIfAbsent(new DailyStatId(LocalDate.ofEpochDay(day), type), key -> new long[5]);
+    }
+
+    /**
+     * Este metodo permite escribir los incrementos que no son cero, una sentencia por dia y tipo de habitacion
+     *
+     * @param deltas son los incrementos por dia y tipo de habitacion
+     */
+    private void flush(Map<DailyStatId, long[]> deltas) {
+        deltas.forEach((key, delta) -> {
+            if (Arrays.stream(delta).anyMatch(value -> value != 0)) {
+                repository.add(key.getDay(), key.getRoomType(), delta[NIGHTS], BigDecimal.valueOf(delta[REVENUE], 2),
+                        delta[ARRIVALS], delta[DEPARTURES], delta[CANCELLATIONS]);
+            }
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package com.hotel.hotel.components;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+public final class DateUtils {
+
+    private DateUtils() {
+    }
+
+    /**
+     * Este metodo permite convertir una fecha al numero de dias transcurridos desde 1970-01-01,
+     * tanto si es un java.util.Date como un java.sql.Date devuelto por la base de datos
+     *
+     * @param date es la fecha que queremos convertir
+     * @return el dia de la fecha indicada en formato epoch day
+     */
+    public static long toEpochDay(Date date) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault()).toEpochDay();
+    }
+}
@@ -0,0 +1,128 @@
+package com.hotel.hotel.components;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Metricas propias de la aplicacion que no cubren los temporizadores de los servicios (@Timed) ni los de los
+ * repositorios, que registra Spring Boot. Los medidores se crean una sola vez al arrancar, por lo que
+ * registrar un valor no tiene que buscar el medidor en el registro
+ */
+@Component
+public class HotelMetrics {
+    /**
+     * Nombre de los temporizadores de los metodos de los servicios
+     */
+    public static final String SERVICE_TIMER = "hotel.service";
+
+    /**
+     * Reservas rechazadas porque la habitacion ya estaba reservada en esas fechas
+     */
+    private final Counter bookingConflicts;
+    /**
+     * Reintentos con Idempotency-Key respondidos con la respuesta original
+     */
+    private final Counter idempotentReplays;
+    /**
+     * Peticiones rechazadas por superar el limite de peticiones
+     */
+    private final Counter rateLimited;
+    /**
+     * Intentos fallidos de pasar los cambios de las reservas al registro de cambios
+     */
+    private final Counter changeLogFailures;
+    /**
+     * Logins fallidos por email desconocido y por contrasena incorrecta
+     */
+    private final Counter loginFailuresEmail;
+    private final Counter loginFailuresPassword;
+    /**
+     * Tiempo de calculo y de verificacion de los hash Argon2, sin contar la espera en la cola
+     */
+    private final Timer argon2Hash;
+    private final Timer argon2Verify;
+    /**
+     * Tiempo de verificacion de la firma de los tokens que no estan en la cache
+     */
+    private final Timer jwtVerification;
+
+    /**
+     * @param registry es el registro en el que se publican las metricas
+     */
+    public HotelMetrics(MeterRegistry registry) {
+        this.bookingConflicts = Counter.builder("hotel.reservations.conflicts")
+                .description("Reservas rechazadas porque la habitacion no estaba disponible")
+                .register(registry);
+        this.idempotentReplays = Counter.builder("hotel.idempotency.replays")
+                .description("Reintentos respondidos desde memoria sin volver a ejecutar la operacion")
+                .register(registry);
+        this.rateLimited = Counter.builder("hotel.ratelimit.rejections")
+                .description("Peticiones rechazadas por superar el limite de peticiones")
+                .register(registry);
+        this.changeLogFailures = Counter.builder("hotel.reservations.changes.failures")
+                .description("Intentos fallidos de pasar los cambios de las reservas al registro, quedan pendientes en la base de datos")
+                .register(registry);
+        this.loginFailuresEmail = loginFailures(registry, "email");
+        this.loginFailuresPassword = loginFailures(registry, "password");
+        this.argon2Hash = argon2(registry, "hash");
+        this.argon2Verify = argon2(registry, "verify");
+        this.jwtVerification = Timer.builder("hotel.jwt.verification")
+                .description("Tiempo de verificacion de la firma de los tokens")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public void bookingConflict() {
+        bookingConflicts.increment();
+    }
+
+    public void idempotentReplay() {
+        idempotentReplays.increment();
+    }
+
+    public void rateLimited() {
+        rateLimited.increment();
+    }
+
+    public void changeLogFailure() {
+        changeLogFailures.increment();
+    }
+
+    /**
+     * Este metodo permite contar un login fallido
+     *
+     * @param unknownEmail indica si ha fallado por el email en lugar de por la contrasena
+     */
+    public void loginFailure(boolean unknownEmail) {
+        (unknownEmail ? loginFailuresEmail : loginFailuresPassword).increment();
+    }
+
+    public Timer argon2Hash() {
+        return argon2Hash;
+    }
+
+    public Timer argon2Verify() {
+        return argon2Verify;
+    }
+
+    public Timer jwtVerification() {
+        return jwtVerification;
+    }
+
+    private static Counter loginFailures(MeterRegistry registry, String reason) {
+        return Counter.builder("hotel.login.failures")
+                .description("Logins fallidos")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private static Timer argon2(MeterRegistry registry, String operation) {
+        return Timer.builder("hotel.argon2")
+                .description("Tiempo de calculo de los hash Argon2")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,153 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Respuestas de las peticiones que envian la cabecera Idempotency-Key, para que los reintentos de los
+ * clientes devuelvan la respuesta original sin volver a ejecutar la operacion ni consultar la base de datos.
+ * Las claves son de cada usuario y de cada operacion, y una clave solo se puede reutilizar con el mismo
+ * cuerpo.
+ * <p>
+ * Las respuestas se guardan en una cache con tamano maximo y caducidad. Si llega un reintento mientras la
+ * peticion original todavia se esta ejecutando, espera a que termine y devuelve su misma respuesta o error.
+ * Las peticiones que fallan no se guardan, por lo que se pueden reintentar con la misma clave
+ */
+@Component
+public class IdempotencyStore {
+    /**
+     * Longitud maxima de las claves
+     */
+    private static final int MAX_KEY_LENGTH = 255;
+
+    /**
+     * Respuestas de las peticiones terminadas por operacion, usuario y clave
+     */
+    private final BoundedCache<String, Completed> completed;
+    /**
+     * Peticiones que se estan ejecutando por operacion, usuario y clave
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Completed>> inFlight = new ConcurrentHashMap<>();
+    /**
+     * Tiempo maximo que un reintento espera a la peticion original
+     */
+    private final long waitMillis;
+    private final HotelMetrics metrics;
+
+    /**
+     * @param size       es el numero maximo de respuestas guardadas
+     * @param ttlMillis  es el tiempo que se guarda cada respuesta
+     * @param waitMillis es el tiempo maximo que un reintento espera a la peticion original
+     * @param metrics    son las metricas en las que se cuentan los reintentos respondidos desde memoria
+     */
+    public IdempotencyStore(@Value("${idempotency.cache.size:10000}") int size,
+                            @Value("${idempotency.cache.ttl-millis:86400000}") long ttlMillis,
+                            @Value("${idempotency.wait-millis:30000}") long waitMillis,
+                            HotelMetrics metrics) {
+        this.completed = new BoundedCache<>(size, ttlMillis);
+        this.waitMillis = waitMillis;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Este metodo permite ejecutar una operacion una sola vez por clave. Sin clave la operacion se ejecuta
+     * siempre
+     *
+     * @param operation es el nombre de la operacion
+     * @param userId    es el id del usuario que hace la peticion
+     * @param key       es la clave de la cabecera Idempotency-Key, puede ser nula
+     * @param request   es el cuerpo de la peticion, los reintentos tienen que enviar uno igual
+     * @param action    es la operacion
+     * @return la respuesta de la operacion, la original si es un reintento
+     * @throws IllegalArgumentException si la clave no es valida o ya se ha usado con otro cuerpo
+     * @throws TooManyRequestsException si la peticion original no termina a tiempo
+     */
+    public <T> T execute(String operation, Long userId, String key, Object request, Supplier<T> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("error.idempotencia.clave");
+        }
+        String id = operation + ':' + userId + ':' + key;
+        Completed done = completed.get(id);
+        if (done != null) {
+            return replay(done, request);
+        }
+        CompletableFuture<Completed> mine = new CompletableFuture<>();
+        CompletableFuture<Completed> running = inFlight.putIfAbsent(id, mine);
+        if (running != null) {
+            return replay(await(running), request);
+        }
+        try {
+            //la peticion original puede haber terminado entre la consulta a la cache y el registro
+            done = completed.get(id);
+            if (done == null) {
+                done = new Completed(request, action.get());
+                completed.put(id, done);
+                mine.complete(done);
+                return cast(done.response());
+            }
+            mine.complete(done);
+            return replay(done, request);
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    /**
+     * Este metodo permite esperar a que termine la peticion original
+     *
+     * @param running es la peticion original
+     * @return su respuesta
+     */
+    private Completed await(CompletableFuture<Completed> running) {
+        try {
+            return running.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new TooManyRequestsException("error.idempotencia.espera");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TooManyRequestsException("error.idempotencia.espera");
+        }
+    }
+
+    private <T> T replay(Completed done, Object request) {
+        if (!Objects.equals(done.request(), request)) {
+            throw new IllegalArgumentException("error.idempotencia.cuerpo");
+        }
+        metrics.idempotentReplay();
+        return cast(done.response());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object response) {
+        return (T) response;
+    }
+
+    /**
+     * Peticion terminada
+     *
+     * @param request  es el cuerpo de la peticion
+     * @param response es la respuesta
+     */
+    private record Completed(Object request, Object response) {
+    }
+}
@@ -0,0 +1,147 @@
+package com.hotel.hotel.components;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+
+/**
+ * Sirve las imagenes de las habitaciones y sus variantes desde disco. Los ficheros nunca cambian de contenido
+ * (el nombre es un UUID o el hash del contenido), por lo que el ETag se obtiene del nombre sin leer el fichero
+ * y se pueden cachear sin revalidar. Si el contenedor lo permite (sendfile de Tomcat) el fichero lo envia el
+ * sistema operativo directamente al socket sin pasar por la JVM.
+ * <p>
+ * Sin sendfile (conector sin NIO, HTTPS con sendfile desactivado o un contenedor que no es Tomcat) no hay copia
+ * sin pasar por memoria: la salida del servlet es un OutputStream, por lo que FileChannel.transferTo copia el
+ * fichero por bloques de 8 KB a un buffer del heap antes de escribirlo. El fichero nunca se carga entero en
+ * memoria, pero cada bloque se copia una vez mas que con sendfile
+ */
+@Component
+public class ImageServer {
+    /**
+     * Atributos de la peticion con los que Tomcat indica que admite sendfile y recibe el fragmento a enviar
+     */
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    /**
+     * Nombres de fichero que se pueden servir, sin separadores para no salir del directorio de imagenes
+     */
+    private static final Pattern NAME = Pattern.compile("[0-9a-f-]+(-thumb|-medium)?\\.(jpg|png)");
+
+    /**
+     * Cabecera Cache-Control de las imagenes
+     */
+    private final CacheControl cacheControl;
+
+    /**
+     * @param maxAgeSeconds es el tiempo en segundos que los clientes pueden guardar las imagenes
+     */
+    public ImageServer(@Value("${images.cache.max-age-seconds:31536000}") long maxAgeSeconds) {
+        this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic().immutable();
+    }
+
+    /**
+     * Este metodo permite enviar una imagen en la respuesta. Si el ETag coincide con el de If-None-Match se
+     * responde 304 sin cuerpo, y si se pide un unico rango se envia solo ese fragmento con un 206
+     *
+     * @param directory es el directorio de las imagenes
+     * @param name      es el nombre del fichero
+     * @param request   es la peticion
+     * @param response  es la respuesta
+     * @throws NoSuchElementException si el nombre no es valido o el fichero no existe
+     */
+    public void serve(Path directory, String name, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new NoSuchElementException("error.imagen.noexiste");
+        }
+        Path file = directory.resolve(name);
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchElementException("error.imagen.noexiste");
+        }
+        String eTag = "\"" + name.substring(0, name.lastIndexOf('.')) + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(eTag)) {
+            return;
+        }
+        long length = Files.size(file);
+        response.setContentType(name.endsWith(".png") ? MediaType.IMAGE_PNG_VALUE : MediaType.IMAGE_JPEG_VALUE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long start = 0;
+        long end = length;
+        HttpRange range = range(request, eTag);
+        if (range != null) {
+            if (length == 0 || range.getRangeStart(length) >= length) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length) + 1;
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+        }
+        response.setContentLengthLong(end - start);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        //sin sendfile la copia pasa por el buffer del canal que envuelve la salida, ver la documentacion de la clase
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, out);
+            }
+        }
+    }
+
+    /**
+     * Este metodo permite obtener el rango pedido. Solo se atiende un rango, si se piden varios, la cabecera no
+     * es valida o el If-Range no coincide con el ETag se envia la imagen completa
+     *
+     * @param request es la peticion
+     * @param eTag    es el ETag de la imagen
+     * @return el rango o nulo si se envia la imagen completa
+     */
+    private static HttpRange range(HttpServletRequest request, String eTag) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(eTag)) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.other.ImageVariant;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Genera en segundo plano las variantes redimensionadas de las imagenes de las habitaciones. Las variantes se
+ * guardan junto a la imagen original con el hash de su contenido como nombre, por lo que dos habitaciones con
+ * la misma imagen comparten las variantes y una variante que ya existe no se vuelve a generar
+ */
+@Component
+public class ImageVariants {
+    /**
+     * Url a la que se le anade el nombre del fichero de cada variante
+     */
+    private final String baseUrl;
+    /**
+     * Calidad de los jpeg generados, entre 0 y 1
+     */
+    private final float quality;
+    /**
+     * Hilo que genera las variantes. Si la cola esta llena las genera el hilo que sube la imagen
+     */
+    private final ThreadPoolExecutor executor;
+
+    private final Logger log = LoggerFactory.getLogger(ImageVariants.class);
+
+    /**
+     * @param baseUrl   es la url a la que se le anade el nombre del fichero de cada variante
+     * @param quality   es la calidad de los jpeg generados
+     * @param queueSize es el numero maximo de imagenes pendientes de redimensionar
+     */
+    public ImageVariants(@Value("${images.url:/api/rooms/images/}") String baseUrl,
+                         @Value("${images.variants.quality:0.8}") float quality,
+                         @Value("${images.variants.queue:64}") int queueSize) {
+        this.baseUrl = baseUrl;
+        this.quality = quality;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "image-variants");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Este metodo permite generar en segundo plano las variantes de una imagen
+     *
+     * @param original es la ruta de la imagen original
+     * @param hash     es el hash del contenido de la imagen
+     */
+    public void generateAsync(Path original, String hash) {
+        executor.execute(() -> generate(original, hash));
+    }
+
+    /**
+     * Este metodo permite generar las variantes de una imagen que aun no existan. La imagen se decodifica una
+     * sola vez, saltando pixeles si es mucho mayor que la variante mas grande, y de ella se obtienen todas
+     *
+     * @param original es la ruta de la imagen original
+     * @param hash     es el hash del contenido de la imagen
+     */
+    public void generate(Path original, String hash) {
+        Path directory = original.toAbsolutePath().getParent();
+        ImageVariant[] pending = Arrays.stream(ImageVariant.values())
+                .filter(variant -> !Files.exists(directory.resolve(variant.fileName(hash))))
+                .toArray(ImageVariant[]::new);
+        if (pending.length == 0) {
+            return;
+        }
+        try {
+            BufferedImage source = read(original, Arrays.stream(pending).mapToInt(ImageVariant::getWidth).max().getAsInt());
+            if (source == null) {
+                log.warn("No se ha podido leer la imagen {} para generar sus variantes", original);
+                return;
+            }
+            for (ImageVariant variant : pending) {
+                write(resize(source, variant.getWidth()), directory.resolve(variant.fileName(hash)));
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("No se han podido generar las variantes de la imagen {}", original, ex);
+        }
+    }
+
+    /**
+     * Este metodo permite obtener las urls de las variantes de una imagen
+     *
+     * @param hash es el hash del contenido de la imagen, puede ser nulo
+     * @return las urls indexadas por el nombre de la variante o nulo si la imagen no tiene hash
+     */
+    public Map<String, String> urls(String hash) {
+        if (hash == null) {
+            return null;
+        }
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (ImageVariant variant : ImageVariant.values()) {
+            urls.put(variant.getSuffix(), baseUrl + variant.fileName(hash));
+        }
+        return urls;
+    }
+
+    /**
+     * Este metodo permite borrar las variantes de una imagen que ya no usa ninguna habitacion
+     *
+     * @param original es la ruta de la imagen original
+     * @param hash     es el hash del contenido de la imagen
+     */
+    public void remove(Path original, String hash) {
+        Path directory = original.toAbsolutePath().getParent();
+        for (ImageVariant variant : ImageVariant.values()) {
+            try {
+                Files.deleteIfExists(directory.resolve(variant.fileName(hash)));
+            } catch (IOException ex) {
+                log.warn("No se ha podido borrar la variante {} de la imagen {}", variant, original, ex);
+            }
+        }
+    }
+
+    /**
+     * Este metodo permite decodificar una imagen con un ancho de al menos el doble del indicado, para que la
+     * reduccion posterior mantenga la calidad sin tener que cargar todos los pixeles
+     *
+     * @param path  es la ruta de la imagen
+     * @param width es el ancho de la variante mas grande
+     * @return la imagen o nulo si el formato no se reconoce
+     */
+    private static BufferedImage read(Path path, int width) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int step = Math.max(1, reader.getWidth(0) / (width * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Este metodo permite reducir una imagen a un ancho maximo manteniendo su proporcion. Las transparencias
+     * se pintan sobre fondo blanco porque las variantes son jpeg
+     *
+     * @param source es la imagen
+     * @param width  es el ancho maximo
+     * @return la imagen reducida
+     */
+    private static BufferedImage resize(BufferedImage source, int width) {
+        double scale = Math.min(1, (double) width / source.getWidth());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, targetWidth, targetHeight, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Este metodo permite guardar una variante en un fichero temporal y renombrarlo cuando esta completa
+     *
+     * @param image  es la imagen de la variante
+     * @param target es la ruta de la variante
+     */
+    private void write(BufferedImage image, Path target) throws IOException {
+        Path temp = target.resolveSibling("." + target.getFileName() + ".part");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try {
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(output);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(quality);
+                writer.write(null, new IIOImage(image, null, null), param);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            writer.dispose();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
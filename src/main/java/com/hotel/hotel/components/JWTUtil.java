@@ -1,25 +1,35 @@
 package com.hotel.hotel.components;
 
-import com.hotel.hotel.entity.User;
 import com.hotel.hotel.exception.ForbiddenException;
 import com.hotel.hotel.other.Role;
-import com.hotel.hotel.service.UserService;
 import io.jsonwebtoken.*;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
-import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.security.Key;
-import java.util.Date;
-import java.util.Locale;
-import java.util.NoSuchElementException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
 
 @Component
 public class JWTUtil {
+    /**
+     * Nombre del claim con el rol del usuario
+     */
+    private static final String ROLE_CLAIM = "role";
+    /**
+     * Nombre del claim con la version de los tokens del usuario
+     */
+    private static final String VERSION_CLAIM = "ver";
+
     @Value("${security.jwt.secret}")
     private String key;
 
@@ -28,48 +38,89 @@ public class JWTUtil {
 
     @Value("${security.jwt.ttlMillis}")
     private long ttlMillis;
+
+    @Value("${security.jwt.cache.size:10000}")
+    private int cacheSize;
+    /**
+     * Id de la clave configurada en security.jwt.secret
+     */
+    @Value("${security.jwt.kid:main}")
+    private String kid;
+    /**
+     * Fichero opcional con claves adicionales para poder rotarlas sin reiniciar
+     */
+    @Value("${security.jwt.keys-file:}")
+    private String keysFile;
+
+    @Value("${security.jwt.keys-refresh-millis:60000}")
+    private long keysRefreshMillis;
     /**
-     * Servicio del usuario
+     * Claves de firma, se construyen una sola vez al arrancar
+     */
+    private JwtKeyRing keyRing;
+    /**
+     * Parser de tokens, es inmutable y se puede compartir entre hilos
+     */
+    private JwtParser parser;
+    /**
+     * Nombre del atributo de la peticion en el que se guardan el token, su resumen y sus datos ya verificados
+     */
+    private static final String REQUEST_TOKEN = JWTUtil.class.getName() + ".token";
+    /**
+     * Cache con los datos de los tokens ya verificados indexados por el resumen SHA-256 del token
+     */
+    private BoundedCache<String, TokenClaims> claimsCache;
+    /**
+     * Version actual de los tokens de cada usuario
      */
     @Autowired
-    private UserService service;
+    private TokenVersions tokenVersions;
     /**
      * Comoponente que nos permite acceder al fichero de mensajes
      */
     @Autowired
     private MessageComponent message;
+    /**
+     * Metricas con el tiempo de verificacion de los tokens
+     */
+    @Autowired
+    private HotelMetrics metrics;
 
     private final Logger log = LoggerFactory.getLogger(JWTUtil.class);
 
+    @PostConstruct
+    public void init() {
+        claimsCache = new BoundedCache<>(cacheSize, ttlMillis >= 0 ? ttlMillis : Long.MAX_VALUE / 2);
+        keyRing = new JwtKeyRing(kid, key, keysFile == null || keysFile.isBlank() ? null : Path.of(keysFile),
+                keysRefreshMillis, claimsCache::invalidateAll);
+        parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(keyRing)
+                .build();
+    }
+
     /**
      * Este metodo permite crear un token de autenticacion
      *
      * @param id      es el id del usuario para el que se va a crear el token
      * @param subject es el email del usuario para el que se va a crear el token
+     * @param role    es el rol del usuario
+     * @param version es la version actual de los tokens del usuario
      * @return el token
      */
-    public String create(String id, String subject) {
-        // The JWT signature algorithm used to sign the token
-        SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.HS256;
-
+    public String create(String id, String subject, Role role, int version) {
         long nowMillis = System.currentTimeMillis();
         Date now = new Date(nowMillis);
-
-        // Sign JWT with our ApiKey secret
-        byte[] apiKeySecretBytes = key.getBytes(StandardCharsets.UTF_8);
-        Key signingKey = new SecretKeySpec(apiKeySecretBytes, signatureAlgorithm.getJcaName());
-
-        // Set the JWT Claims
-        JwtParser parser = Jwts.parserBuilder()
-                .setSigningKey(signingKey)
-                .build();
+        Map.Entry<String, Key> signingKey = keyRing.getActiveKey();
 
         JwtBuilder builder = Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.getKey())
                 .setId(id)
                 .setIssuedAt(now)
                 .setSubject(subject)
                 .setIssuer(issuer)
-                .signWith(signingKey, signatureAlgorithm); // Specify the signing key and algorithm
+                .claim(ROLE_CLAIM, role == null ? null : role.name())
+                .claim(VERSION_CLAIM, version)
+                .signWith(signingKey.getValue(), keyRing.getAlgorithm()); // Specify the signing key and algorithm
 
         if (ttlMillis >= 0) {
             long expMillis = nowMillis + ttlMillis;
@@ -81,6 +132,90 @@ public class JWTUtil {
         return builder.compact();
     }
 
+    /**
+     * Este metodo permite registrar una nueva clave de firma y usarla para los nuevos tokens. Los tokens
+     * firmados con las claves anteriores se siguen aceptando hasta que se retiren
+     *
+     * @param kid    es el id de la nueva clave
+     * @param secret es el secreto de la nueva clave
+     */
+    public void rotateKey(String kid, String secret) {
+        keyRing.register(kid, secret);
+        keyRing.activate(kid);
+    }
+
+    /**
+     * Este metodo permite retirar una clave de firma, dejando de aceptar los tokens firmados con ella
+     *
+     * @param kid es el id de la clave que queremos retirar
+     */
+    public void retireKey(String kid) {
+        keyRing.retire(kid);
+    }
+
+    /**
+     * Este metodo permite obtener los datos de un token verificando su firma una sola vez. Los datos se
+     * guardan en la peticion actual y en una cache compartida hasta que el token caduca. Cada vez se comprueba
+     * en memoria que el token no haya sido revocado
+     *
+     * @param jwt es el token del que queremos obtener los datos
+     * @return los datos del token
+     */
+    public TokenClaims getClaims(String jwt) {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        RequestToken token = requestToken(request, jwt);
+        if (token.claims() != null) {
+            return token.claims();
+        }
+        String digest = token.digest();
+        TokenClaims claims = claimsCache.get(digest);
+        if (claims == null) {
+            claims = metrics.jwtVerification().record(() -> parse(jwt));
+            claimsCache.put(digest, claims, claims.expiresAt());
+        }
+        if (claims.id() != null && !tokenVersions.isCurrent(claims.id(), claims.version())) {
+            claimsCache.invalidate(digest);
+            throw new ForbiddenException("error.usuario.token");
+        }
+        if (request != null) {
+            request.setAttribute(REQUEST_TOKEN, new RequestToken(jwt, digest, claims), RequestAttributes.SCOPE_REQUEST);
+        }
+        return claims;
+    }
+
+    /**
+     * Este metodo permite obtener el email del usuario de un token que ya se ha verificado antes, sin
+     * verificar la firma. Sirve para identificar al cliente antes de hacer ningun trabajo criptografico
+     *
+     * @param jwt es el token
+     * @return el email del usuario o null si el token no se ha verificado todavia
+     */
+    public String getVerifiedSubject(String jwt) {
+        RequestToken token = requestToken(RequestContextHolder.getRequestAttributes(), jwt);
+        TokenClaims claims = token.claims() != null ? token.claims() : claimsCache.get(token.digest());
+        return claims == null ? null : claims.subject();
+    }
+
+    /**
+     * Este metodo permite obtener el token guardado en la peticion actual o guardarlo con su resumen, para
+     * que el resumen se calcule una sola vez por peticion
+     *
+     * @param request es la peticion actual, puede ser nula fuera de una peticion
+     * @param jwt     es el token
+     * @return el token de la peticion con su resumen y, si ya se ha verificado, sus datos
+     */
+    private static RequestToken requestToken(RequestAttributes request, String jwt) {
+        if (request != null && request.getAttribute(REQUEST_TOKEN, RequestAttributes.SCOPE_REQUEST) instanceof RequestToken token
+                && jwt.equals(token.jwt())) {
+            return token;
+        }
+        RequestToken token = new RequestToken(jwt, digest(jwt), null);
+        if (request != null) {
+            request.setAttribute(REQUEST_TOKEN, token, RequestAttributes.SCOPE_REQUEST);
+        }
+        return token;
+    }
+
     /**
      * Este metodo permite obtener el email del usuario a partir de su token
      *
@@ -88,11 +223,7 @@ public class JWTUtil {
      * @return el email del usuario
      */
     public String getValue(String jwt) {
-        // This line will throw an exception if it is not a signed JWS (as expected)
-        Claims claims = Jwts.parser().setSigningKey(key.getBytes(StandardCharsets.UTF_8))
-                .parseClaimsJws(jwt).getBody();
-
-        return claims.getSubject();
+        return getClaims(jwt).subject();
     }
 
     /**
@@ -102,41 +233,71 @@ public class JWTUtil {
      * @return el id del usuario
      */
     public String getKey(String jwt) {
-        // This line will throw an exception if it is not a signed JWS (as expected)
-        Claims claims = Jwts.parser().setSigningKey(key.getBytes(StandardCharsets.UTF_8))
-                .parseClaimsJws(jwt).getBody();
-
-        return claims.getId();
+        Long id = getClaims(jwt).id();
+        return id == null ? null : String.valueOf(id);
     }
 
     /**
      * Este metodo permite comprobar si un token es correcto
      *
      * @param token es el token que queremos validar
+     * @return el id del usuario del token
      */
-    public void checkUser(String token) {
-        String userID = getKey(token);
+    public Long checkUser(String token) {
+        Long userID = getClaims(token).id();
         if (userID == null) {
             throw new ForbiddenException("error.usuario.token");
         }
-
-
+        return userID;
     }
 
     /**
-     * Este metodo permite validar si un usuario es administrador a partir de su token
+     * Este metodo permite validar si un usuario es administrador a partir del rol incluido en su token
      *
      * @param token es el token del usuario que queremos comprobar
      */
     public void validarAdmin(String token) {
-        String userID = getKey(token);
-        try{
-            User user = service.findById(Long.parseLong(userID));
-            if(!user.getType().equals(Role.ADMIN)){
-                throw new ForbiddenException("error.usuario.token");
-            }
-        }catch (NoSuchElementException ex){
+        TokenClaims claims = getClaims(token);
+        if (claims.id() == null || claims.role() != Role.ADMIN) {
             throw new ForbiddenException("error.usuario.token");
         }
     }
+
+    /**
+     * Este metodo permite verificar la firma de un token y extraer sus datos
+     *
+     * @param jwt es el token que queremos verificar
+     * @return los datos del token
+     */
+    private TokenClaims parse(String jwt) {
+        // This line will throw an exception if it is not a signed JWS (as expected)
+        Claims claims = parser.parseClaimsJws(jwt).getBody();
+        Long id = claims.getId() == null ? null : Long.valueOf(claims.getId());
+        long expiresAt = claims.getExpiration() == null ? Long.MAX_VALUE : claims.getExpiration().getTime();
+        String role = claims.get(ROLE_CLAIM, String.class);
+        Integer version = claims.get(VERSION_CLAIM, Integer.class);
+        return new TokenClaims(id, claims.getSubject(), role == null ? null : Role.valueOf(role),
+                version == null ? 0 : version, expiresAt);
+    }
+
+    /**
+     * Este metodo permite calcular el resumen SHA-256 de un token para no guardar el token en la cache
+     *
+     * @param jwt es el token
+     * @return el resumen del token en hexadecimal
+     */
+    private static String digest(String jwt) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(jwt.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Token de la peticion actual con su resumen y sus datos, que son nulos si todavia no se ha verificado
+     */
+    private record RequestToken(String jwt, String digest, TokenClaims claims) {
+    }
 }
@@ -0,0 +1,69 @@
+package com.hotel.hotel.components;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Escribe un array JSON a partir de un Stream de entidades sin cargar el resultado completo en memoria. Cada
+ * entidad se convierte a dto, se escribe y se separa del contexto de persistencia, por lo que la memoria
+ * usada no depende del numero de filas
+ */
+@Component
+@RequiredArgsConstructor
+public class JsonStreamWriter {
+    /**
+     * Numero de elementos que se escriben entre cada vaciado de la salida
+     */
+    private static final int FLUSH_EVERY = 500;
+
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Este metodo permite escribir como array JSON todas las entidades de una consulta
+     *
+     * @param out       es la salida en la que se escribe el JSON
+     * @param query     es la consulta que devuelve el Stream de entidades, se ejecuta en una transaccion de solo lectura
+     * @param converter es la funcion que convierte cada entidad en dto
+     */
+    public <E, D> void write(OutputStream out, Supplier<Stream<E>> query, Function<E, D> converter) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.executeWithoutResult(status -> {
+            try (Stream<E> entities = query.get();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                         .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartArray();
+                int written = 0;
+                for (E entity : (Iterable<E>) entities::iterator) {
+                    generator.writePOJO(converter.apply(entity));
+                    entityManager.detach(entity);
+                    if (++written % FLUSH_EVERY == 0) {
+                        generator.flush();
+                        //las entidades relacionadas (usuario, habitacion) tambien se sueltan cada cierto tiempo
+                        entityManager.clear();
+                    }
+                }
+                generator.writeEndArray();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+}
@@ -0,0 +1,186 @@
+package com.hotel.hotel.components;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.Key;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Conjunto de claves de firma de los tokens identificadas por su "kid". Los tokens se firman con la clave
+ * activa y se verifican con la clave indicada en su cabecera, por lo que se pueden rotar las claves sin
+ * invalidar los tokens ya emitidos. Las claves se pueden registrar por codigo o en un fichero de propiedades
+ * que se recarga cuando cambia, sustituyendo a las registradas por codigo:
+ * <pre>
+ * active=2024
+ * key.2024=secreto
+ * </pre>
+ */
+public class JwtKeyRing extends SigningKeyResolverAdapter {
+    private static final SignatureAlgorithm ALGORITHM = SignatureAlgorithm.HS256;
+
+    /**
+     * Id de la clave configurada en security.jwt.secret, que es la que se usa con los tokens sin kid
+     */
+    private final String defaultKid;
+    private final Key defaultKey;
+    /**
+     * Fichero con claves adicionales, puede ser nulo
+     */
+    private final Path keysFile;
+    private final long refreshMillis;
+    /**
+     * Accion que se ejecuta cuando se retira alguna clave
+     */
+    private final Runnable onRetire;
+
+    private volatile Snapshot snapshot;
+    private volatile long nextCheck;
+    private FileTime lastModified;
+
+    private final Logger log = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    public JwtKeyRing(String defaultKid, String defaultSecret, Path keysFile, long refreshMillis, Runnable onRetire) {
+        this.defaultKid = defaultKid;
+        this.defaultKey = toKey(defaultSecret);
+        this.keysFile = keysFile;
+        this.refreshMillis = refreshMillis;
+        this.onRetire = onRetire;
+        this.snapshot = new Snapshot(defaultKid, Map.of(defaultKid, defaultKey));
+        refresh();
+    }
+
+    public SignatureAlgorithm getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    /**
+     * Este metodo permite obtener la clave con la que se firman los nuevos tokens junto con su id
+     *
+     * @return una entrada con el id y la clave activa
+     */
+    public Map.Entry<String, Key> getActiveKey() {
+        refresh();
+        Snapshot current = snapshot;
+        return Map.entry(current.activeKid(), current.keys().get(current.activeKid()));
+    }
+
+    /**
+     * Este metodo permite registrar una clave. Los tokens firmados con ella se aceptan aunque no sea la activa
+     *
+     * @param kid    es el id de la clave
+     * @param secret es el secreto de la clave
+     */
+    public synchronized void register(String kid, String secret) {
+        Map<String, Key> keys = new HashMap<>(snapshot.keys());
+        keys.put(kid, toKey(secret));
+        snapshot = new Snapshot(snapshot.activeKid(), Map.copyOf(keys));
+    }
+
+    /**
+     * Este metodo permite indicar con que clave se firman los nuevos tokens
+     *
+     * @param kid es el id de una clave registrada
+     */
+    public synchronized void activate(String kid) {
+        if (!snapshot.keys().containsKey(kid)) {
+            throw new IllegalArgumentException("error.jwt.kid");
+        }
+        snapshot = new Snapshot(kid, snapshot.keys());
+    }
+
+    /**
+     * Este metodo permite retirar una clave, dejando de aceptar los tokens firmados con ella
+     *
+     * @param kid es el id de la clave, no puede ser la activa
+     */
+    public synchronized void retire(String kid) {
+        if (kid.equals(snapshot.activeKid())) {
+            throw new IllegalArgumentException("error.jwt.kid");
+        }
+        Map<String, Key> keys = new HashMap<>(snapshot.keys());
+        if (keys.remove(kid) != null) {
+            snapshot = new Snapshot(snapshot.activeKid(), Map.copyOf(keys));
+            onRetire.run();
+        }
+    }
+
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        refresh();
+        String kid = header.getKeyId() == null ? defaultKid : header.getKeyId();
+        Key key = snapshot.keys().get(kid);
+        if (key == null) {
+            throw new UnsupportedJwtException("Unknown signing key " + kid);
+        }
+        return key;
+    }
+
+    /**
+     * Este metodo permite recargar el fichero de claves si ha cambiado. Como mucho se comprueba una vez
+     * cada refreshMillis milisegundos
+     */
+    private void refresh() {
+        if (keysFile == null || System.currentTimeMillis() < nextCheck) {
+            return;
+        }
+        synchronized (this) {
+            if (System.currentTimeMillis() < nextCheck) {
+                return;
+            }
+            nextCheck = System.currentTimeMillis() + refreshMillis;
+            try {
+                FileTime modified = Files.getLastModifiedTime(keysFile);
+                if (modified.equals(lastModified)) {
+                    return;
+                }
+                Properties properties = new Properties();
+                try (Reader reader = Files.newBufferedReader(keysFile, StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+                Map<String, Key> keys = new HashMap<>();
+                keys.put(defaultKid, defaultKey);
+                for (String name : properties.stringPropertyNames()) {
+                    if (name.startsWith("key.")) {
+                        keys.put(name.substring("key.".length()), toKey(properties.getProperty(name)));
+                    }
+                }
+                String active = properties.getProperty("active", defaultKid);
+                if (!keys.containsKey(active)) {
+                    log.warn("La clave activa {} no esta definida en {}", active, keysFile);
+                    return;
+                }
+                boolean retired = !keys.keySet().containsAll(snapshot.keys().keySet());
+                snapshot = new Snapshot(active, Map.copyOf(keys));
+                lastModified = modified;
+                log.info("Claves JWT recargadas de {}, clave activa {}", keysFile, active);
+                if (retired) {
+                    onRetire.run();
+                }
+            } catch (IOException ex) {
+                log.warn("No se ha podido leer el fichero de claves JWT {}", keysFile, ex);
+            }
+        }
+    }
+
+    private static Key toKey(String secret) {
+        return new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM.getJcaName());
+    }
+
+    private record Snapshot(String activeKid, Map<String, Key> keys) {
+    }
+}
@@ -0,0 +1,472 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.other.Status;
+import com.hotel.hotel.repository.ReservationRepository;
+import com.hotel.hotel.repository.projection.ReservationStay;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Calendario de ocupacion con un bit por habitacion y noche, guardado fuera del heap en un fichero mapeado
+ * en memoria. Cada habitacion ocupa una fila de longs y cada bit indica si la noche esta ocupada por una
+ * reserva no cancelada, por lo que la disponibilidad, la tasa de ocupacion y el numero de habitaciones libres
+ * se calculan con operaciones sobre palabras de 64 noches.
+ * <p>
+ * Las filas se asignan seguidas a las habitaciones segun se reservan, asi que el tamano del fichero depende
+ * del numero de habitaciones y no de sus ids. Cada fila empieza con el id de su habitacion para recuperar la
+ * asignacion al cargar el snapshot. Si no caben mas filas en el fichero el calendario deja de usarse y las
+ * consultas de disponibilidad van a AvailabilityIndex.
+ * <p>
+ * El fichero es a la vez el snapshot del calendario: al cerrar la aplicacion se marca como limpio junto con
+ * el id de la ultima reserva registrada y al arrancar solo se leen las reservas posteriores. Si el fichero
+ * no existe, no se cerro bien o no cubre los anos actuales se reconstruye a partir de la tabla de reservas
+ */
+@Component
+public class OccupancyCalendar {
+    private static final long MAGIC = 0x484F54454C43414CL;
+    private static final int FORMAT = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int FORMAT_OFFSET = 8;
+    private static final int ORIGIN_OFFSET = 16;
+    private static final int DAYS_OFFSET = 24;
+    private static final int SLOTS_OFFSET = 28;
+    private static final int CLEAN_OFFSET = 32;
+    private static final int WATERMARK_OFFSET = 40;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    /**
+     * Acceso a las palabras del fichero mapeado con semantica acquire/release, las lecturas no se bloquean
+     */
+    private static final VarHandle WORDS = MethodHandles.byteBufferViewVarHandle(long[].class, ORDER);
+
+    private final ReservationRepository repository;
+    private final Path file;
+    private final int years;
+    private final int initialRooms;
+
+    private FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    /**
+     * Fila de cada habitacion, las habitaciones sin fila no tienen ninguna noche ocupada
+     */
+    private final Map<Long, Integer> slots = new ConcurrentHashMap<>();
+    /**
+     * Numero de filas que caben en el fichero mapeado
+     */
+    private int capacity;
+    /**
+     * Numero maximo de filas para que todo el fichero se pueda mapear en un solo buffer
+     */
+    private int maxRows;
+    /**
+     * Indica que alguna habitacion no ha cabido en el fichero, el calendario ya no esta completo
+     */
+    private volatile boolean full;
+    /**
+     * Dia, en formato epoch day, de la primera noche del calendario
+     */
+    private volatile long origin;
+    /**
+     * Numero de noches del calendario, es multiplo de 64
+     */
+    private volatile int days;
+    /**
+     * Id de la ultima reserva registrada
+     */
+    private long watermark;
+    private volatile boolean ready;
+
+    private final Logger log = LoggerFactory.getLogger(OccupancyCalendar.class);
+
+    public OccupancyCalendar(ReservationRepository repository,
+                             @Value("${reservations.calendar.file:data/occupancy-calendar.bin}") String file,
+                             @Value("${reservations.calendar.years:4}") int years,
+                             @Value("${reservations.calendar.rooms:1024}") int initialRooms) {
+        this.repository = repository;
+        this.file = Path.of(file);
+        this.years = years;
+        this.initialRooms = initialRooms;
+    }
+
+    /**
+     * Este metodo permite abrir el calendario al arrancar la aplicacion. Si la base de datos no esta
+     * disponible se abrira con la primera consulta
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            ensureOpen();
+        } catch (RuntimeException ex) {
+            log.warn("No se ha podido abrir el calendario de ocupacion, se abrira bajo demanda", ex);
+        }
+    }
+
+    /**
+     * Este metodo permite marcar como ocupadas las noches de una reserva
+     *
+     * @param reservationId es el id de la reserva
+     * @param roomId        es el id de la habitacion
+     * @param entry         es la fecha de entrada
+     * @param exit          es la fecha de salida
+     */
+    public synchronized void reserve(Long reservationId, Long roomId, Date entry, Date exit) {
+        if (!ready) {
+            discardSnapshot();
+            return;
+        }
+        set(roomId, DateUtils.toEpochDay(entry), DateUtils.toEpochDay(exit), true);
+        watermark = Math.max(watermark, reservationId);
+    }
+
+    /**
+     * Este metodo permite liberar las noches de una reserva cancelada
+     *
+     * @param roomId es el id de la habitacion
+     * @param entry  es la fecha de entrada
+     * @param exit   es la fecha de salida
+     */
+    public synchronized void cancel(Long roomId, Date entry, Date exit) {
+        if (!ready) {
+            discardSnapshot();
+            return;
+        }
+        set(roomId, DateUtils.toEpochDay(entry), DateUtils.toEpochDay(exit), false);
+    }
+
+    /**
+     * Este metodo permite saber si el calendario puede comprobar la disponibilidad entre dos fechas. Para
+     * que el dia de salida de una reserva no pueda coincidir con el de entrada de otra se comprueban tambien
+     * la noche anterior a la entrada y la del dia de salida
+     *
+     * @param entry es la fecha de entrada
+     * @param exit  es la fecha de salida
+     * @return true si todas las noches a comprobar estan dentro del calendario
+     */
+    public boolean covers(Date entry, Date exit) {
+        try {
+            ensureOpen();
+        } catch (RuntimeException ex) {
+            log.debug("No se ha podido abrir el calendario de ocupacion", ex);
+            return false;
+        }
+        return covers(DateUtils.toEpochDay(entry) - 1, DateUtils.toEpochDay(exit) + 1);
+    }
+
+    /**
+     * Este metodo permite comprobar si una habitacion esta libre entre dos fechas, con el mismo criterio
+     * que AvailabilityIndex. Solo se puede usar si covers devuelve true para las mismas fechas
+     *
+     * @param roomId es el id de la habitacion
+     * @param entry  es la fecha de entrada
+     * @param exit   es la fecha de salida
+     * @return true si ninguna noche entre la anterior a la entrada y la de salida esta ocupada
+     */
+    public boolean isFree(Long roomId, Date entry, Date exit) {
+        long day = DateUtils.toEpochDay(entry) - 1;
+        return countOccupied(roomId, day, DateUtils.toEpochDay(exit) + 1) == 0;
+    }
+
+    /**
+     * Este metodo permite contar las habitaciones libres entre dos fechas
+     *
+     * @param roomIds son los ids de las habitaciones a comprobar
+     * @param entry   es la fecha de entrada
+     * @param exit    es la fecha de salida
+     * @return el numero de habitaciones libres
+     * @throws IllegalArgumentException si las fechas no estan dentro del calendario
+     */
+    public long countFree(Collection<Long> roomIds, Date entry, Date exit) {
+        if (!covers(entry, exit)) {
+            throw new IllegalArgumentException("error.calendario.rango");
+        }
+        long first = DateUtils.toEpochDay(entry) - 1;
+        long end = DateUtils.toEpochDay(exit) + 1;
+        return roomIds.stream().filter(roomId -> countOccupied(roomId, first, end) == 0).count();
+    }
+
+    /**
+     * Este metodo permite contar las noches ocupadas de varias habitaciones entre dos fechas
+     *
+     * @param roomIds son los ids de las habitaciones
+     * @param from    es la primera noche
+     * @param to      es el dia siguiente a la ultima noche
+     * @return la suma de las noches ocupadas de todas las habitaciones
+     * @throws IllegalArgumentException si las fechas no estan dentro del calendario
+     */
+    public long countOccupiedNights(Collection<Long> roomIds, Date from, Date to) {
+        ensureOpen();
+        long first = DateUtils.toEpochDay(from);
+        long end = DateUtils.toEpochDay(to);
+        if (!covers(first, end)) {
+            throw new IllegalArgumentException("error.calendario.rango");
+        }
+        long occupied = 0;
+        for (Long roomId : roomIds) {
+            occupied += countOccupied(roomId, first, end);
+        }
+        return occupied;
+    }
+
+    /**
+     * Este metodo permite guardar el calendario y marcarlo como limpio para poder cargarlo al arrancar
+     * sin leer todas las reservas
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (!ready) {
+            return;
+        }
+        ready = false;
+        try {
+            buffer.putLong(WATERMARK_OFFSET, watermark);
+            buffer.force();
+            //un calendario incompleto no sirve como snapshot
+            buffer.putInt(CLEAN_OFFSET, full ? 0 : 1);
+            buffer.force();
+            channel.close();
+        } catch (IOException ex) {
+            log.warn("No se ha podido cerrar el calendario de ocupacion", ex);
+        }
+    }
+
+    private void ensureOpen() {
+        if (!ready) {
+            try {
+                open();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    private synchronized void open() throws IOException {
+        if (ready) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        long expectedOrigin = LocalDate.of(today.getYear() - 1, 1, 1).toEpochDay();
+        int expectedDays = (years * 366 + 63) / 64 * 64;
+        ByteBuffer header = readHeader();
+        slots.clear();
+        full = false;
+        if (header != null && header.getLong(ORIGIN_OFFSET) == expectedOrigin && header.getInt(DAYS_OFFSET) == expectedDays) {
+            //las reservas se leen antes de abrir el fichero, si la base de datos no responde se deja como estaba
+            long mark = header.getLong(WATERMARK_OFFSET);
+            List<ReservationStay> stays = repository.findStaysByIdGreaterThanAndStatusNot(mark, Status.CANCELADA);
+            int used = header.getInt(SLOTS_OFFSET);
+            map(expectedOrigin, expectedDays, Math.max(initialRooms, used), false);
+            for (int slot = 0; slot < used; slot++) {
+                slots.put(buffer.getLong(rowOffset(slot)), slot);
+            }
+            watermark = mark;
+            stays.forEach(this::apply);
+            log.info("Calendario de ocupacion cargado del snapshot con {} reservas nuevas", stays.size());
+        } else {
+            List<ReservationStay> stays = repository.findStaysByStatusNot(Status.CANCELADA);
+            long rooms = stays.stream().map(ReservationStay::getRoomId).distinct().count();
+            map(expectedOrigin, expectedDays, (int) Math.max(initialRooms, rooms), true);
+            watermark = 0;
+            stays.forEach(this::apply);
+            log.info("Calendario de ocupacion reconstruido con {} reservas", stays.size());
+        }
+        //hasta que se cierre bien el fichero no se puede usar como snapshot
+        buffer.putInt(CLEAN_OFFSET, 0);
+        buffer.force();
+        ready = true;
+    }
+
+    /**
+     * Este metodo permite leer la cabecera del fichero
+     *
+     * @return la cabecera si el fichero existe, es de este formato y se cerro bien, null si no
+     */
+    private ByteBuffer readHeader() throws IOException {
+        if (!Files.exists(file) || Files.size(file) < HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+        try (FileChannel input = FileChannel.open(file, StandardOpenOption.READ)) {
+            input.read(header, 0);
+        }
+        boolean valid = header.getLong(MAGIC_OFFSET) == MAGIC && header.getInt(FORMAT_OFFSET) == FORMAT
+                && header.getInt(CLEAN_OFFSET) == 1
+                && Files.size(file) >= HEADER_BYTES + (long) header.getInt(SLOTS_OFFSET) * rowBytes(header.getInt(DAYS_OFFSET));
+        return valid ? header : null;
+    }
+
+    private void map(long origin, int days, int rows, boolean truncate) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        if (truncate) {
+            Files.deleteIfExists(file);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.origin = origin;
+        this.days = days;
+        this.maxRows = (int) ((Integer.MAX_VALUE - HEADER_BYTES) / rowBytes(days));
+        resize(Math.min(rows, maxRows));
+        if (truncate) {
+            buffer.putInt(SLOTS_OFFSET, 0);
+        }
+        buffer.putLong(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(FORMAT_OFFSET, FORMAT);
+        buffer.putLong(ORIGIN_OFFSET, origin);
+        buffer.putInt(DAYS_OFFSET, days);
+    }
+
+    /**
+     * Este metodo permite ampliar el fichero a un numero de filas. Las filas van seguidas, por lo que las
+     * existentes no se mueven y las nuevas empiezan vacias
+     */
+    private void resize(int rows) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) rows * rowBytes(days));
+        mapped.order(ORDER);
+        buffer = mapped;
+        this.capacity = rows;
+    }
+
+    /**
+     * Este metodo permite obtener la fila de una habitacion o asignarle la siguiente libre, ampliando el
+     * fichero si hace falta. Si la habitacion ya no cabe se marca el calendario como incompleto
+     *
+     * @param roomId es el id de la habitacion
+     * @return la fila de la habitacion o -1 si no cabe
+     */
+    private int slot(Long roomId) {
+        Integer slot = slots.get(roomId);
+        if (slot != null) {
+            return slot;
+        }
+        int used = slots.size();
+        if (used >= maxRows) {
+            if (!full) {
+                log.warn("El calendario de ocupacion no tiene sitio para mas habitaciones, se usara el indice de disponibilidad");
+            }
+            full = true;
+            return -1;
+        }
+        if (used >= capacity) {
+            try {
+                resize((int) Math.min(Math.max(capacity * 2L, used + 1L), maxRows));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        buffer.putLong(rowOffset(used), roomId);
+        buffer.putInt(SLOTS_OFFSET, used + 1);
+        //la fila se publica cuando ya tiene el id de la habitacion
+        slots.put(roomId, used);
+        return used;
+    }
+
+    /**
+     * Este metodo permite borrar el snapshot cuando se modifica una reserva sin el calendario abierto,
+     * para que se reconstruya desde la tabla de reservas al abrirlo
+     */
+    private void discardSnapshot() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("No se ha podido descartar el snapshot del calendario de ocupacion", ex);
+        }
+    }
+
+    private void apply(ReservationStay stay) {
+        set(stay.getRoomId(), DateUtils.toEpochDay(stay.getEntryDate()), DateUtils.toEpochDay(stay.getExitDate()), true);
+        watermark = Math.max(watermark, stay.getId());
+    }
+
+    private boolean covers(long first, long end) {
+        return !full && first < end && first >= origin && end <= origin + days;
+    }
+
+    /**
+     * Este metodo permite marcar o liberar las noches de una estancia, desde la de entrada hasta la anterior
+     * a la salida. Las noches fuera del calendario se ignoran
+     */
+    private void set(Long roomId, long entry, long exit, boolean occupied) {
+        int from = (int) Math.max(entry - origin, 0);
+        int to = (int) Math.min(exit - origin, days);
+        if (roomId == null || from >= to || (!occupied && !slots.containsKey(roomId))) {
+            return;
+        }
+        int slot = slot(roomId);
+        if (slot < 0) {
+            return;
+        }
+        for (int word = from >>> 6; word <= (to - 1) >>> 6; word++) {
+            int offset = offset(slot, word);
+            long value = (long) WORDS.getAcquire(buffer, offset);
+            long mask = mask(word, from, to);
+            WORDS.setRelease(buffer, offset, occupied ? value | mask : value & ~mask);
+        }
+    }
+
+    /**
+     * Este metodo permite contar las noches ocupadas de una habitacion entre dos dias
+     */
+    private long countOccupied(Long roomId, long first, long end) {
+        Integer slot = roomId == null ? null : slots.get(roomId);
+        if (slot == null) {
+            return 0;
+        }
+        int from = (int) (first - origin);
+        int to = (int) (end - origin);
+        MappedByteBuffer words = buffer;
+        long occupied = 0;
+        for (int word = from >>> 6; word <= (to - 1) >>> 6; word++) {
+            occupied += Long.bitCount((long) WORDS.getAcquire(words, offset(slot, word)) & mask(word, from, to));
+        }
+        return occupied;
+    }
+
+    /**
+     * Este metodo permite obtener la posicion de una fila, que empieza con el id de su habitacion. Las filas
+     * no pasan de maxRows, por lo que la posicion siempre cabe en un int
+     */
+    private int rowOffset(int slot) {
+        return Math.toIntExact(HEADER_BYTES + (long) slot * rowBytes(days));
+    }
+
+    private int offset(int slot, int word) {
+        return rowOffset(slot) + 8 + word * 8;
+    }
+
+    private static long rowBytes(int days) {
+        return 8 + days / 8;
+    }
+
+    /**
+     * Este metodo permite obtener la mascara con los bits de una palabra que estan entre dos noches
+     */
+    private static long mask(int word, int from, int to) {
+        int low = Math.max(from - (word << 6), 0);
+        int high = Math.min(to - (word << 6), 64);
+        long mask = -1L << low;
+        return high == 64 ? mask : mask & ((1L << high) - 1);
+    }
+}
@@ -0,0 +1,70 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.dto.KeysetPageDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Paginacion por clave de los listados. Cada pagina se pide con el ultimo id de la anterior (id > after
+ * LIMIT size), por lo que el coste de una pagina no depende de lo lejos que este del principio
+ */
+@Component
+public class Pagination {
+    /**
+     * Numero de elementos de una pagina cuando no se indica
+     */
+    private final int defaultSize;
+    /**
+     * Numero maximo de elementos de una pagina
+     */
+    private final int maxSize;
+
+    public Pagination(@Value("${pagination.default-size:50}") int defaultSize,
+                      @Value("${pagination.max-size:500}") int maxSize) {
+        this.defaultSize = defaultSize;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Este metodo permite obtener el limite de una consulta a partir del tamano de pagina pedido
+     *
+     * @param size es el tamano de pagina pedido, puede ser nulo
+     * @return el limite de la consulta
+     */
+    public Pageable limit(Integer size) {
+        int pageSize = size == null ? defaultSize : size;
+        if (pageSize < 1 || pageSize > maxSize) {
+            throw new IllegalArgumentException("error.paginacion.tamano");
+        }
+        return PageRequest.of(0, pageSize);
+    }
+
+    /**
+     * Este metodo permite obtener el id a partir del cual se busca
+     *
+     * @param after es el ultimo id de la pagina anterior, puede ser nulo
+     * @return el id a partir del cual se busca
+     */
+    public long after(Long after) {
+        return after == null ? 0L : after;
+    }
+
+    /**
+     * Este metodo permite construir una pagina a partir de las filas leidas
+     *
+     * @param rows      son las filas de la pagina ordenadas por id
+     * @param limit     es el limite con el que se hizo la consulta
+     * @param id        es la funcion que obtiene el id de una fila
+     * @param converter es la funcion que convierte una fila en dto
+     * @return la pagina con los dtos y el id para pedir la siguiente
+     */
+    public <E, D> KeysetPageDTO<D> page(List<E> rows, Pageable limit, Function<E, Long> id, Function<E, D> converter) {
+        Long next = rows.size() < limit.getPageSize() ? null : id.apply(rows.get(rows.size() - 1));
+        return new KeysetPageDTO<>(rows.stream().map(converter).toList(), next);
+    }
+}
@@ -0,0 +1,101 @@
+package com.hotel.hotel.components;
+
+import de.mkammerer.argon2.Argon2;
+import de.mkammerer.argon2.Argon2Factory;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Calcula y verifica los hash Argon2id de las contrasenas en el pool acotado argon2Executor, con tantos hilos
+ * como nucleos por defecto. Cuando la cola esta llena se rechaza la peticion con un 429 en lugar de ocupar
+ * los hilos de Tomcat, por lo que una rafaga de logins no bloquea el resto de la aplicacion
+ */
+@Component
+public class PasswordHasher {
+    /**
+     * Instancia de Argon2id, no guarda estado y se puede compartir entre hilos
+     */
+    private final Argon2 argon2 = Argon2Factory.create(Argon2Factory.Argon2Types.ARGON2id);
+    private final int iterations;
+    private final int memory;
+    private final int parallelism;
+    /**
+     * Pool en el que se calculan los hash
+     */
+    private final BoundedExecutor executor;
+    /**
+     * Metricas con el tiempo de calculo de los hash
+     */
+    private final HotelMetrics metrics;
+
+    /**
+     * @param iterations    es el numero de iteraciones de Argon2
+     * @param memory        es la memoria en KiB que usa Argon2
+     * @param parallelism   es el numero de carriles de Argon2
+     * @param executor      es el pool en el que se calculan los hash
+     * @param metrics       es el componente en el que se registra el tiempo de cada hash
+     */
+    public PasswordHasher(@Value("${security.argon2.iterations:1}") int iterations,
+                          @Value("${security.argon2.memory:1024}") int memory,
+                          @Value("${security.argon2.parallelism:1}") int parallelism,
+                          @Qualifier("argon2Executor") BoundedExecutor executor,
+                          HotelMetrics metrics) {
+        this.iterations = iterations;
+        this.memory = memory;
+        this.parallelism = parallelism;
+        this.executor = executor;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Este metodo permite calcular el hash de una contrasena con los parametros configurados
+     *
+     * @param password es la contrasena
+     * @return el hash codificado de la contrasena
+     */
+    public String hash(String password) {
+        char[] chars = password.toCharArray();
+        return executor.call(() -> {
+            Timer.Sample sample = Timer.start();
+            try {
+                return argon2.hash(iterations, memory, parallelism, chars);
+            } finally {
+                sample.stop(metrics.argon2Hash());
+                argon2.wipeArray(chars);
+            }
+        });
+    }
+
+    /**
+     * Este metodo permite comprobar si una contrasena corresponde con un hash
+     *
+     * @param hash     es el hash codificado guardado
+     * @param password es la contrasena que se quiere comprobar
+     * @return true si la contrasena es correcta
+     */
+    public boolean verify(String hash, String password) {
+        char[] chars = password.toCharArray();
+        return executor.call(() -> {
+            Timer.Sample sample = Timer.start();
+            try {
+                return argon2.verify(hash, chars);
+            } finally {
+                sample.stop(metrics.argon2Verify());
+                argon2.wipeArray(chars);
+            }
+        });
+    }
+
+    /**
+     * Este metodo permite saber si un hash se calculo con parametros distintos de los configurados y por
+     * tanto se deberia volver a calcular
+     *
+     * @param hash es el hash codificado guardado
+     * @return true si hay que volver a calcular el hash
+     */
+    public boolean needsRehash(String hash) {
+        return argon2.needsRehash(hash, iterations, memory, parallelism);
+    }
+}
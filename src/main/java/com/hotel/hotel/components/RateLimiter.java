@@ -0,0 +1,203 @@
+package com.hotel.hotel.components;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Limite de peticiones por cliente y ruta con cubos de tokens. Cada regla indica cuantas peticiones se
+ * permiten de golpe y en cuantos segundos se recuperan, y cada cliente tiene un cubo por regla. El cubo se
+ * guarda como un unico long con el instante en el que volveria a estar lleno (GCRA), por lo que consumir un
+ * token es una operacion compare-and-set sin bloqueos.
+ * <p>
+ * Los cubos estan en un mapa con un numero maximo de clientes. Un cubo lleno se comporta igual que uno que
+ * no existe, asi que los cubos que se han vuelto a llenar se eliminan como mucho una vez por segundo al
+ * llegar clientes nuevos. Si el mapa sigue lleno, los clientes nuevos comparten un cubo por regla hasta que
+ * haya sitio. Una peticion que coincide con la limpieza puede consumir un token de un cubo ya eliminado, lo
+ * que como mucho permite una peticion de mas
+ */
+@Component
+public class RateLimiter {
+    /**
+     * Tiempo minimo entre dos limpiezas del mapa de cubos
+     */
+    private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Reglas en el orden en el que se comprueban
+     */
+    private final List<Rule> rules;
+    /**
+     * Cubos por regla y cliente
+     */
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    /**
+     * Cubo de cada regla que comparten los clientes nuevos cuando el mapa esta lleno
+     */
+    private final Bucket[] overflow;
+    /**
+     * Numero maximo de clientes con cubo propio
+     */
+    private final int maxKeys;
+    /**
+     * Instante a partir del cual se puede volver a limpiar el mapa
+     */
+    private final AtomicLong nextSweep;
+    /**
+     * Reloj en nanosegundos
+     */
+    private final LongSupplier clock;
+    private final PathMatcher matcher = new AntPathMatcher();
+
+    /**
+     * @param enabled indica si se limitan las peticiones
+     * @param routes  son las reglas con el formato [METODO ]patron=peticiones/segundos
+     * @param maxKeys es el numero maximo de clientes con cubo propio
+     * @throws IllegalArgumentException si alguna regla no tiene el formato correcto
+     */
+    @Autowired
+    public RateLimiter(@Value("${ratelimit.enabled:true}") boolean enabled,
+                       @Value("${ratelimit.routes:}") List<String> routes,
+                       @Value("${ratelimit.max-keys:100000}") int maxKeys) {
+        this(enabled, routes, maxKeys, System::nanoTime);
+    }
+
+    RateLimiter(boolean enabled, List<String> routes, int maxKeys, LongSupplier clock) {
+        this.rules = new ArrayList<>();
+        if (enabled) {
+            for (String route : routes) {
+                if (!route.isBlank()) {
+                    rules.add(Rule.parse(rules.size(), route.trim()));
+                }
+            }
+        }
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+        long now = clock.getAsLong();
+        this.nextSweep = new AtomicLong(now);
+        this.overflow = new Bucket[rules.size()];
+        for (int i = 0; i < overflow.length; i++) {
+            overflow[i] = new Bucket(now);
+        }
+    }
+
+    /**
+     * Este metodo permite consumir un token del cubo de un cliente para una peticion
+     *
+     * @param method es el metodo HTTP de la peticion
+     * @param path   es la ruta de la peticion sin el contexto de la aplicacion
+     * @param client es el identificador del cliente
+     * @return 0 si se permite la peticion o los nanosegundos que tiene que esperar el cliente si no
+     */
+    public long tryAcquire(String method, String path, String client) {
+        Rule rule = match(method, path);
+        if (rule == null) {
+            return 0;
+        }
+        long now = clock.getAsLong();
+        String key = rule.index() + ":" + client;
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            sweep(now);
+            bucket = buckets.size() < maxKeys ? buckets.computeIfAbsent(key, k -> new Bucket(now)) : overflow[rule.index()];
+        }
+        return bucket.acquire(rule, now);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private Rule match(String method, String path) {
+        for (Rule rule : rules) {
+            if ((rule.method() == null || rule.method().equalsIgnoreCase(method)) && matcher.match(rule.pattern(), path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Este metodo permite eliminar los cubos que se han vuelto a llenar, como mucho una vez por intervalo
+     */
+    private void sweep(long now) {
+        long next = nextSweep.get();
+        if (now - next >= 0 && nextSweep.compareAndSet(next, now + SWEEP_INTERVAL)) {
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+    }
+
+    /**
+     * Regla de limite de una ruta
+     *
+     * @param index    es la posicion de la regla
+     * @param method   es el metodo HTTP, si es nulo se aplica a todos
+     * @param pattern  es el patron de la ruta
+     * @param interval es el tiempo en nanosegundos en el que se recupera un token
+     * @param burst    es el tiempo en nanosegundos que tarda en llenarse el cubo vacio
+     */
+    record Rule(int index, String method, String pattern, long interval, long burst) {
+        static Rule parse(int index, String route) {
+            int equals = route.lastIndexOf('=');
+            int slash = route.indexOf('/', equals);
+            if (equals <= 0 || slash < 0) {
+                throw new IllegalArgumentException("Regla de limite de peticiones incorrecta: " + route);
+            }
+            String target = route.substring(0, equals).trim();
+            int space = target.indexOf(' ');
+            String method = space < 0 ? null : target.substring(0, space);
+            String pattern = target.substring(space + 1).trim();
+            long capacity = Long.parseLong(route.substring(equals + 1, slash).trim());
+            long seconds = Long.parseLong(route.substring(slash + 1).trim());
+            if (capacity <= 0 || seconds <= 0) {
+                throw new IllegalArgumentException("Regla de limite de peticiones incorrecta: " + route);
+            }
+            long interval = TimeUnit.SECONDS.toNanos(seconds) / capacity;
+            return new Rule(index, method, pattern, interval, interval * capacity);
+        }
+    }
+
+    /**
+     * Cubo de tokens de un cliente guardado como el instante en el que volveria a estar lleno
+     */
+    private static final class Bucket {
+        private final AtomicLong fullAt;
+
+        private Bucket(long now) {
+            this.fullAt = new AtomicLong(now);
+        }
+
+        /**
+         * Este metodo permite consumir un token, cada token retrasa un intervalo el instante en el que el
+         * cubo vuelve a estar lleno y no se puede retrasar mas alla de lo que tarda en llenarse vacio
+         *
+         * @return 0 si habia token o los nanosegundos hasta que haya uno
+         */
+        long acquire(Rule rule, long now) {
+            while (true) {
+                long current = fullAt.get();
+                long next = (current - now > 0 ? current : now) + rule.interval();
+                long excess = next - now - rule.burst();
+                if (excess > 0) {
+                    return excess;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            return fullAt.get() - now <= 0;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.dto.RevenueReportDTO;
+import com.hotel.hotel.other.ReportPeriod;
+import com.hotel.hotel.other.Status;
+import com.hotel.hotel.repository.ReservationRepository;
+import com.hotel.hotel.repository.projection.ReservationFact;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Copia compacta en memoria de todas las reservas para calcular los informes de ingresos y ocupacion sin
+ * leer la tabla de reservas. Cada reserva ocupa una posicion en varios arrays de primitivos (id, habitacion,
+ * dias de entrada y salida, precio en centimos y estado) ordenados por id, unos 30 bytes por reserva.
+ * <p>
+ * Los informes recorren los arrays en bloques en paralelo con el pool comun de fork-join, cada bloque suma
+ * en sus propios acumuladores y al final se combinan, por lo que no hay contencion entre hilos. El precio de
+ * cada reserva se reparte entre sus noches y cada noche se asigna al periodo en el que cae
+ */
+@Component
+public class ReservationAnalytics {
+    /**
+     * Numero de reservas de cada bloque que suma un hilo
+     */
+    private static final int BLOCK = 1 << 16;
+
+    private final ReservationRepository repository;
+    /**
+     * Numero de reservas que se leen de la base de datos en cada consulta al cargar
+     */
+    private final int chunkSize;
+    /**
+     * Numero maximo de dias de un informe, cada bloque reserva sus acumuladores en funcion de los periodos
+     */
+    private final int maxDays;
+    /**
+     * Los informes leen con el bloqueo de lectura, las reservas nuevas o modificadas se escriben con el de escritura
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Facts facts = new Facts(1024);
+    /**
+     * Indica si se han cargado todas las reservas de la base de datos
+     */
+    private volatile boolean loaded;
+    /**
+     * Carga en curso o terminada. El primer hilo que la necesita la hace y el resto espera a su resultado, si
+     * falla la siguiente llamada la vuelve a intentar
+     */
+    private final AtomicReference<CompletableFuture<Void>> loading = new AtomicReference<>();
+
+    private final Logger log = LoggerFactory.getLogger(ReservationAnalytics.class);
+
+    /**
+     * @param repository es el repositorio de reservas
+     * @param chunkSize  es el numero de reservas que se leen en cada consulta al cargar
+     * @param maxDays    es el numero maximo de dias de un informe
+     */
+    public ReservationAnalytics(ReservationRepository repository,
+                                @Value("${reports.load.chunk-size:10000}") int chunkSize,
+                                @Value("${reports.max-days:1830}") int maxDays) {
+        this.repository = repository;
+        this.chunkSize = chunkSize;
+        this.maxDays = maxDays;
+    }
+
+    /**
+     * Este metodo permite cargar todas las reservas al arrancar la aplicacion. Si la base de datos no esta
+     * disponible se cargaran con el primer informe
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            ensureLoaded();
+        } catch (RuntimeException ex) {
+            log.warn("No se han podido cargar las reservas de los informes, se cargaran con el primer informe", ex);
+        }
+    }
+
+    /**
+     * Este metodo permite cargar todas las reservas una sola vez. Los informes que llegan mientras tanto
+     * esperan al resultado de esa carga en lugar de empezar otra, y los que llegan despues no esperan a nada
+     *
+     * @throws RuntimeException si no se han podido leer las reservas
+     */
+    private void ensureLoaded() {
+        CompletableFuture<Void> current = loading.get();
+        if (current == null || current.isCompletedExceptionally()) {
+            CompletableFuture<Void> attempt = new CompletableFuture<>();
+            if (loading.compareAndSet(current, attempt)) {
+                try {
+                    loadAll();
+                    attempt.complete(null);
+                } catch (RuntimeException ex) {
+                    attempt.completeExceptionally(ex);
+                    throw ex;
+                }
+                return;
+            }
+            current = loading.get();
+        }
+        try {
+            current.join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+        }
+    }
+
+    /**
+     * Este metodo permite leer todas las reservas por bloques ordenados por id para no cargar la tabla entera
+     * a la vez
+     */
+    private void loadAll() {
+        Facts snapshot = new Facts(chunkSize);
+        long last = 0;
+        List<ReservationFact> chunk;
+        do {
+            chunk = repository.findFactsByIdGreaterThan(last, PageRequest.of(0, chunkSize));
+            for (ReservationFact fact : chunk) {
+                snapshot.put(fact.getId(), fact.getRoomId(), fact.getEntryDate(), fact.getExitDate(),
+                        fact.getTotalPrice(), fact.getStatus());
+                last = fact.getId();
+            }
+        } while (chunk.size() == chunkSize);
+        lock.writeLock().lock();
+        try {
+            //las reservas registradas mientras tanto ya estan actualizadas
+            snapshot.putAll(facts);
+            facts = snapshot;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Informes de reservas cargados con {} reservas", snapshot.size);
+    }
+
+    /**
+     * Este metodo permite registrar una reserva nueva o un cambio de estado de una reserva existente
+     *
+     * @param id         es el id de la reserva
+     * @param roomId     es el id de la habitacion
+     * @param entry      es la fecha de entrada
+     * @param exit       es la fecha de salida
+     * @param totalPrice es el precio total de la reserva
+     * @param status     es el estado de la reserva
+     */
+    public void record(Long id, Long roomId, Date entry, Date exit, BigDecimal totalPrice, Status status) {
+        lock.writeLock().lock();
+        try {
+            facts.put(id, roomId, entry, exit, totalPrice, status);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Este metodo permite calcular los ingresos, la ocupacion y las cancelaciones de cada periodo entre dos
+     * fechas. Las noches disponibles se calculan con las habitaciones indicadas
+     *
+     * @param from      es la fecha de la primera noche
+     * @param to        es la fecha siguiente a la ultima noche
+     * @param period    es el periodo en el que se agrupan las noches
+     * @param roomTypes es el tipo de cada habitacion indexado por su id
+     * @param byType    indica si ademas se agrupa por tipo de habitacion
+     * @return una fila por periodo, o por periodo y tipo, ordenadas por fecha
+     * @throws IllegalArgumentException si el informe abarca mas dias que el maximo
+     */
+    public List<RevenueReportDTO> report(LocalDate from, LocalDate to, ReportPeriod period, Map<Long, String> roomTypes, boolean byType) {
+        long fromDay = from.toEpochDay();
+        if (to.toEpochDay() - fromDay > maxDays) {
+            throw new IllegalArgumentException("error.informes.rango");
+        }
+        if (!loaded) {
+            ensureLoaded();
+        }
+        int days = Math.toIntExact(to.toEpochDay() - fromDay);
+        List<LocalDate> starts = new ArrayList<>();
+        int[] bucketOfDay = new int[days];
+        for (int day = 0; day < days; day++) {
+            LocalDate date = from.plusDays(day);
+            if (day == 0 || period == ReportPeriod.DAY || date.getDayOfMonth() == 1) {
+                starts.add(date);
+            }
+            bucketOfDay[day] = starts.size() - 1;
+        }
+        List<String> types = byType ? roomTypes.values().stream().distinct().sorted().toList() : Collections.singletonList(null);
+        int[] groupOfRoom = new int[roomTypes.keySet().stream().mapToInt(Long::intValue).max().orElse(-1) + 1];
+        Arrays.fill(groupOfRoom, -1);
+        int[] roomsPerGroup = new int[types.size()];
+        roomTypes.forEach((roomId, type) -> {
+            int group = byType ? types.indexOf(type) : 0;
+            groupOfRoom[roomId.intValue()] = group;
+            roomsPerGroup[group]++;
+        });
+
+        Totals totals;
+        lock.readLock().lock();
+        try {
+            Facts current = facts;
+            int blocks = (current.size + BLOCK - 1) / BLOCK;
+            totals = IntStream.range(0, blocks).parallel()
+                    .mapToObj(block -> current.sum(block * BLOCK, Math.min(current.size, (block + 1) * BLOCK),
+                            fromDay, bucketOfDay, groupOfRoom, byType, starts.size(), types.size()))
+                    .reduce(Totals::merge)
+                    .orElseGet(() -> new Totals(starts.size() * types.size()));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<RevenueReportDTO> rows = new ArrayList<>(starts.size() * types.size());
+        for (int bucket = 0; bucket < starts.size(); bucket++) {
+            LocalDate start = starts.get(bucket);
+            LocalDate end = bucket + 1 < starts.size() ? starts.get(bucket + 1) : to;
+            long bucketDays = ChronoUnit.DAYS.between(start, end);
+            for (int group = 0; group < types.size(); group++) {
+                int i = bucket * types.size() + group;
+                long available = roomsPerGroup[group] * bucketDays;
+                long sold = totals.sold[i];
+                BigDecimal revenue = BigDecimal.valueOf(totals.revenue[i], 2);
+                rows.add(new RevenueReportDTO(Date.from(start.atStartOfDay(ZoneId.systemDefault()).toInstant()),
+                        types.get(group), roomsPerGroup[group], available, sold, revenue,
+                        ratio(totals.revenue[i], sold * 100), ratio(totals.revenue[i], available * 100),
+                        ratio(sold, available), totals.arrivals[i], totals.cancellations[i],
+                        ratio(totals.cancellations[i], totals.arrivals[i])));
+            }
+        }
+        return rows;
+    }
+
+    private static double ratio(long numerator, long denominator) {
+        return denominator == 0 ? 0 : (double) numerator / denominator;
+    }
+
+    /**
+     * Reservas en arrays de primitivos ordenados por id
+     */
+    private static final class Facts {
+        private static final byte CANCELLED = (byte) Status.CANCELADA.ordinal();
+
+        private long[] ids;
+        private int[] rooms;
+        private int[] entries;
+        private int[] exits;
+        private long[] prices;
+        private byte[] statuses;
+        private int size;
+
+        Facts(int capacity) {
+            ids = new long[Math.max(16, capacity)];
+            rooms = new int[ids.length];
+            entries = new int[ids.length];
+            exits = new int[ids.length];
+            prices = new long[ids.length];
+            statuses = new byte[ids.length];
+        }
+
+        void put(long id, Long roomId, Date entry, Date exit, BigDecimal totalPrice, Status status) {
+            put(id, roomId.intValue(), (int) DateUtils.toEpochDay(entry), (int) DateUtils.toEpochDay(exit),
+                    totalPrice == null ? 0 : totalPrice.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact(),
+                    (byte) status.ordinal());
+        }
+
+        void putAll(Facts other) {
+            for (int i = 0; i < other.size; i++) {
+                put(other.ids[i], other.rooms[i], other.entries[i], other.exits[i], other.prices[i], other.statuses[i]);
+            }
+        }
+
+        /**
+         * Las reservas llegan casi siempre en orden de id, por lo que se anaden al final. Si llega una con un id
+         * menor que el ultimo se busca su posicion y, si es nueva, se desplazan las posteriores
+         */
+        private void put(long id, int room, int entry, int exit, long price, byte status) {
+            int slot = size > 0 && ids[size - 1] < id ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+            if (slot < 0) {
+                slot = -(slot + 1);
+                if (size == ids.length) {
+                    grow();
+                }
+                int tail = size - slot;
+                System.arraycopy(ids, slot, ids, slot + 1, tail);
+                System.arraycopy(rooms, slot, rooms, slot + 1, tail);
+                System.arraycopy(entries, slot, entries, slot + 1, tail);
+                System.arraycopy(exits, slot, exits, slot + 1, tail);
+                System.arraycopy(prices, slot, prices, slot + 1, tail);
+                System.arraycopy(statuses, slot, statuses, slot + 1, tail);
+                size++;
+            }
+            ids[slot] = id;
+            rooms[slot] = room;
+            entries[slot] = entry;
+            exits[slot] = exit;
+            prices[slot] = price;
+            statuses[slot] = status;
+        }
+
+        private void grow() {
+            int capacity = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            rooms = Arrays.copyOf(rooms, capacity);
+            entries = Arrays.copyOf(entries, capacity);
+            exits = Arrays.copyOf(exits, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+        }
+
+        /**
+         * Este metodo permite sumar las reservas de un bloque
+         *
+         * @param start       es la primera posicion del bloque
+         * @param end         es la posicion siguiente a la ultima del bloque
+         * @param fromDay     es el dia de la primera noche del informe
+         * @param bucketOfDay es el periodo de cada noche del informe
+         * @param groupOfRoom es el grupo de cada habitacion por su id, -1 si no existe
+         * @param byType      indica si se agrupa por tipo, si no todas las reservas van al grupo 0
+         * @param buckets     es el numero de periodos
+         * @param groups      es el numero de grupos
+         * @return los acumuladores del bloque
+         */
+        Totals sum(int start, int end, long fromDay, int[] bucketOfDay, int[] groupOfRoom, boolean byType, int buckets, int groups) {
+            Totals totals = new Totals(buckets * groups);
+            long toDay = fromDay + bucketOfDay.length;
+            for (int i = start; i < end; i++) {
+                int group = 0;
+                if (byType) {
+                    group = rooms[i] < groupOfRoom.length ? groupOfRoom[rooms[i]] : -1;
+                    if (group < 0) {
+                        continue;
+                    }
+                }
+                long entry = entries[i];
+                long exit = exits[i];
+                if (entry >= fromDay && entry < toDay) {
+                    int cell = bucketOfDay[(int) (entry - fromDay)] * groups + group;
+                    totals.arrivals[cell]++;
+                    if (statuses[i] == CANCELLED) {
+                        totals.cancellations[cell]++;
+                    }
+                }
+                long nights = exit - entry;
+                if (statuses[i] == CANCELLED || nights <= 0 || exit <= fromDay || entry >= toDay) {
+                    continue;
+                }
+                long price = prices[i];
+                for (long day = Math.max(entry, fromDay), last = Math.min(exit, toDay); day < last; day++) {
+                    long night = day - entry;
+                    int cell = bucketOfDay[(int) (day - fromDay)] * groups + group;
+                    totals.sold[cell]++;
+                    //reparto exacto en centimos, las noches suman siempre el precio total
+                    totals.revenue[cell] += price * (night + 1) / nights - price * night / nights;
+                }
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * Acumuladores de un informe con una celda por periodo y grupo
+     */
+    private static final class Totals {
+        private final long[] sold;
+        private final long[] revenue;
+        private final long[] arrivals;
+        private final long[] cancellations;
+
+        Totals(int cells) {
+            sold = new long[cells];
+            revenue = new long[cells];
+            arrivals = new long[cells];
+            cancellations = new long[cells];
+        }
+
+        Totals merge(Totals other) {
+            for (int i = 0; i < sold.length; i++) {
+                sold[i] += other.sold[i];
+                revenue[i] += other.revenue[i];
+                arrivals[i] += other.arrivals[i];
+                cancellations[i] += other.cancellations[i];
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.dto.ChangeFeedDTO;
+import com.hotel.hotel.dto.ReservationChangeDTO;
+import com.hotel.hotel.entity.Reservation;
+import com.hotel.hotel.entity.ReservationChange;
+import com.hotel.hotel.other.ChangeType;
+import com.hotel.hotel.other.Status;
+import com.hotel.hotel.repository.ReservationChangeRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Registro local de los cambios de estado de las reservas (reserva, confirmacion y cancelacion) para que
+ * las integraciones lean solo lo que ha cambiado en lugar de consultar los listados de reservas. Cada cambio
+ * recibe un offset que crece de uno en uno y se escribe al final del registro como un registro de tamano
+ * fijo, por lo que la posicion de un offset se calcula sin indices y leer un lote es una lectura secuencial.
+ * <p>
+ * El registro se divide en segmentos, ficheros mapeados en memoria cuyo nombre es el offset de su primer
+ * cambio. Solo escribe un hilo a la vez y los lectores no se bloquean: cada cambio se escribe completo antes
+ * de publicar el nuevo final del registro. Cada registro lleva un CRC, asi que al arrancar se descartan los
+ * que se escribieron a medias.
+ * <p>
+ * Los cambios se guardan primero en la tabla reservation_change, en la misma transaccion que la reserva, y
+ * despues de confirmarla se pasan al registro y se borran de la tabla. Si no se pueden escribir se quedan en
+ * la tabla, se cuenta el fallo en las metricas y se vuelve a intentar con el siguiente cambio, la siguiente
+ * lectura o al arrancar, por lo que el registro nunca pierde un cambio confirmado. Cada registro guarda el
+ * id de su fila, y los ultimos escritos se recuerdan para no repetirlos si la aplicacion se cae entre la
+ * escritura y el borrado
+ */
+@Component
+public class ReservationChangeLog {
+    private static final int RECORD_BYTES = 64;
+    private static final int CHANGE = 0;
+    private static final int TIME = 8;
+    private static final int RESERVATION = 16;
+    private static final int ROOM = 24;
+    private static final int USER = 32;
+    private static final int ENTRY = 40;
+    private static final int EXIT = 44;
+    private static final int PRICE = 48;
+    private static final int TYPE = 56;
+    private static final int STATUS = 57;
+    private static final int CRC = 60;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final String SUFFIX = ".log";
+    private static final ChangeType[] TYPES = ChangeType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private final Path directory;
+    /**
+     * Numero de cambios de cada segmento
+     */
+    private final int segmentRecords;
+    /**
+     * Numero maximo de cambios que se devuelven en cada lectura y que se pasan de la tabla al registro de una vez
+     */
+    private final int maxBatch;
+    private final ReservationChangeRepository repository;
+    private final HotelMetrics metrics;
+    /**
+     * Segmentos ordenados por offset, solo se anaden al final
+     */
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    /**
+     * Ids y momentos de los cambios escritos en el registro que pueden seguir en la tabla
+     */
+    private final Map<Long, Long> written = new HashMap<>();
+    /**
+     * Offset que tendra el siguiente cambio, los anteriores ya se pueden leer
+     */
+    private volatile long end;
+    private volatile boolean ready;
+    /**
+     * Indica si quedan cambios en la tabla que no se han podido pasar al registro
+     */
+    private volatile boolean pending;
+
+    private final Logger log = LoggerFactory.getLogger(ReservationChangeLog.class);
+
+    /**
+     * @param directory    es el directorio de los segmentos
+     * @param segmentBytes es el tamano de cada segmento
+     * @param maxBatch     es el numero maximo de cambios que se devuelven en cada lectura
+     * @param repository   es el repositorio de los cambios pendientes de pasar al registro
+     * @param metrics      son las metricas en las que se cuentan los fallos al escribir en el registro
+     */
+    public ReservationChangeLog(@Value("${reservations.changes.dir:data/reservation-changes}") String directory,
+                                @Value("${reservations.changes.segment-bytes:67108864}") long segmentBytes,
+                                @Value("${reservations.changes.max-batch:1000}") int maxBatch,
+                                ReservationChangeRepository repository, HotelMetrics metrics) {
+        this.directory = Path.of(directory);
+        this.segmentRecords = (int) Math.max(1, Math.min(segmentBytes, Integer.MAX_VALUE) / RECORD_BYTES);
+        this.maxBatch = maxBatch;
+        this.repository = repository;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Este metodo permite abrir el registro al arrancar la aplicacion y pasarle los cambios que se quedaron
+     * en la tabla antes de parar
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        publish();
+    }
+
+    /**
+     * Este metodo permite guardar el cambio de estado de una reserva para pasarlo al registro. Se tiene que
+     * llamar dentro de la transaccion que guarda la reserva
+     *
+     * @param type        es el tipo de cambio
+     * @param reservation es la reserva guardada
+     */
+    public void stage(ChangeType type, Reservation reservation) {
+        repository.save(new ReservationChange(type, new Date(), reservation));
+    }
+
+    /**
+     * Este metodo permite guardar el mismo cambio de varias reservas en lotes JDBC. Se tiene que llamar dentro
+     * de la transaccion que guarda las reservas
+     *
+     * @param type         es el tipo de cambio
+     * @param reservations son las reservas guardadas
+     */
+    public void stageAll(ChangeType type, Collection<Reservation> reservations) {
+        Date time = new Date();
+        repository.insertAll(reservations.stream().map(reservation -> new ReservationChange(type, time, reservation)).toList());
+    }
+
+    /**
+     * Este metodo permite pasar al registro los cambios guardados en la tabla, en el orden de sus ids, y
+     * borrarlos de la tabla una vez escritos en disco. Si falla los cambios se quedan en la tabla para el
+     * siguiente intento
+     */
+    public synchronized void publish() {
+        try {
+            ensureOpen();
+            List<ReservationChange> batch;
+            do {
+                batch = repository.findByOrderByIdAsc(PageRequest.of(0, maxBatch));
+                append(batch.stream().filter(change -> !isWritten(change)).toList());
+                repository.deleteAllByIdInBatch(batch.stream().map(ReservationChange::getId).toList());
+                batch.forEach(change -> written.remove(change.getId()));
+            } while (batch.size() == maxBatch);
+            //la tabla ya no tiene ningun cambio escrito, los nuevos tendran otros ids
+            written.clear();
+            pending = false;
+        } catch (IOException | RuntimeException ex) {
+            pending = true;
+            metrics.changeLogFailure();
+            log.error("No se han podido pasar los cambios de las reservas al registro, se quedan en la tabla para el siguiente intento", ex);
+        }
+    }
+
+    /**
+     * Este metodo permite leer un lote de cambios a partir de un offset. Si el offset es anterior al primer
+     * cambio del registro se empieza por el primero. Si quedan cambios sin pasar al registro se intenta antes
+     *
+     * @param from  es el offset del primer cambio que se quiere leer
+     * @param limit es el numero maximo de cambios, si es nulo o mayor que el maximo se usa el maximo
+     * @return el lote con los cambios, el offset con el que se pide el siguiente y el final del registro
+     * @throws IllegalArgumentException si el offset es negativo o posterior al final del registro
+     */
+    public ChangeFeedDTO read(long from, Integer limit) {
+        if (pending) {
+            publish();
+        }
+        ensureOpen();
+        long last = end;
+        if (from < 0 || from > last) {
+            throw new IllegalArgumentException("error.cambios.offset");
+        }
+        int size = limit == null || limit <= 0 ? maxBatch : Math.min(limit, maxBatch);
+        long start = Math.max(from, segments.get(0).base());
+        long stop = Math.min(last, start + size);
+        List<ReservationChangeDTO> changes = new ArrayList<>((int) Math.max(stop - start, 0));
+        int index = find(start);
+        for (long offset = start; offset < stop; offset++) {
+            Segment segment = segments.get(index);
+            if (offset == segment.base() + segment.capacity()) {
+                segment = segments.get(++index);
+            }
+            changes.add(decode(segment, offset));
+        }
+        return new ChangeFeedDTO(changes, Math.max(start, stop), last);
+    }
+
+    /**
+     * Este metodo permite escribir cambios al final del registro y guardarlos en disco. Los cambios escritos
+     * completos se publican aunque falle uno posterior
+     *
+     * @param changes son los cambios en el orden en el que se escriben
+     */
+    private void append(List<ReservationChange> changes) throws IOException {
+        if (changes.isEmpty()) {
+            return;
+        }
+        long next = end;
+        try {
+            Segment segment = segments.get(segments.size() - 1);
+            for (ReservationChange change : changes) {
+                if (next == segment.base() + segment.capacity()) {
+                    segment.buffer().force();
+                    segment = create(next);
+                    segments.add(segment);
+                }
+                write(segment, next, change);
+                written.put(change.getId(), change.getChangeDate().getTime());
+                next++;
+            }
+            segment.buffer().force();
+        } finally {
+            end = next;
+        }
+    }
+
+    /**
+     * Este metodo permite saber si un cambio de la tabla ya esta en el registro. Se compara tambien el
+     * momento del cambio por si la base de datos vuelve a usar un id
+     */
+    private boolean isWritten(ReservationChange change) {
+        Long time = written.get(change.getId());
+        return time != null && time == change.getChangeDate().getTime();
+    }
+
+    /**
+     * Este metodo permite guardar en disco los segmentos al cerrar la aplicacion
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (!ready) {
+            return;
+        }
+        ready = false;
+        segments.get(segments.size() - 1).buffer().force();
+    }
+
+    private void ensureOpen() {
+        if (!ready) {
+            try {
+                open();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    /**
+     * Este metodo permite abrir los segmentos existentes y buscar el final del registro en el ultimo. A partir
+     * del primer registro que no es valido se borra el resto del segmento, para que un registro escrito antes
+     * de una caida no reaparezca detras de los nuevos. Los ultimos cambios se recuerdan porque pueden no
+     * haberse borrado de la tabla
+     */
+    private synchronized void open() throws IOException {
+        if (ready) {
+            return;
+        }
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            //los nombres tienen siempre 20 cifras, el orden alfabetico es el de los offsets
+            files = list.filter(path -> path.getFileName().toString().matches("\\d{20}\\" + SUFFIX)).sorted().toList();
+        }
+        segments.clear();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int capacity = (int) Math.min(Files.size(file) / RECORD_BYTES, Integer.MAX_VALUE / RECORD_BYTES);
+            if (capacity > 0) {
+                segments.add(new Segment(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), capacity, map(file, capacity)));
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.add(create(0));
+        }
+        Segment last = segments.get(segments.size() - 1);
+        int count = 0;
+        while (count < last.capacity() && isValid(last, count)) {
+            count++;
+        }
+        for (int record = count; record < last.capacity(); record++) {
+            clear(last, record);
+        }
+        end = last.base() + count;
+        written.clear();
+        for (long offset = Math.max(segments.get(0).base(), end - maxBatch); offset < end; offset++) {
+            Segment segment = segments.get(find(offset));
+            int position = (int) (offset - segment.base()) * RECORD_BYTES;
+            written.put(segment.buffer().getLong(position + CHANGE), segment.buffer().getLong(position + TIME));
+        }
+        ready = true;
+        log.info("Registro de cambios de las reservas abierto con {} segmentos, siguiente offset {}", segments.size(), end);
+    }
+
+    private Segment create(long base) throws IOException {
+        Path file = directory.resolve(String.format("%020d", base) + SUFFIX);
+        return new Segment(base, segmentRecords, map(file, segmentRecords));
+    }
+
+    /**
+     * Este metodo permite mapear un segmento, el mapeo sigue siendo valido despues de cerrar el canal
+     */
+    private static MappedByteBuffer map(Path file, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_BYTES);
+            buffer.order(ORDER);
+            return buffer;
+        }
+    }
+
+    /**
+     * Este metodo permite obtener la posicion en la lista del segmento que contiene un offset
+     */
+    private int find(long offset) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (segments.get(middle).base() <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private static void write(Segment segment, long offset, ReservationChange change) {
+        MappedByteBuffer buffer = segment.buffer();
+        int position = (int) (offset - segment.base()) * RECORD_BYTES;
+        buffer.putLong(position + CHANGE, change.getId());
+        buffer.putLong(position + TIME, change.getChangeDate().getTime());
+        buffer.putLong(position + RESERVATION, change.getReservationId());
+        buffer.putLong(position + ROOM, change.getRoomId());
+        buffer.putLong(position + USER, change.getUserId() == null ? 0 : change.getUserId());
+        buffer.putInt(position + ENTRY, (int) DateUtils.toEpochDay(change.getEntryDate()));
+        buffer.putInt(position + EXIT, (int) DateUtils.toEpochDay(change.getExitDate()));
+        BigDecimal price = change.getTotalPrice() == null ? BigDecimal.ZERO : change.getTotalPrice();
+        buffer.putLong(position + PRICE, price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+        buffer.put(position + TYPE, (byte) change.getType().ordinal());
+        buffer.put(position + STATUS, (byte) change.getStatus().ordinal());
+        buffer.putInt(position + CRC, crc(buffer, position));
+    }
+
+    private static ReservationChangeDTO decode(Segment segment, long offset) {
+        MappedByteBuffer buffer = segment.buffer();
+        int position = (int) (offset - segment.base()) * RECORD_BYTES;
+        return new ReservationChangeDTO(offset,
+                new Date(buffer.getLong(position + TIME)),
+                TYPES[buffer.get(position + TYPE)],
+                buffer.getLong(position + RESERVATION),
+                buffer.getLong(position + ROOM),
+                buffer.getLong(position + USER),
+                date(buffer.getInt(position + ENTRY)),
+                date(buffer.getInt(position + EXIT)),
+                BigDecimal.valueOf(buffer.getLong(position + PRICE), 2),
+                STATUSES[buffer.get(position + STATUS)]);
+    }
+
+    private static boolean isValid(Segment segment, int record) {
+        int position = record * RECORD_BYTES;
+        //los ids de la tabla empiezan en 1, un registro vacio no es valido
+        return segment.buffer().getLong(position + CHANGE) != 0
+                && segment.buffer().getInt(position + CRC) == crc(segment.buffer(), position);
+    }
+
+    private static void clear(Segment segment, int record) {
+        int position = record * RECORD_BYTES;
+        if (segment.buffer().getLong(position + CHANGE) != 0 || segment.buffer().getInt(position + CRC) != 0) {
+            for (int i = 0; i < RECORD_BYTES; i += 8) {
+                segment.buffer().putLong(position + i, 0);
+            }
+        }
+    }
+
+    private static int crc(MappedByteBuffer buffer, int position) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position, CRC));
+        return (int) crc.getValue();
+    }
+
+    private static Date date(int epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * Segmento del registro
+     *
+     * @param base     es el offset del primer cambio del segmento
+     * @param capacity es el numero de cambios que caben en el segmento
+     * @param buffer   es el fichero mapeado en memoria
+     */
+    private record Segment(long base, int capacity, MappedByteBuffer buffer) {
+    }
+}
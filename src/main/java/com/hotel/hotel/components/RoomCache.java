@@ -0,0 +1,91 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.dto.CacheStatsDTO;
+import com.hotel.hotel.entity.Room;
+import com.hotel.hotel.repository.RoomRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache de lectura de las habitaciones por id. Las habitaciones cambian muy poco, por lo que se guardan en
+ * memoria hasta que caducan o se modifican. Devuelve copias para que los cambios que haga quien las pide no
+ * afecten a la cache
+ */
+@Component
+public class RoomCache {
+    private final RoomRepository repository;
+    private final BoundedCache<Long, Room> cache;
+    /**
+     * Numero de invalidaciones hechas, sirve para no guardar una habitacion leida antes de una modificacion
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public RoomCache(RoomRepository repository,
+                     @Value("${rooms.cache.size:10000}") int size,
+                     @Value("${rooms.cache.ttl-millis:600000}") long ttlMillis) {
+        this.repository = repository;
+        this.cache = new BoundedCache<>(size, ttlMillis);
+    }
+
+    /**
+     * Este metodo permite obtener una habitacion por su id, leyendola de la base de datos si no esta en cache
+     *
+     * @param id es el id de la habitacion
+     * @return una copia de la habitacion o vacio si no existe
+     */
+    public Optional<Room> findById(Long id) {
+        Room room = cache.get(id);
+        if (room == null) {
+            long before = generation.get();
+            room = repository.findById(id).orElse(null);
+            if (room == null) {
+                return Optional.empty();
+            }
+            room = copy(room);
+            if (generation.get() == before) {
+                cache.put(id, room);
+            }
+        }
+        return Optional.of(copy(room));
+    }
+
+    /**
+     * Este metodo permite descartar una habitacion de la cache tras modificarla
+     *
+     * @param id es el id de la habitacion
+     */
+    public void invalidate(Long id) {
+        generation.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    /**
+     * Este metodo permite obtener las estadisticas de uso de la cache
+     *
+     * @return un dto con el tamano, aciertos, fallos y desalojos de la cache
+     */
+    public CacheStatsDTO getStats() {
+        return new CacheStatsDTO(cache.size(), cache.getHits(), cache.getMisses(), cache.getEvictions());
+    }
+
+    /**
+     * Este metodo permite copiar una habitacion para no compartir la instancia guardada en memoria
+     *
+     * @param room es la habitacion a copiar
+     * @return una nueva instancia con los mismos datos
+     */
+    static Room copy(Room room) {
+        Room copy = new Room();
+        copy.setId(room.getId());
+        copy.setType(room.getType());
+        copy.setCapacity(room.getCapacity());
+        copy.setPrice(room.getPrice());
+        copy.setDescripcion(room.getDescripcion());
+        copy.setImage(room.getImage());
+        copy.setImageHash(room.getImageHash());
+        return copy;
+    }
+}
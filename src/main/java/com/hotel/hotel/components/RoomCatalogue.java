@@ -0,0 +1,270 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.entity.Room;
+import com.hotel.hotel.repository.RoomRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Catalogo en memoria de las habitaciones indexado por tipo, capacidad y precio. Cada habitacion ocupa una
+ * posicion fija y cada indice guarda las posiciones que cumplen un valor, por lo que los filtros combinados
+ * se resuelven intersecando bitsets sin consultar la base de datos. Las lecturas usan una foto inmutable
+ * del catalogo y las modificaciones crean una nueva foto copiando solo las estructuras que cambian
+ */
+@Component
+@RequiredArgsConstructor
+public class RoomCatalogue {
+    /**
+     * Instancia del repositorio de habitaciones
+     */
+    private final RoomRepository repository;
+    /**
+     * Foto actual del catalogo, es nula hasta que se carga
+     */
+    private volatile Snapshot snapshot;
+
+    private final Logger log = LoggerFactory.getLogger(RoomCatalogue.class);
+
+    /**
+     * Este metodo permite cargar el catalogo con todas las habitaciones al arrancar la aplicacion.
+     * Si la base de datos no esta disponible se cargara con la primera busqueda
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            log.info("Catalogo de habitaciones cargado con {} habitaciones", snapshot().rooms.length);
+        } catch (RuntimeException ex) {
+            log.warn("No se ha podido cargar el catalogo de habitaciones, se cargara bajo demanda", ex);
+        }
+    }
+
+    /**
+     * Este metodo permite obtener las habitaciones que cumplen todos los filtros indicados. Los filtros
+     * nulos no se aplican
+     *
+     * @param types       son los tipos de habitacion admitidos, si es nula o vacia se admiten todos
+     * @param minCapacity es la capacidad minima
+     * @param maxCapacity es la capacidad maxima
+     * @param minPrice    es el precio minimo
+     * @param maxPrice    es el precio maximo
+     * @return una copia de las habitaciones que cumplen los filtros ordenadas por id
+     */
+    public List<Room> search(Collection<String> types, Integer minCapacity, Integer maxCapacity, Long minPrice, Long maxPrice) {
+        Snapshot current = snapshot();
+        BitSet result = new BitSet(current.rooms.length);
+        result.set(0, current.rooms.length);
+        if (minPrice != null || maxPrice != null) {
+            result.and(current.priceBetween(minPrice == null ? Long.MIN_VALUE : minPrice,
+                    maxPrice == null ? Long.MAX_VALUE : maxPrice));
+        }
+        if (types != null && !types.isEmpty()) {
+            result.and(union(types.stream().map(type -> current.byType.get(key(type))).toList()));
+        }
+        if (minCapacity != null || maxCapacity != null) {
+            int from = minCapacity == null ? Integer.MIN_VALUE : minCapacity;
+            int to = maxCapacity == null ? Integer.MAX_VALUE : maxCapacity;
+            result.and(from > to ? new BitSet() : union(current.byCapacity.subMap(from, true, to, true).values()));
+        }
+        List<Room> rooms = new ArrayList<>(result.cardinality());
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            rooms.add(RoomCache.copy(current.rooms[i]));
+        }
+        return rooms;
+    }
+
+    /**
+     * Este metodo permite registrar una habitacion nueva o modificada en el catalogo. Si el catalogo aun no
+     * se ha cargado no hace nada, ya que la habitacion se leera de la base de datos al cargarlo
+     *
+     * @param room es la habitacion tal y como se ha guardado en la base de datos
+     */
+    public synchronized void put(Room room) {
+        Snapshot current = snapshot;
+        if (current != null) {
+            snapshot = current.with(RoomCache.copy(room));
+        }
+    }
+
+    /**
+     * Este metodo permite obtener la foto actual del catalogo, cargandola si es necesario
+     *
+     * @return la foto actual del catalogo
+     */
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : loadSnapshot();
+    }
+
+    private synchronized Snapshot loadSnapshot() {
+        if (snapshot == null) {
+            snapshot = Snapshot.of(repository.findAll());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Este metodo permite obtener la clave de un tipo en el indice. Igual que la comparacion de la base de
+     * datos, no distingue mayusculas de minusculas
+     */
+    private static String key(String type) {
+        return type.toLowerCase(Locale.ROOT);
+    }
+
+    private static BitSet union(Collection<BitSet> sets) {
+        BitSet union = new BitSet();
+        for (BitSet set : sets) {
+            if (set != null) {
+                union.or(set);
+            }
+        }
+        return union;
+    }
+
+    /**
+     * Foto inmutable del catalogo
+     *
+     * @param rooms      son las habitaciones indexadas por su posicion
+     * @param positions  es la posicion de cada habitacion indexada por su id
+     * @param prices     son los precios de las habitaciones ordenados de menor a mayor
+     * @param byPrice    es la posicion de la habitacion de cada precio de prices
+     * @param byCapacity son las posiciones de las habitaciones de cada capacidad
+     * @param byType     son las posiciones de las habitaciones de cada tipo, en minusculas
+     */
+    private record Snapshot(Room[] rooms, Map<Long, Integer> positions, long[] prices, int[] byPrice,
+                            TreeMap<Integer, BitSet> byCapacity, Map<String, BitSet> byType) {
+
+        /**
+         * Este metodo permite construir la foto con todas las habitaciones, ocupando las posiciones en orden de id
+         */
+        static Snapshot of(List<Room> all) {
+            Room[] rooms = all.stream().map(RoomCache::copy).sorted(Comparator.comparing(Room::getId)).toArray(Room[]::new);
+            Map<Long, Integer> positions = new HashMap<>();
+            TreeMap<Integer, BitSet> byCapacity = new TreeMap<>();
+            Map<String, BitSet> byType = new HashMap<>();
+            for (int i = 0; i < rooms.length; i++) {
+                positions.put(rooms[i].getId(), i);
+                byCapacity.computeIfAbsent(rooms[i].getCapacity(), capacity -> new BitSet()).set(i);
+                byType.computeIfAbsent(key(rooms[i].getType()), type -> new BitSet()).set(i);
+            }
+            int[] byPrice = IntStream.range(0, rooms.length).boxed()
+                    .sorted(Comparator.comparing(i -> rooms[i].getPrice()))
+                    .mapToInt(Integer::intValue).toArray();
+            long[] prices = Arrays.stream(byPrice).mapToLong(i -> rooms[i].getPrice()).toArray();
+            return new Snapshot(rooms, positions, prices, byPrice, byCapacity, byType);
+        }
+
+        /**
+         * Este metodo permite obtener las posiciones de las habitaciones con el precio entre los indicados,
+         * ambos incluidos
+         */
+        BitSet priceBetween(long min, long max) {
+            BitSet set = new BitSet(rooms.length);
+            for (int i = firstAtLeast(min); i < prices.length && prices[i] <= max; i++) {
+                set.set(byPrice[i]);
+            }
+            return set;
+        }
+
+        /**
+         * Este metodo permite obtener el indice del primer precio mayor o igual que el indicado
+         */
+        int firstAtLeast(long price) {
+            int low = 0;
+            int high = prices.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (prices[middle] < price) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Este metodo permite obtener una nueva foto con la habitacion indicada anadida o sustituida. Las
+         * habitaciones nuevas se anaden al final, por lo que las posiciones siguen el orden de los ids
+         */
+        Snapshot with(Room room) {
+            Integer existing = positions.get(room.getId());
+            if (existing == null && rooms.length > 0 && room.getId() < rooms[rooms.length - 1].getId()) {
+                //solo pasa si los ids no son crecientes, se reconstruye para mantener el orden
+                List<Room> all = new ArrayList<>(Arrays.asList(rooms));
+                all.add(room);
+                return of(all);
+            }
+            int position = existing != null ? existing : rooms.length;
+            Room[] newRooms = Arrays.copyOf(rooms, existing != null ? rooms.length : rooms.length + 1);
+            newRooms[position] = room;
+            Map<Long, Integer> newPositions = positions;
+            if (existing == null) {
+                newPositions = new HashMap<>(positions);
+                newPositions.put(room.getId(), position);
+            }
+
+            //se quita el precio anterior y se inserta el nuevo en su sitio
+            long[] newPrices = new long[newRooms.length];
+            int[] newByPrice = new int[newRooms.length];
+            int size = 0;
+            boolean inserted = false;
+            for (int i = 0; i < prices.length; i++) {
+                if (byPrice[i] == position) {
+                    continue;
+                }
+                if (!inserted && prices[i] > room.getPrice()) {
+                    newPrices[size] = room.getPrice();
+                    newByPrice[size++] = position;
+                    inserted = true;
+                }
+                newPrices[size] = prices[i];
+                newByPrice[size++] = byPrice[i];
+            }
+            if (!inserted) {
+                newPrices[size] = room.getPrice();
+                newByPrice[size] = position;
+            }
+
+            TreeMap<Integer, BitSet> newByCapacity = new TreeMap<>(byCapacity);
+            Map<String, BitSet> newByType = new HashMap<>(byType);
+            if (existing != null) {
+                Room previous = rooms[position];
+                clear(newByCapacity, previous.getCapacity(), position);
+                clear(newByType, key(previous.getType()), position);
+            }
+            set(newByCapacity, room.getCapacity(), position);
+            set(newByType, key(room.getType()), position);
+            return new Snapshot(newRooms, newPositions, newPrices, newByPrice, newByCapacity, newByType);
+        }
+
+        /**
+         * Sustituye el bitset de la clave por una copia sin la posicion indicada
+         */
+        private static <K> void clear(Map<K, BitSet> index, K key, int position) {
+            BitSet set = (BitSet) index.get(key).clone();
+            set.clear(position);
+            if (set.isEmpty()) {
+                index.remove(key);
+            } else {
+                index.put(key, set);
+            }
+        }
+
+        /**
+         * Sustituye el bitset de la clave por una copia con la posicion indicada
+         */
+        private static <K> void set(Map<K, BitSet> index, K key, int position) {
+            BitSet previous = index.get(key);
+            BitSet set = previous == null ? new BitSet() : (BitSet) previous.clone();
+            set.set(position);
+            index.put(key, set);
+        }
+    }
+}
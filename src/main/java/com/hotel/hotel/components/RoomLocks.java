@@ -0,0 +1,83 @@
+package com.hotel.hotel.components;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bloqueos por habitacion repartidos en un numero fijo de franjas. Las reservas de una misma habitacion
+ * se serializan mientras que las de habitaciones distintas solo compiten si caen en la misma franja
+ */
+@Component
+public class RoomLocks {
+    /**
+     * Bloqueos de cada franja
+     */
+    private final ReentrantLock[] stripes;
+
+    public RoomLocks(@Value("${reservations.lock.stripes:256}") int stripes) {
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Este metodo permite ejecutar una accion con el bloqueo de una habitacion adquirido
+     *
+     * @param roomId es el id de la habitacion
+     * @param action es la accion que se quiere ejecutar
+     * @return el resultado de la accion
+     */
+    public <T> T withLock(Long roomId, Supplier<T> action) {
+        ReentrantLock lock = lockFor(roomId);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Este metodo permite ejecutar una accion con los bloqueos de varias habitaciones adquiridos. Las franjas
+     * se bloquean siempre en el mismo orden para que dos lotes con habitaciones en comun no se bloqueen
+     * mutuamente, y cada franja una sola vez aunque le correspondan varias habitaciones
+     *
+     * @param roomIds son los ids de las habitaciones
+     * @param action  es la accion que se quiere ejecutar
+     * @return el resultado de la accion
+     */
+    public <T> T withLocks(Collection<Long> roomIds, Supplier<T> action) {
+        int[] indexes = roomIds.stream().mapToInt(this::stripeFor).distinct().sorted().toArray();
+        int locked = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Este metodo permite obtener el bloqueo de la franja que le corresponde a una habitacion
+     *
+     * @param roomId es el id de la habitacion
+     * @return el bloqueo de la franja
+     */
+    private ReentrantLock lockFor(Long roomId) {
+        return stripes[stripeFor(roomId)];
+    }
+
+    private int stripeFor(Long roomId) {
+        return Math.floorMod(Long.hashCode(roomId), stripes.length);
+    }
+}
@@ -0,0 +1,172 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.dto.RatingDTO;
+import com.hotel.hotel.entity.RoomRating;
+import com.hotel.hotel.repository.RoomRatingRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumen de las calificaciones de cada habitacion. El resumen se guarda en la tabla room_rating, que se
+ * actualiza con una sola sentencia en la misma transaccion que el comentario, y se mantiene una copia en
+ * memoria para obtener la valoracion de las habitaciones y el ranking sin recorrer los comentarios
+ */
+@Component
+@RequiredArgsConstructor
+public class RoomRatings {
+    /**
+     * Instancia del repositorio de resumenes
+     */
+    private final RoomRatingRepository repository;
+    /**
+     * Copia en memoria de los resumenes indexada por el id de la habitacion
+     */
+    private final Map<Long, RoomRating> ratings = new ConcurrentHashMap<>();
+    /**
+     * Indica si se han cargado los resumenes de todas las habitaciones
+     */
+    private volatile boolean loaded;
+
+    private final Logger log = LoggerFactory.getLogger(RoomRatings.class);
+
+    /**
+     * Este metodo permite cargar los resumenes de todas las habitaciones al arrancar la aplicacion.
+     * Si la base de datos no esta disponible se cargaran con la primera consulta
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            ensureLoaded();
+            log.info("Valoraciones cargadas para {} habitaciones", ratings.size());
+        } catch (RuntimeException ex) {
+            log.warn("No se han podido cargar las valoraciones de las habitaciones, se cargaran bajo demanda", ex);
+        }
+    }
+
+    /**
+     * Este metodo permite sumar una calificacion al resumen de su habitacion. Se tiene que llamar dentro de la
+     * transaccion que guarda el comentario y llamar a refresh cuando termine
+     *
+     * @param roomId        es el id de la habitacion, si es nulo no se hace nada
+     * @param qualification es la calificacion, si es nula no se hace nada
+     */
+    public void add(Long roomId, Integer qualification) {
+        if (roomId != null && qualification != null) {
+            repository.add(roomId, qualification, 1);
+        }
+    }
+
+    /**
+     * Este metodo permite restar una calificacion del resumen de su habitacion. Se tiene que llamar dentro de
+     * la transaccion que borra el comentario y llamar a refresh cuando termine
+     *
+     * @param roomId        es el id de la habitacion, si es nulo no se hace nada
+     * @param qualification es la calificacion, si es nula no se hace nada
+     */
+    public void remove(Long roomId, Integer qualification) {
+        if (roomId != null && qualification != null) {
+            repository.add(roomId, qualification, -1);
+        }
+    }
+
+    /**
+     * Este metodo permite obtener las habitaciones en las que ha comentado un usuario, para recalcular sus
+     * resumenes cuando se borren sus comentarios
+     *
+     * @param userId es el id del usuario
+     * @return los ids de las habitaciones
+     */
+    public List<Long> roomsCommentedBy(Long userId) {
+        return repository.findRoomIdsCommentedBy(userId);
+    }
+
+    /**
+     * Este metodo permite volver a calcular los resumenes de varias habitaciones a partir de sus comentarios,
+     * por ejemplo despues de borrar en cascada los comentarios de un usuario
+     *
+     * @param roomIds son los ids de las habitaciones
+     */
+    public void rebuild(List<Long> roomIds) {
+        for (Long roomId : roomIds) {
+            repository.rebuild(roomId);
+            refresh(roomId);
+        }
+    }
+
+    /**
+     * Este metodo permite actualizar la copia en memoria del resumen de una habitacion con el valor guardado
+     * en la base de datos. Si varias llamadas se cruzan se queda el resumen con la version mas alta
+     *
+     * @param roomId es el id de la habitacion, si es nulo no se hace nada
+     */
+    public void refresh(Long roomId) {
+        if (roomId != null) {
+            repository.findById(roomId).ifPresent(this::merge);
+        }
+    }
+
+    /**
+     * Este metodo permite obtener el resumen de las calificaciones de una habitacion
+     *
+     * @param roomId es el id de la habitacion
+     * @return un dto con el numero de comentarios, la media y el histograma de calificaciones
+     */
+    public RatingDTO get(Long roomId) {
+        ensureLoaded();
+        RoomRating rating = ratings.get(roomId);
+        return rating == null ? new RatingDTO(0, 0, new long[5]) : convert(rating);
+    }
+
+    /**
+     * Este metodo permite obtener las habitaciones con comentarios ordenadas por su calificacion media. A igual
+     * media va primero la que tiene mas comentarios
+     *
+     * @param limit es el numero maximo de habitaciones
+     * @return los ids de las habitaciones de mejor a peor valorada
+     */
+    public List<Long> ranking(int limit) {
+        ensureLoaded();
+        return ratings.values().stream()
+                .filter(rating -> rating.getComments() > 0)
+                .sorted(Comparator.comparingDouble(RoomRatings::average).reversed()
+                        .thenComparing(Comparator.comparingLong(RoomRating::getComments).reversed())
+                        .thenComparing(RoomRating::getRoomId))
+                .limit(limit)
+                .map(RoomRating::getRoomId)
+                .toList();
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    repository.findAll().forEach(this::merge);
+                    loaded = true;
+                }
+            }
+        }
+    }
+
+    private void merge(RoomRating rating) {
+        ratings.merge(rating.getRoomId(), rating,
+                (current, fresh) -> fresh.getVersion() > current.getVersion() ? fresh : current);
+    }
+
+    private static double average(RoomRating rating) {
+        return rating.getComments() == 0 ? 0 : (double) rating.getQualificationSum() / rating.getComments();
+    }
+
+    private static RatingDTO convert(RoomRating rating) {
+        return new RatingDTO(rating.getComments(), average(rating), new long[]{rating.getStars1(),
+                rating.getStars2(), rating.getStars3(), rating.getStars4(), rating.getStars5()});
+    }
+}
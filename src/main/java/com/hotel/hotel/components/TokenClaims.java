@@ -0,0 +1,15 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.other.Role;
+
+/**
+ * Datos de un token de autenticacion cuya firma ya ha sido verificada
+ *
+ * @param id        es el id del usuario
+ * @param subject   es el email del usuario
+ * @param role      es el rol del usuario cuando se emitio el token, puede ser nulo
+ * @param version   es la version de los tokens del usuario cuando se emitio el token
+ * @param expiresAt es el instante en milisegundos en el que caduca el token
+ */
+public record TokenClaims(Long id, String subject, Role role, int version, long expiresAt) {
+}
@@ -0,0 +1,60 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Version actual de los tokens de cada usuario. Los tokens llevan la version con la que se emitieron y solo
+ * son validos si coincide con la actual, que se incrementa cuando cambia el rol o la contrasena del usuario.
+ * La version de cada usuario se lee de la base de datos la primera vez que se necesita y despues se mantiene
+ * en memoria, por lo que validar un token no requiere consultar la base de datos
+ */
+@Component
+@RequiredArgsConstructor
+public class TokenVersions {
+    /**
+     * Version que se guarda para los usuarios que no existen, no coincide con la de ningun token
+     */
+    private static final int REVOKED = -1;
+
+    private final UserRepository repository;
+    /**
+     * Version actual de los tokens indexada por el id del usuario
+     */
+    private final Map<Long, Integer> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Este metodo permite comprobar si la version de un token es la actual de su usuario
+     *
+     * @param userId  es el id del usuario del token
+     * @param version es la version del token
+     * @return true si el token sigue siendo valido, false si ha sido revocado
+     */
+    public boolean isCurrent(Long userId, int version) {
+        return versions.computeIfAbsent(userId,
+                id -> repository.findTokenVersionById(id).orElse(REVOKED)) == version;
+    }
+
+    /**
+     * Este metodo permite indicar la nueva version de los tokens de un usuario, revocando los anteriores
+     *
+     * @param userId  es el id del usuario
+     * @param version es la nueva version de sus tokens
+     */
+    public void update(Long userId, int version) {
+        versions.put(userId, version);
+    }
+
+    /**
+     * Este metodo permite revocar todos los tokens de un usuario que se ha borrado
+     *
+     * @param userId es el id del usuario
+     */
+    public void revoke(Long userId) {
+        versions.put(userId, REVOKED);
+    }
+}
@@ -0,0 +1,32 @@
+package com.hotel.hotel.config;
+
+import com.hotel.hotel.components.BoundedExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Pools de hilos acotados de los trabajos caros, cada uno con su tamano, su cola y su tiempo de espera
+ */
+@Configuration
+public class ExecutorConfig {
+    /**
+     * Pool en el que se calculan y verifican los hash Argon2 de las contrasenas
+     */
+    @Bean(destroyMethod = "shutdown")
+    public BoundedExecutor argon2Executor(@Value("${security.argon2.threads:0}") int threads,
+                                          @Value("${security.argon2.queue:64}") int queueSize,
+                                          @Value("${security.argon2.timeout-millis:10000}") long timeoutMillis) {
+        return new BoundedExecutor("argon2", threads, queueSize, timeoutMillis);
+    }
+
+    /**
+     * Pool en el que se copian a disco las imagenes subidas
+     */
+    @Bean(destroyMethod = "shutdown")
+    public BoundedExecutor imageUploadExecutor(@Value("${images.upload.threads:2}") int threads,
+                                               @Value("${images.upload.queue:16}") int queueSize,
+                                               @Value("${images.upload.timeout-millis:30000}") long timeoutMillis) {
+        return new BoundedExecutor("image-upload", threads, queueSize, timeoutMillis);
+    }
+}
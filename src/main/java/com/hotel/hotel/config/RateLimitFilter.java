@@ -0,0 +1,75 @@
+package com.hotel.hotel.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.hotel.components.HotelMetrics;
+import com.hotel.hotel.components.JWTUtil;
+import com.hotel.hotel.components.MessageComponent;
+import com.hotel.hotel.components.RateLimiter;
+import com.hotel.hotel.dto.ErrorDTO;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.web.servlet.filter.OrderedFilter;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtro que aplica el limite de peticiones antes de llegar a los controladores, por lo que una peticion
+ * rechazada no llega a consultar la base de datos, verificar un token ni calcular un hash Argon2. El cliente
+ * es el usuario del token si ese token ya se ha verificado en una peticion anterior y la IP si no, asi que un
+ * token inventado no sirve para saltarse el limite de la IP.
+ * <p>
+ * Se ejecuta justo despues del filtro que fija el idioma de la peticion, para responder el error en el
+ * idioma del cliente
+ */
+@Component
+@Order(OrderedFilter.REQUEST_WRAPPER_FILTER_MAX_ORDER - 104)
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+    private final RateLimiter limiter;
+    private final JWTUtil jwtUtil;
+    private final MessageComponent message;
+    private final HotelMetrics metrics;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        long wait = limiter.tryAcquire(request.getMethod(), path, client(request));
+        if (wait == 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+        metrics.rateLimited();
+        ErrorDTO errorDTO = new ErrorDTO();
+        errorDTO.setStatus(HttpStatus.TOO_MANY_REQUESTS);
+        errorDTO.setMessage(message.getMessage("error.peticiones.limite"));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1))));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorDTO);
+    }
+
+    /**
+     * Este metodo permite identificar al cliente de una peticion sin verificar su token
+     *
+     * @param request es la peticion
+     * @return el usuario del token si ya se ha verificado o la IP del cliente si no. Detras de un proxy de
+     * confianza Tomcat ya ha sustituido la IP del proxy por la de X-Forwarded-For
+     */
+    private String client(HttpServletRequest request) {
+        String token = request.getHeader("token");
+        String subject = token == null || token.isBlank() ? null : jwtUtil.getVerifiedSubject(token);
+        return subject != null ? "user:" + subject : "ip:" + request.getRemoteAddr();
+    }
+}
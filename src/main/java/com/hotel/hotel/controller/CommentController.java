@@ -1,9 +1,11 @@
 package com.hotel.hotel.controller;
 
 import com.hotel.hotel.components.ErrorUtils;
+import com.hotel.hotel.components.IdempotencyStore;
 import com.hotel.hotel.components.JWTUtil;
 import com.hotel.hotel.dto.CommentDTO;
 import com.hotel.hotel.dto.InsertCommentDTO;
+import com.hotel.hotel.dto.KeysetPageDTO;
 import com.hotel.hotel.service.CommentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,9 +13,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -34,11 +38,17 @@ public class CommentController {
      * Instancia del componente para manejar los errores
      */
     private final ErrorUtils errorUtils;
+    /**
+     * Respuestas de las peticiones con Idempotency-Key para responder a los reintentos
+     */
+    private final IdempotencyStore idempotency;
 
     /**
-     * Este metodo permite insertar un comentario
+     * Este metodo permite insertar un comentario. Si se envia la cabecera Idempotency-Key, los reintentos
+     * con la misma clave devuelven el comentario insertado en lugar de volver a insertarlo
      *
      * @param token es el token de autenticacion del usuario
+     * @param idempotencyKey es la clave unica de la peticion elegida por el cliente
      * @param dto es el dto con los datos del comentario
      * @param bindingResult es el objeto que nos permite manejar los errores
      * @return un dto con los datos del comentario insertado
@@ -48,11 +58,11 @@ public class CommentController {
     @Operation(summary = "Insertar un comentario", description = "Inserta un comentario en la base de datos")
     public ResponseEntity<CommentDTO> insert(
             @Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+            @Parameter(description = "clave unica de la peticion para poder reintentarla") @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Parameter(description = "dto con los datos del comentario a insertar") @Valid @RequestBody InsertCommentDTO dto, BindingResult bindingResult) {
         errorUtils.handle(bindingResult);
-        jwtUtil.checkUser(token);
-        Long id = Long.parseLong(jwtUtil.getKey(token));
-        return ResponseEntity.ok(service.insert(dto, id));
+        Long id = jwtUtil.checkUser(token);
+        return ResponseEntity.ok(idempotency.execute("comments", id, idempotencyKey, dto, () -> service.insert(dto, id)));
     }
 
     /**
@@ -68,6 +78,41 @@ public class CommentController {
         return ResponseEntity.ok(service.getAllComments());
     }
 
+    /**
+     * Este metodo permite obtener los comentarios por paginas ordenados por id
+     *
+     * @param token es el token de autenticacion del usuario
+     * @param after es el ultimo id de la pagina anterior
+     * @param size  es el numero de elementos de la pagina
+     * @return una pagina con los dtos y el id para pedir la siguiente
+     */
+    @GetMapping("/page")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Obtener comentarios por paginas", description = "Obtiene los comentarios por paginas, cada pagina se pide con el id devuelto en next")
+    public ResponseEntity<KeysetPageDTO<CommentDTO>> getCommentsPage(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+                                                       @Parameter(description = "ultimo id de la pagina anterior") @RequestParam(required = false) Long after,
+                                                       @Parameter(description = "numero de elementos de la pagina") @RequestParam(required = false) Integer size) {
+        jwtUtil.validarAdmin(token);
+        return ResponseEntity.ok(service.getCommentsPage(after, size));
+    }
+
+    /**
+     * Este metodo permite exportar todos los comentarios de la base de datos en JSON. La respuesta se escribe a
+     * medida que se leen las filas, sin cargar el listado completo en memoria
+     *
+     * @param token es el token de autenticacion del usuario
+     * @return la respuesta con el array JSON de dtos
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Exportar comentarios", description = "Exporta todos los comentarios de la base de datos en JSON")
+    public ResponseEntity<StreamingResponseBody> exportAllComments(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token) {
+        jwtUtil.validarAdmin(token);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(service::exportAllComments);
+    }
+
     /**
      * Este metodo permite obtener un comentario por su id
      * @param token es el token de autenticacion del usuario
@@ -79,8 +124,7 @@ public class CommentController {
     @Operation(summary = "Obtener comentario", description = "Obtiene un comentario de la base de datos por su id")
     public ResponseEntity<CommentDTO> getComment(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
                                                  @Parameter(description = "Id del comentario") @PathVariable Long id){
-        jwtUtil.checkUser(token);
-        Long userId = Long.parseLong(jwtUtil.getKey(token));
+        Long userId = jwtUtil.checkUser(token);
         return ResponseEntity.ok(service.findById(id,userId));
     }
 
@@ -108,8 +152,7 @@ public class CommentController {
     @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Obtener comentarios por usuario", description = "Obtiene todos los comentarios de la base de datos asociados a un usuario")
     public ResponseEntity<List<CommentDTO>> getCommentByUser(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token){
-        jwtUtil.checkUser(token);
-        Long id = Long.parseLong(jwtUtil.getKey(token));
+        Long id = jwtUtil.checkUser(token);
         return ResponseEntity.ok(service.findByUser(id));
     }
 
@@ -124,8 +167,7 @@ public class CommentController {
     @Operation(summary = "Borrar comentario", description = "Borra un comentario de la base de datos")
     public ResponseEntity<?> deleteComment(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
                                            @Parameter(description = "id del comentario") @PathVariable Long id){
-        jwtUtil.checkUser(token);
-        Long userId = Long.parseLong(jwtUtil.getKey(token));
+        Long userId = jwtUtil.checkUser(token);
         service.delete(id,userId);
         return ResponseEntity.noContent().build();
     }
@@ -1,9 +1,18 @@
 package com.hotel.hotel.controller;
 
 import com.hotel.hotel.components.ErrorUtils;
+import com.hotel.hotel.components.IdempotencyStore;
 import com.hotel.hotel.components.JWTUtil;
+import com.hotel.hotel.dto.BatchReservationDTO;
+import com.hotel.hotel.dto.ChangeFeedDTO;
+import com.hotel.hotel.dto.DailyStatDTO;
 import com.hotel.hotel.dto.InsertReservationDTO;
+import com.hotel.hotel.dto.KeysetPageDTO;
+import com.hotel.hotel.dto.OccupancyDTO;
 import com.hotel.hotel.dto.ReservationDTO;
+import com.hotel.hotel.dto.RevenueReportDTO;
+import com.hotel.hotel.dto.RoomDTO;
+import com.hotel.hotel.other.ReportPeriod;
 import com.hotel.hotel.other.Status;
 import com.hotel.hotel.service.ReservationService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,9 +21,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Date;
 import java.util.List;
@@ -27,16 +38,45 @@ public class ReservationController {
     private final JWTUtil jwtUtil;
     private final ReservationService service;
     private final ErrorUtils errorUtils;
+    private final IdempotencyStore idempotency;
 
+    /**
+     * Este metodo permite reservar una habitacion. Si se envia la cabecera Idempotency-Key, los reintentos
+     * con la misma clave devuelven la reserva creada en lugar de volver a reservar
+     *
+     * @param token          es el token de autenticacion del usuario
+     * @param idempotencyKey es la clave unica de la peticion elegida por el cliente
+     * @param dto            es el dto con los datos de la reserva a insertar
+     * @param bindingResult  es el objeto que nos permite manejar los errores
+     * @return un dto con los datos de la reserva creada
+     */
     @PostMapping("/")
     @ResponseStatus(HttpStatus.CREATED)
     @Operation(summary = "Reservar", description = "Reserva una habitacion")
     public ResponseEntity<ReservationDTO> reserve(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+                                                  @Parameter(description = "clave unica de la peticion para poder reintentarla") @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
                                                   @Parameter(description = "dto con los datos de la reserva a insertar") @Valid @RequestBody InsertReservationDTO dto, BindingResult bindingResult) {
         errorUtils.handle(bindingResult);
-        jwtUtil.checkUser(token);
-        Long id = Long.parseLong(jwtUtil.getKey(token));
-        return ResponseEntity.status(HttpStatus.CREATED).body(service.reserve(dto, id));
+        Long id = jwtUtil.checkUser(token);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(idempotency.execute("reservations", id, idempotencyKey, dto, () -> service.reserve(dto, id)));
+    }
+
+    /**
+     * Este metodo permite reservar varias habitaciones en una sola peticion, por ejemplo para grupos o para
+     * sincronizar las reservas de otros canales. Cada reserva se crea o se rechaza por separado
+     *
+     * @param token es el token de autenticacion del usuario
+     * @param dtos  son los dtos con los datos de las reservas a insertar
+     * @return el resultado de cada reserva en el mismo orden en el que se han enviado
+     */
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Reservar en lote", description = "Reserva varias habitaciones e indica para cada una si se ha creado o el motivo por el que no")
+    public ResponseEntity<List<BatchReservationDTO>> reserveAll(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+                                                                @Parameter(description = "lista de dtos con los datos de las reservas a insertar") @RequestBody List<InsertReservationDTO> dtos) {
+        Long id = jwtUtil.checkUser(token);
+        return ResponseEntity.ok(service.reserveAll(dtos, id));
     }
 
     /**
@@ -53,6 +93,41 @@ public class ReservationController {
         return ResponseEntity.ok(service.getAllReserves());
     }
 
+    /**
+     * Este metodo permite obtener las reservas por paginas ordenadas por id
+     *
+     * @param token es el token de autenticacion del usuario
+     * @param after es el ultimo id de la pagina anterior
+     * @param size  es el numero de elementos de la pagina
+     * @return una pagina con los dtos y el id para pedir la siguiente
+     */
+    @GetMapping("/page")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Obtener reservas por paginas", description = "Obtiene las reservas por paginas, cada pagina se pide con el id devuelto en next")
+    public ResponseEntity<KeysetPageDTO<ReservationDTO>> getReservesPage(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+                                                       @Parameter(description = "ultimo id de la pagina anterior") @RequestParam(required = false) Long after,
+                                                       @Parameter(description = "numero de elementos de la pagina") @RequestParam(required = false) Integer size) {
+        jwtUtil.validarAdmin(token);
+        return ResponseEntity.ok(service.getReservesPage(after, size));
+    }
+
+    /**
+     * Este metodo permite exportar todas las reservas de la base de datos en JSON. La respuesta se escribe a
+     * medida que se leen las filas, sin cargar el listado completo en memoria
+     *
+     * @param token es el token de autenticacion del usuario
+     * @return la respuesta con el array JSON de dtos
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Exportar reservas", description = "Exporta todas las reservas de la base de datos en JSON")
+    public ResponseEntity<StreamingResponseBody> exportAllReserves(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token) {
+        jwtUtil.validarAdmin(token);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(service::exportAllReserves);
+    }
+
     /**
      * Este metodo permite obtener los datos de una reserva por su id
      *
@@ -65,8 +140,7 @@ public class ReservationController {
     @Operation(summary = "Obtener reserva", description = "Obtiene una reserva de la base de datos a traves de su id")
     public ResponseEntity<ReservationDTO> getReservation(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
                                                          @Parameter(description = "id de la reserva") @PathVariable Long id) {
-        jwtUtil.checkUser(token);
-        Long userId = Long.parseLong(jwtUtil.getKey(token));
+        Long userId = jwtUtil.checkUser(token);
         return ResponseEntity.ok(service.findById(id, userId));
     }
 
@@ -113,8 +187,7 @@ public class ReservationController {
     @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Obtener reservas por usuario", description = "Obtiene todas las reservas de la base de datos asociadas a un usuario")
     public ResponseEntity<List<ReservationDTO>> getReservationsByUser(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token) {
-        jwtUtil.checkUser(token);
-        Long id = Long.parseLong(jwtUtil.getKey(token));
+        Long id = jwtUtil.checkUser(token);
         return ResponseEntity.ok(service.getReservationsByUser(id));
     }
 
@@ -130,8 +203,7 @@ public class ReservationController {
     @Operation(summary = "Confirmar", description = "Permite confirmar una reserva")
     public ResponseEntity<ReservationDTO> confirm(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
                                                   @Parameter(description = "id de la reserva") @PathVariable Long id) {
-        jwtUtil.checkUser(token);
-        Long userId = Long.parseLong(jwtUtil.getKey(token));
+        Long userId = jwtUtil.checkUser(token);
         return ResponseEntity.ok(service.confirm(id, userId));
     }
 
@@ -147,8 +219,7 @@ public class ReservationController {
     @Operation(summary = "Cancelar", description = "Permite cancelar una reserva")
     public ResponseEntity<ReservationDTO> cancel(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
                                                  @Parameter(description = "id de la reserva") @PathVariable Long id) {
-        jwtUtil.checkUser(token);
-        Long userId = Long.parseLong(jwtUtil.getKey(token));
+        Long userId = jwtUtil.checkUser(token);
         return ResponseEntity.ok(service.cancel(id, userId));
     }
 
@@ -172,4 +243,141 @@ public class ReservationController {
         return ResponseEntity.ok(service.getAvailability(id, entry, exit));
     }
 
+    /**
+     * Este metodo permite obtener todas las habitaciones libres entre dos dias indicados
+     *
+     * @param token    es el token de autenticacion del usuario
+     * @param entry    es la fecha de entrada
+     * @param exit     es la fecha de salida
+     * @param types    es la lista de tipos de habitacion
+     * @param capacity es la capacidad minima de la habitacion
+     * @param min      es el precio minimo de la habitacion
+     * @param max      es el precio maximo de la habitacion
+     * @return una lista de dtos con los datos de las habitaciones libres
+     */
+    @GetMapping("/available")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Buscar habitaciones libres", description = "Obtiene todas las habitaciones libres entre dos dias indicados que cumplan los filtros")
+    public ResponseEntity<List<RoomDTO>> findAvailableRooms(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+                                                            @Parameter(description = "Fecha de entrada") @RequestParam("entry") Date entry,
+                                                            @Parameter(description = "Fecha de salida") @RequestParam("exit") Date exit,
+                                                            @Parameter(description = "lista con los tipos de las habitaciones") @RequestParam(value = "types", required = false) List<String> types,
+                                                            @Parameter(description = "capacidad minima de la habitacion") @RequestParam(value = "capacity", required = false) Integer capacity,
+                                                            @Parameter(description = "precio minimo de la habitacion") @RequestParam(value = "min", required = false) Long min,
+                                                            @Parameter(description = "precio maximo de la habitacion") @RequestParam(value = "max", required = false) Long max) {
+        jwtUtil.checkUser(token);
+        return ResponseEntity.ok(service.findAvailableRooms(entry, exit, types, capacity, min, max));
+    }
+
+    /**
+     * Este metodo permite contar las habitaciones libres entre dos dias indicados
+     *
+     * @param token es el token de autenticacion del usuario
+     * @param entry es la fecha de entrada
+     * @param exit  es la fecha de salida
+     * @return el numero de habitaciones libres
+     */
+    @GetMapping("/free")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Contar habitaciones libres", description = "Obtiene el numero de habitaciones libres entre dos dias indicados")
+    public ResponseEntity<Long> countFreeRooms(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+                                               @Parameter(description = "Fecha de entrada") @RequestParam("entry") Date entry,
+                                               @Parameter(description = "Fecha de salida") @RequestParam("exit") Date exit) {
+        jwtUtil.checkUser(token);
+        return ResponseEntity.ok(service.countFreeRooms(entry, exit));
+    }
+
+    /**
+     * Este metodo permite obtener la ocupacion del hotel entre dos dias indicados
+     *
+     * @param token es el token de autenticacion del usuario
+     * @param from  es la fecha de la primera noche
+     * @param to    es la fecha siguiente a la ultima noche
+     * @return un dto con las noches ocupadas y la tasa de ocupacion
+     */
+    @GetMapping("/occupancy")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Ocupacion", description = "Obtiene las noches ocupadas y la tasa de ocupacion de todas las habitaciones entre dos dias indicados")
+    public ResponseEntity<OccupancyDTO> getOccupancy(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+                                                     @Parameter(description = "Fecha de la primera noche") @RequestParam("from") Date from,
+                                                     @Parameter(description = "Fecha siguiente a la ultima noche") @RequestParam("to") Date to) {
+        jwtUtil.validarAdmin(token);
+        return ResponseEntity.ok(service.getOccupancy(from, to));
+    }
+
+    /**
+     * Este metodo permite obtener el informe de ingresos y ocupacion del hotel entre dos dias indicados
+     *
+     * @param token  es el token de autenticacion del usuario
+     * @param from   es la fecha de la primera noche
+     * @param to     es la fecha siguiente a la ultima noche
+     * @param period es el periodo en el que se agrupan las noches, por dia o por mes
+     * @param byType indica si ademas se agrupa por tipo de habitacion
+     * @return una lista de dtos con los ingresos, el ADR, el RevPAR, la ocupacion y las cancelaciones de cada periodo
+     */
+    @GetMapping("/report")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Informe de ingresos", description = "Obtiene los ingresos, el ADR, el RevPAR, la ocupacion y la tasa de cancelacion por dia o por mes entre dos dias indicados")
+    public ResponseEntity<List<RevenueReportDTO>> getRevenueReport(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+                                                                   @Parameter(description = "Fecha de la primera noche") @RequestParam("from") Date from,
+                                                                   @Parameter(description = "Fecha siguiente a la ultima noche") @RequestParam("to") Date to,
+                                                                   @Parameter(description = "Periodo del informe (DAY o MONTH)") @RequestParam(value = "period", defaultValue = "MONTH") ReportPeriod period,
+                                                                   @Parameter(description = "Agrupar tambien por tipo de habitacion") @RequestParam(value = "byType", defaultValue = "false") boolean byType) {
+        jwtUtil.validarAdmin(token);
+        return ResponseEntity.ok(service.getRevenueReport(from, to, period, byType));
+    }
+
+    /**
+     * Este metodo permite obtener los contadores diarios de las reservas entre dos dias indicados
+     *
+     * @param token    es el token de autenticacion del usuario
+     * @param from     es el primer dia
+     * @param to       es el ultimo dia, incluido
+     * @param roomType es el tipo de habitacion, si no se indica se devuelven todos
+     * @return una lista de dtos con las noches vendidas, los ingresos, las entradas, las salidas y las cancelaciones de cada dia
+     */
+    @GetMapping("/stats")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Contadores diarios", description = "Obtiene las noches vendidas, los ingresos, las entradas, las salidas y las cancelaciones de cada dia y tipo de habitacion")
+    public ResponseEntity<List<DailyStatDTO>> getDailyStats(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+                                                            @Parameter(description = "Primer dia") @RequestParam("from") Date from,
+                                                            @Parameter(description = "Ultimo dia, incluido") @RequestParam("to") Date to,
+                                                            @Parameter(description = "Tipo de habitacion") @RequestParam(value = "type", required = false) String roomType) {
+        jwtUtil.validarAdmin(token);
+        return ResponseEntity.ok(service.getDailyStats(from, to, roomType));
+    }
+
+    /**
+     * Este metodo permite volver a calcular los contadores diarios a partir de la tabla de reservas
+     *
+     * @param token es el token de autenticacion del usuario
+     * @return el numero de reservas leidas
+     */
+    @PostMapping("/stats/rebuild")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Reconstruir contadores diarios", description = "Vuelve a calcular los contadores diarios a partir de la tabla de reservas")
+    public ResponseEntity<Long> rebuildDailyStats(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token) {
+        jwtUtil.validarAdmin(token);
+        return ResponseEntity.ok(service.rebuildDailyStats());
+    }
+
+    /**
+     * Este metodo permite leer los cambios de estado de las reservas a partir de un offset, para que las
+     * integraciones obtengan solo lo que ha cambiado desde su ultima lectura
+     *
+     * @param token es el token de autenticacion del usuario
+     * @param from  es el offset del primer cambio que se quiere leer
+     * @param limit es el numero maximo de cambios
+     * @return un dto con los cambios y el offset con el que se pide el siguiente lote
+     */
+    @GetMapping("/changes")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Cambios de las reservas", description = "Obtiene un lote de cambios de estado de las reservas (reserva, confirmacion y cancelacion) a partir de un offset")
+    public ResponseEntity<ChangeFeedDTO> getChanges(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+                                                    @Parameter(description = "offset del primer cambio, el next del lote anterior") @RequestParam(value = "from", defaultValue = "0") long from,
+                                                    @Parameter(description = "numero maximo de cambios") @RequestParam(value = "limit", required = false) Integer limit) {
+        jwtUtil.validarAdmin(token);
+        return ResponseEntity.ok(service.getChanges(from, limit));
+    }
+
 }
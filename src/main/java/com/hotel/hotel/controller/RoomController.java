@@ -1,12 +1,17 @@
 package com.hotel.hotel.controller;
 
+import com.hotel.hotel.components.ImageServer;
 import com.hotel.hotel.components.JWTUtil;
+import com.hotel.hotel.dto.CacheStatsDTO;
 import com.hotel.hotel.dto.InsertRoomDTO;
+import com.hotel.hotel.dto.KeysetPageDTO;
 import com.hotel.hotel.dto.RoomDTO;
 import com.hotel.hotel.service.RoomService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
@@ -14,7 +19,10 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 @RestController
@@ -35,6 +43,10 @@ public class RoomController {
      * Instancia del servicio
      */
     private final RoomService service;
+    /**
+     * Instancia del componente que envia las imagenes desde disco
+     */
+    private final ImageServer imageServer;
 
     /**
      * Este metodo permite dar de alta una habitacion
@@ -68,6 +80,41 @@ public class RoomController {
         return ResponseEntity.ok(service.getAllRooms());
     }
 
+    /**
+     * Este metodo permite obtener las habitaciones por paginas ordenadas por id
+     *
+     * @param token es el token de autenticacion del usuario
+     * @param after es el ultimo id de la pagina anterior
+     * @param size  es el numero de elementos de la pagina
+     * @return una pagina con los dtos y el id para pedir la siguiente
+     */
+    @GetMapping("/page")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Obtener habitaciones por paginas", description = "Obtiene las habitaciones por paginas, cada pagina se pide con el id devuelto en next")
+    public ResponseEntity<KeysetPageDTO<RoomDTO>> getRoomsPage(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+                                                       @Parameter(description = "ultimo id de la pagina anterior") @RequestParam(required = false) Long after,
+                                                       @Parameter(description = "numero de elementos de la pagina") @RequestParam(required = false) Integer size) {
+        jwtUtil.checkUser(token);
+        return ResponseEntity.ok(service.getRoomsPage(after, size));
+    }
+
+    /**
+     * Este metodo permite exportar todas las habitaciones de la base de datos en JSON. La respuesta se escribe a
+     * medida que se leen las filas, sin cargar el listado completo en memoria
+     *
+     * @param token es el token de autenticacion del usuario
+     * @return la respuesta con el array JSON de dtos
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Exportar habitaciones", description = "Exporta todas las habitaciones de la base de datos en JSON")
+    public ResponseEntity<StreamingResponseBody> exportAllRooms(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token) {
+        jwtUtil.validarAdmin(token);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(service::exportAllRooms);
+    }
+
     /**
      * Este metodo permite obtener una habitacion por su id
      *
@@ -135,6 +182,58 @@ public class RoomController {
         return ResponseEntity.ok(service.findByPrice(min, max));
     }
 
+    /**
+     * Este metodo permite obtener las habitaciones que cumplen a la vez los filtros de tipo, capacidad y precio
+     *
+     * @param token    es el token de autenticacion del usuario
+     * @param types    es la lista de tipos de habitacion
+     * @param capacity es la capacidad minima de la habitacion
+     * @param min      es el precio minimo de la habitacion
+     * @param max      es el precio maximo de la habitacion
+     * @return una lista de dtos con los datos de las habitaciones que cumplen todos los filtros
+     */
+    @GetMapping("/search")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Buscar habitaciones", description = "Obtiene todas las habitaciones que cumplen a la vez los filtros de tipo, capacidad y precio indicados")
+    public ResponseEntity<List<RoomDTO>> search(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+                                                @Parameter(description = "lista con los tipos de las habitaciones") @RequestParam(value = "types", required = false) List<String> types,
+                                                @Parameter(description = "capacidad minima de la habitacion") @RequestParam(value = "capacity", required = false) Integer capacity,
+                                                @Parameter(description = "precio minimo de la habitacion") @RequestParam(value = "min", required = false) Long min,
+                                                @Parameter(description = "precio maximo de la habitacion") @RequestParam(value = "max", required = false) Long max) {
+        jwtUtil.checkUser(token);
+        return ResponseEntity.ok(service.search(types, capacity, min, max));
+    }
+
+    /**
+     * Este metodo permite obtener las habitaciones mejor valoradas
+     *
+     * @param token es el token de autenticacion del usuario
+     * @param size  es el numero maximo de habitaciones
+     * @return una lista de dtos con las habitaciones ordenadas de mejor a peor calificacion media
+     */
+    @GetMapping("/ranking")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Ranking de habitaciones", description = "Obtiene las habitaciones con comentarios ordenadas de mejor a peor calificacion media")
+    public ResponseEntity<List<RoomDTO>> getRanking(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+                                                    @Parameter(description = "numero maximo de habitaciones") @RequestParam(value = "size", required = false) Integer size) {
+        jwtUtil.checkUser(token);
+        return ResponseEntity.ok(service.getRanking(size));
+    }
+
+    /**
+     * Este metodo permite obtener una imagen de una habitacion o una de sus variantes. No necesita token para
+     * que se pueda usar directamente en las paginas, admite peticiones de rango y los clientes la pueden cachear sin revalidarla
+     *
+     * @param name     es el nombre del fichero de la imagen
+     * @param request  es la peticion
+     * @param response es la respuesta en la que se escribe la imagen
+     */
+    @GetMapping("/images/{name}")
+    @Operation(summary = "Obtener imagen", description = "Obtiene una imagen de una habitacion o una de sus variantes")
+    public void getImage(@Parameter(description = "nombre del fichero de la imagen") @PathVariable String name,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        imageServer.serve(Path.of(path), name, request, response);
+    }
 
     /**
      * Este metodo permite modificar una habitacion a excepcion de su imagen
@@ -169,4 +268,18 @@ public class RoomController {
         jwtUtil.validarAdmin(token);
         return ResponseEntity.ok(service.updateImage(id, file, path));
     }
+
+    /**
+     * Este metodo permite obtener las estadisticas de la cache de habitaciones
+     *
+     * @param token es el token de autenticacion del usuario
+     * @return un dto con el tamano, aciertos, fallos y desalojos de la cache
+     */
+    @GetMapping("/cache/stats")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Estadisticas de la cache", description = "Obtiene los aciertos, fallos y desalojos de la cache de habitaciones")
+    public ResponseEntity<CacheStatsDTO> getCacheStats(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token) {
+        jwtUtil.validarAdmin(token);
+        return ResponseEntity.ok(service.getCacheStats());
+    }
 }
@@ -4,9 +4,11 @@ package com.hotel.hotel.controller;
 import com.hotel.hotel.components.ErrorUtils;
 import com.hotel.hotel.components.JWTUtil;
 import com.hotel.hotel.dto.InsertUserDTO;
+import com.hotel.hotel.dto.KeysetPageDTO;
 import com.hotel.hotel.dto.LoginUserDTO;
 import com.hotel.hotel.dto.UserDTO;
 import com.hotel.hotel.entity.User;
+import com.hotel.hotel.other.Role;
 import com.hotel.hotel.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,9 +16,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -65,7 +69,7 @@ public class UserController {
     @Operation(summary = "Login", description = "Permite a un usuario loguearse en el sistema")
     public ResponseEntity<String> login(@Parameter(description = "dto con los datos del usuario que se quiere loguear") @RequestBody LoginUserDTO dto) {
         User user = service.login(dto);
-        return ResponseEntity.ok(jwtUtil.create(String.valueOf(user.getId()), user.getEmail()));
+        return ResponseEntity.ok(jwtUtil.create(String.valueOf(user.getId()), user.getEmail(), user.getType(), user.getTokenVersion()));
     }
 
     /**
@@ -82,6 +86,41 @@ public class UserController {
         return ResponseEntity.ok(service.getAllUsers());
     }
 
+    /**
+     * Este metodo permite obtener los usuarios por paginas ordenados por id
+     *
+     * @param token es el token de autenticacion del usuario
+     * @param after es el ultimo id de la pagina anterior
+     * @param size  es el numero de elementos de la pagina
+     * @return una pagina con los dtos y el id para pedir la siguiente
+     */
+    @GetMapping("/page")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Obtener usuarios por paginas", description = "Obtiene los usuarios por paginas, cada pagina se pide con el id devuelto en next")
+    public ResponseEntity<KeysetPageDTO<UserDTO>> getUsersPage(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+                                                       @Parameter(description = "ultimo id de la pagina anterior") @RequestParam(required = false) Long after,
+                                                       @Parameter(description = "numero de elementos de la pagina") @RequestParam(required = false) Integer size) {
+        jwtUtil.validarAdmin(token);
+        return ResponseEntity.ok(service.getUsersPage(after, size));
+    }
+
+    /**
+     * Este metodo permite exportar todos los usuarios de la base de datos en JSON. La respuesta se escribe a
+     * medida que se leen las filas, sin cargar el listado completo en memoria
+     *
+     * @param token es el token de autenticacion del usuario
+     * @return la respuesta con el array JSON de dtos
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Exportar usuarios", description = "Exporta todos los usuarios de la base de datos en JSON")
+    public ResponseEntity<StreamingResponseBody> exportAllUsers(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token) {
+        jwtUtil.validarAdmin(token);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(service::exportAllUsers);
+    }
+
     /**
      * Este metodo permite obtener un usuario de la base de datos en formato DTO
      * a traves de su id
@@ -127,9 +166,8 @@ public class UserController {
     @Operation(summary = "Actualizar", description = "Permite actualizar un usuario de la base de datos")
     public ResponseEntity<UserDTO> updateUser(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
                                               @Parameter(description = "dto con los datos del usuario a insertar") @Valid @RequestBody UserDTO userDTO, BindingResult bindingResult) {
-        jwtUtil.checkUser(token);
+        Long id = jwtUtil.checkUser(token);
         errorUtils.handle(bindingResult);
-        Long id = Long.parseLong(jwtUtil.getKey(token));
         return ResponseEntity.ok(service.update(userDTO,id));
     }
 
@@ -144,11 +182,24 @@ public class UserController {
     @Operation(summary = "Actualizar contrasena", description = "Permite a un usuario actualizar su contrasena")
     public ResponseEntity<String> updatePassword(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
                                                  @Parameter(description = "contrasena nueva del usuario") @RequestBody String password){
-        jwtUtil.checkUser(token);
-        Long id = Long.parseLong(jwtUtil.getKey(token));
+        Long id = jwtUtil.checkUser(token);
         return ResponseEntity.ok(service.updatePassword(password,id));
     }
 
-
-
+    /**
+     * Este metodo permite cambiar el rol de un usuario, invalidando los tokens que tenga emitidos
+     * @param token es el token de autenticacion del administrador
+     * @param id es el id del usuario al que se le va a cambiar el rol
+     * @param role es el nuevo rol del usuario
+     * @return un dto con los datos del usuario modificado
+     */
+    @PatchMapping("/role/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Cambiar rol", description = "Permite a un administrador cambiar el rol de un usuario")
+    public ResponseEntity<UserDTO> updateRole(@Parameter(description = "token de autenticacion del usuario") @RequestHeader("token") String token,
+                                              @Parameter(description = "id del usuario") @PathVariable Long id,
+                                              @Parameter(description = "nuevo rol del usuario") @RequestBody Role role) {
+        jwtUtil.validarAdmin(token);
+        return ResponseEntity.ok(service.updateRole(id, role));
+    }
 }
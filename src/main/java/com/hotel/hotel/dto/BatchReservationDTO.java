@@ -0,0 +1,22 @@
+package com.hotel.hotel.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@Schema(description = "dto con el resultado de una de las reservas de un lote")
+public class BatchReservationDTO {
+    @Schema(description = "posicion de la reserva en el lote", example = "0")
+    private int index;
+
+    @Schema(description = "indica si la reserva se ha creado", example = "true")
+    private boolean created;
+
+    @Schema(description = "datos de la reserva creada, nulo si no se ha creado")
+    private ReservationDTO reservation;
+
+    @Schema(description = "motivo por el que no se ha creado la reserva", example = "La habitacion ya esta reservada en alguno de los dias indicados")
+    private String error;
+}
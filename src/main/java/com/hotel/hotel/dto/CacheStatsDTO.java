@@ -0,0 +1,22 @@
+package com.hotel.hotel.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@Schema(description = "dto con las estadisticas de uso de una cache")
+public class CacheStatsDTO {
+    @Schema(description = "numero de entradas guardadas", example = "120")
+    private int size;
+
+    @Schema(description = "numero de lecturas que se han resuelto en la cache", example = "5400")
+    private long hits;
+
+    @Schema(description = "numero de lecturas que han tenido que ir a la base de datos", example = "130")
+    private long misses;
+
+    @Schema(description = "numero de entradas descartadas por tamano o caducidad", example = "10")
+    private long evictions;
+}
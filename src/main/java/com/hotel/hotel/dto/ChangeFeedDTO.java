@@ -0,0 +1,21 @@
+package com.hotel.hotel.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@Schema(description = "dto con un lote de cambios de las reservas leidos del registro de cambios")
+public class ChangeFeedDTO {
+    @Schema(description = "cambios ordenados por offset")
+    private List<ReservationChangeDTO> changes;
+
+    @Schema(description = "offset a partir del cual se pide el siguiente lote", example = "1025")
+    private long next;
+
+    @Schema(description = "offset que tendra el siguiente cambio que se registre, si next es igual no hay mas cambios", example = "1025")
+    private long end;
+}
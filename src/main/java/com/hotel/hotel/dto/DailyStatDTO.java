@@ -0,0 +1,34 @@
+package com.hotel.hotel.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+@Getter
+@AllArgsConstructor
+@Schema(description = "dto con los contadores de las reservas de un dia y un tipo de habitacion")
+public class DailyStatDTO {
+    @Schema(description = "dia", example = "2023-10-10")
+    private Date day;
+
+    @Schema(description = "tipo de habitacion", example = "Doble")
+    private String roomType;
+
+    @Schema(description = "habitaciones ocupadas esa noche", example = "8")
+    private long nightsSold;
+
+    @Schema(description = "ingresos de las noches de ese dia", example = "480.00")
+    private BigDecimal revenue;
+
+    @Schema(description = "reservas que entran ese dia", example = "3")
+    private long arrivals;
+
+    @Schema(description = "reservas que salen ese dia", example = "2")
+    private long departures;
+
+    @Schema(description = "reservas canceladas que entraban ese dia", example = "1")
+    private long cancellations;
+}
@@ -0,0 +1,18 @@
+package com.hotel.hotel.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@Schema(description = "dto con una pagina de resultados ordenados por id")
+public class KeysetPageDTO<T> {
+    @Schema(description = "elementos de la pagina")
+    private List<T> items;
+
+    @Schema(description = "id a partir del cual se pide la siguiente pagina, es nulo si no hay mas paginas", example = "50")
+    private Long next;
+}
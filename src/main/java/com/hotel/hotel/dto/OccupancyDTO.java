@@ -0,0 +1,30 @@
+package com.hotel.hotel.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+@Getter
+@AllArgsConstructor
+@Schema(description = "dto con la ocupacion del hotel entre dos fechas")
+public class OccupancyDTO {
+    @Schema(description = "fecha de la primera noche", example = "2023-10-01")
+    private Date from;
+
+    @Schema(description = "fecha siguiente a la ultima noche", example = "2023-11-01")
+    private Date to;
+
+    @Schema(description = "numero de habitaciones del hotel", example = "12")
+    private int rooms;
+
+    @Schema(description = "numero de noches entre las fechas", example = "31")
+    private long nights;
+
+    @Schema(description = "numero de noches ocupadas sumando todas las habitaciones", example = "248")
+    private long occupiedNights;
+
+    @Schema(description = "noches ocupadas entre noches disponibles", example = "0.67")
+    private double rate;
+}
@@ -0,0 +1,19 @@
+package com.hotel.hotel.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@Schema(description = "dto con el resumen de las calificaciones de una habitacion")
+public class RatingDTO {
+    @Schema(description = "numero de comentarios con calificacion", example = "12")
+    private long comments;
+
+    @Schema(description = "calificacion media, es 0 si no hay comentarios", example = "4.25")
+    private double average;
+
+    @Schema(description = "numero de calificaciones de 1 a 5", example = "[0, 1, 1, 4, 6]")
+    private long[] histogram;
+}
@@ -0,0 +1,48 @@
+package com.hotel.hotel.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.hotel.hotel.other.ChangeType;
+import com.hotel.hotel.other.Status;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+@Getter
+@AllArgsConstructor
+@Schema(description = "dto con un cambio de estado de una reserva del registro de cambios")
+public class ReservationChangeDTO {
+    @Schema(description = "posicion del cambio en el registro, crece de uno en uno", example = "1024")
+    private long offset;
+
+    @Schema(description = "momento en el que se registro el cambio")
+    private Date time;
+
+    @Schema(description = "tipo de cambio", example = "CONFIRMED")
+    private ChangeType type;
+
+    @Schema(description = "id de la reserva", example = "1")
+    private long reservationId;
+
+    @Schema(description = "id de la habitacion", example = "1")
+    private long roomId;
+
+    @Schema(description = "id del usuario que hizo la reserva", example = "1")
+    private long userId;
+
+    @JsonFormat(pattern = "dd/MM/yyyy")
+    @Schema(description = "Fecha de entrada", example = "10/10/2023")
+    private Date entryDate;
+
+    @JsonFormat(pattern = "dd/MM/yyyy")
+    @Schema(description = "Fecha de salida", example = "15/10/2023")
+    private Date exitDate;
+
+    @Schema(description = "Precio total de la reserva", example = "40")
+    private BigDecimal totalPrice;
+
+    @Schema(description = "Estado de la reserva despues del cambio", example = "CONFIRMADA")
+    private Status status;
+}
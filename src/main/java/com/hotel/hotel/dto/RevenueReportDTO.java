@@ -0,0 +1,49 @@
+package com.hotel.hotel.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+@Getter
+@AllArgsConstructor
+@Schema(description = "dto con los ingresos y la ocupacion de un periodo")
+public class RevenueReportDTO {
+    @Schema(description = "fecha de la primera noche del periodo", example = "2023-10-01")
+    private Date period;
+
+    @Schema(description = "tipo de habitacion, es nulo si el informe no se agrupa por tipo", example = "Doble")
+    private String type;
+
+    @Schema(description = "numero de habitaciones", example = "12")
+    private int rooms;
+
+    @Schema(description = "noches disponibles sumando todas las habitaciones", example = "372")
+    private long availableNights;
+
+    @Schema(description = "noches vendidas sumando todas las habitaciones", example = "248")
+    private long soldNights;
+
+    @Schema(description = "ingresos de las noches vendidas del periodo", example = "9920.00")
+    private BigDecimal revenue;
+
+    @Schema(description = "ingreso medio por noche vendida (ADR)", example = "40.0")
+    private double adr;
+
+    @Schema(description = "ingreso medio por noche disponible (RevPAR)", example = "26.67")
+    private double revpar;
+
+    @Schema(description = "noches vendidas entre noches disponibles", example = "0.67")
+    private double occupancy;
+
+    @Schema(description = "reservas con entrada en el periodo", example = "60")
+    private long arrivals;
+
+    @Schema(description = "reservas canceladas con entrada en el periodo", example = "6")
+    private long cancellations;
+
+    @Schema(description = "reservas canceladas entre reservas con entrada en el periodo", example = "0.1")
+    private double cancellationRate;
+}
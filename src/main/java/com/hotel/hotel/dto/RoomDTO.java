@@ -11,6 +11,8 @@ import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.Map;
+
 @Getter @Setter
 @Schema(description = "dto con los datos a enviar de una habitacion")
 public class RoomDTO {
@@ -46,4 +48,10 @@ public class RoomDTO {
     @Column(name = "image")
     @Schema(description = "Imagen de la habitacion", example = "C:/images/room.jpg")
     private String image;
+
+    @Schema(description = "Resumen de las calificaciones de la habitacion")
+    private RatingDTO rating;
+
+    @Schema(description = "Urls de las versiones reducidas de la imagen indexadas por su nombre", example = "{\"thumb\": \"/api/rooms/images/9f86d081-thumb.jpg\"}")
+    private Map<String, String> variants;
 }
@@ -0,0 +1,45 @@
+package com.hotel.hotel.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "daily_stats")
+@IdClass(DailyStatId.class)
+@Schema(description = "Entidad con los contadores de las reservas de un dia y un tipo de habitacion")
+@Data
+public class DailyStat {
+    @Id
+    @Column(name = "stat_date")
+    @Schema(description = "Dia", example = "2023-10-10")
+    private LocalDate day;
+
+    @Id
+    @Column(name = "room_type", length = 50)
+    @Schema(description = "Tipo de habitacion", example = "Doble")
+    private String roomType;
+
+    @Column(name = "nights_sold")
+    @Schema(description = "Habitaciones ocupadas esa noche por reservas no canceladas", example = "8")
+    private long nightsSold;
+
+    @Column(name = "revenue", precision = 14, scale = 2)
+    @Schema(description = "Parte del precio de las reservas no canceladas que corresponde a esa noche", example = "480.00")
+    private BigDecimal revenue;
+
+    @Column(name = "arrivals")
+    @Schema(description = "Reservas no canceladas que entran ese dia", example = "3")
+    private long arrivals;
+
+    @Column(name = "departures")
+    @Schema(description = "Reservas no canceladas que salen ese dia", example = "2")
+    private long departures;
+
+    @Column(name = "cancellations")
+    @Schema(description = "Reservas canceladas que entraban ese dia", example = "1")
+    private long cancellations;
+}
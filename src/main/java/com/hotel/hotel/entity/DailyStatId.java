@@ -0,0 +1,19 @@
+package com.hotel.hotel.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Clave de los contadores diarios, un dia y un tipo de habitacion
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyStatId implements Serializable {
+    private LocalDate day;
+    private String roomType;
+}
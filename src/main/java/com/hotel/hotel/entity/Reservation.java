@@ -39,6 +39,10 @@ public class Reservation {
     @Schema(description = "habitacion asociada a la reserva")
     private Room room;
 
+    @Column(name = "room_type", length = 50)
+    @Schema(description = "Tipo de la habitacion al hacer la reserva", example = "Doble")
+    private String roomType;
+
     @Column(name = "entry_date")
     @NotNull(message = "error.reservation.entry")
     @Schema(description = "fecha de entrada", example = "10/10/2023")
@@ -0,0 +1,80 @@
+package com.hotel.hotel.entity;
+
+import com.hotel.hotel.other.ChangeType;
+import com.hotel.hotel.other.Status;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+@Entity
+@Table(name = "reservation_change")
+@Data
+@NoArgsConstructor
+@Schema(description = "Entidad con un cambio de estado de una reserva pendiente de pasar al registro de cambios")
+public class ReservationChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    @Schema(description = "Id del cambio", example = "1")
+    private Long id;
+
+    @Column(name = "change_type", length = 20, nullable = false)
+    @Enumerated(EnumType.STRING)
+    @Schema(description = "Tipo de cambio", example = "RESERVED")
+    private ChangeType type;
+
+    @Column(name = "change_date", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    @Schema(description = "Momento del cambio")
+    private Date changeDate;
+
+    @Column(name = "reservation_id", nullable = false)
+    @Schema(description = "Id de la reserva", example = "1")
+    private Long reservationId;
+
+    @Column(name = "room_id", nullable = false)
+    @Schema(description = "Id de la habitacion", example = "1")
+    private Long roomId;
+
+    @Column(name = "user_id")
+    @Schema(description = "Id del usuario", example = "1")
+    private Long userId;
+
+    @Column(name = "entry_date", nullable = false)
+    @Schema(description = "fecha de entrada", example = "10/10/2023")
+    private Date entryDate;
+
+    @Column(name = "exit_date", nullable = false)
+    @Schema(description = "fecha de salida", example = "15/10/2023")
+    private Date exitDate;
+
+    @Column(name = "total_price", precision = 10, scale = 2)
+    @Schema(description = "Precio total de la reserva", example = "100")
+    private BigDecimal totalPrice;
+
+    @Column(name = "status", length = 20, nullable = false)
+    @Enumerated(EnumType.STRING)
+    @Schema(description = "Estado de la reserva despues del cambio", example = "PENDIENTE")
+    private Status status;
+
+    /**
+     * @param type        es el tipo de cambio
+     * @param changeDate  es el momento del cambio
+     * @param reservation es la reserva con el nuevo estado
+     */
+    public ReservationChange(ChangeType type, Date changeDate, Reservation reservation) {
+        this.type = type;
+        this.changeDate = changeDate;
+        this.reservationId = reservation.getId();
+        this.roomId = reservation.getRoom().getId();
+        this.userId = reservation.getUser() == null ? null : reservation.getUser().getId();
+        this.entryDate = reservation.getEntryDate();
+        this.exitDate = reservation.getExitDate();
+        this.totalPrice = reservation.getTotalPrice();
+        this.status = reservation.getStatus();
+    }
+}
@@ -44,4 +44,9 @@ public class Room {
     @Column(name = "image")
     @Schema(description = "Imagen de la habitacion", example = "C:/imagenes/room.jpg")
     private String image;
+
+    @Size(max = 64)
+    @Column(name = "image_hash")
+    @Schema(description = "SHA-256 del contenido de la imagen, da nombre a sus variantes", example = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08")
+    private String imageHash;
 }
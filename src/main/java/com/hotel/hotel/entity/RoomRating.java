@@ -0,0 +1,48 @@
+package com.hotel.hotel.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.Data;
+
+@Entity
+@Table(name = "room_rating")
+@Schema(description = "Entidad con el resumen de las calificaciones de una habitacion")
+@Data
+public class RoomRating {
+    @Id
+    @Column(name = "room_id")
+    @Schema(description = "Id de la habitacion", example = "1")
+    private Long roomId;
+
+    @Column(name = "comments")
+    @Schema(description = "Numero de comentarios con calificacion", example = "12")
+    private long comments;
+
+    @Column(name = "qualification_sum")
+    @Schema(description = "Suma de las calificaciones", example = "51")
+    private long qualificationSum;
+
+    @Column(name = "stars_1")
+    @Schema(description = "Numero de calificaciones de 1", example = "0")
+    private long stars1;
+
+    @Column(name = "stars_2")
+    @Schema(description = "Numero de calificaciones de 2", example = "1")
+    private long stars2;
+
+    @Column(name = "stars_3")
+    @Schema(description = "Numero de calificaciones de 3", example = "1")
+    private long stars3;
+
+    @Column(name = "stars_4")
+    @Schema(description = "Numero de calificaciones de 4", example = "4")
+    private long stars4;
+
+    @Column(name = "stars_5")
+    @Schema(description = "Numero de calificaciones de 5", example = "6")
+    private long stars5;
+
+    @Column(name = "version")
+    @Schema(description = "Numero de modificaciones del resumen", example = "14")
+    private long version;
+}
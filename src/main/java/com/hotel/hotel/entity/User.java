@@ -43,4 +43,8 @@ public class User {
     @Enumerated(EnumType.STRING)
     @Schema(description = "Tipo del usuario", example = "ADMIN")
     private Role type;
+
+    @Column(name = "token_version", nullable = false)
+    @Schema(description = "Version de los tokens del usuario, se incrementa para invalidar los tokens emitidos", example = "0")
+    private int tokenVersion;
 }
@@ -0,0 +1,7 @@
+package com.hotel.hotel.exception;
+
+public class FileStorageException extends RuntimeException {
+    public FileStorageException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.hotel.hotel.other;
+
+/**
+ * Cambios de estado de una reserva que se publican en el registro de cambios
+ */
+public enum ChangeType {
+    RESERVED, CONFIRMED, CANCELLED
+}
@@ -0,0 +1,33 @@
+package com.hotel.hotel.other;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Versiones redimensionadas que se generan de la imagen de cada habitacion
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ImageVariant {
+    THUMBNAIL("thumb", 320),
+    MEDIUM("medium", 1024);
+
+    /**
+     * Sufijo del fichero y nombre de la variante en los dtos
+     */
+    private final String suffix;
+    /**
+     * Ancho maximo en pixeles, las imagenes mas estrechas no se amplian
+     */
+    private final int width;
+
+    /**
+     * Este metodo permite obtener el nombre del fichero de la variante de una imagen
+     *
+     * @param hash es el hash del contenido de la imagen original
+     * @return el nombre del fichero
+     */
+    public String fileName(String hash) {
+        return hash + "-" + suffix + ".jpg";
+    }
+}
@@ -0,0 +1,8 @@
+package com.hotel.hotel.other;
+
+/**
+ * Periodos en los que se agrupan los informes de ingresos y ocupacion
+ */
+public enum ReportPeriod {
+    DAY, MONTH
+}
@@ -1,14 +1,35 @@
 package com.hotel.hotel.repository;
 
 import com.hotel.hotel.entity.Comment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment,Long> {
+    @Override
+    @EntityGraph(attributePaths = {"user", "room"})
+    List<Comment> findAll();
+
+    @EntityGraph(attributePaths = {"user", "room"})
     List<Comment> findByRoomId(Long roomId);
+
+    @EntityGraph(attributePaths = {"user", "room"})
     List<Comment> findByUserId(Long userId);
 
+    @EntityGraph(attributePaths = {"user", "room"})
+    List<Comment> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "room"})
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT c FROM Comment c ORDER BY c.id")
+    Stream<Comment> streamAll();
 }
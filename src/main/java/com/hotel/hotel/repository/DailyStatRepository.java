@@ -0,0 +1,41 @@
+package com.hotel.hotel.repository;
+
+import com.hotel.hotel.entity.DailyStat;
+import com.hotel.hotel.entity.DailyStatId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyStatRepository extends JpaRepository<DailyStat, DailyStatId> {
+    /**
+     * Suma los incrementos a los contadores de un dia y un tipo de habitacion en una sola sentencia, creando
+     * la fila si aun no existia
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO daily_stats (stat_date, room_type, nights_sold, revenue, arrivals, departures, cancellations)
+            VALUES (:day, :roomType, :nights, :revenue, :arrivals, :departures, :cancellations)
+            ON DUPLICATE KEY UPDATE
+                nights_sold = nights_sold + :nights,
+                revenue = revenue + :revenue,
+                arrivals = arrivals + :arrivals,
+                departures = departures + :departures,
+                cancellations = cancellations + :cancellations
+            """, nativeQuery = true)
+    void add(@Param("day") LocalDate day, @Param("roomType") String roomType, @Param("nights") long nights,
+             @Param("revenue") BigDecimal revenue, @Param("arrivals") long arrivals,
+             @Param("departures") long departures, @Param("cancellations") long cancellations);
+
+    List<DailyStat> findByDayBetweenOrderByDayAscRoomTypeAsc(LocalDate from, LocalDate to);
+
+    List<DailyStat> findByDayBetweenAndRoomTypeOrderByDayAsc(LocalDate from, LocalDate to, String roomType);
+}
@@ -0,0 +1,16 @@
+package com.hotel.hotel.repository;
+
+import com.hotel.hotel.entity.Reservation;
+
+import java.util.List;
+
+/**
+ * Operaciones de ReservationRepository que se hacen con JDBC en lugar de con JPA
+ */
+public interface ReservationBatchRepository {
+    /**
+     * Inserta las reservas en lotes de sentencias JDBC y asigna a cada una el id generado. Las reservas se
+     * guardan directamente en la tabla, sin pasar por el contexto de persistencia
+     */
+    void insertAll(List<Reservation> reservations);
+}
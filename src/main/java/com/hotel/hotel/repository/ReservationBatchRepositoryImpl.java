@@ -0,0 +1,73 @@
+package com.hotel.hotel.repository;
+
+import com.hotel.hotel.entity.Reservation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Implementacion de ReservationBatchRepository. Como el id de las reservas es IDENTITY, Hibernate no puede
+ * agrupar las inserciones y lanza una sentencia por reserva, por lo que se insertan con un PreparedStatement
+ * en lotes. Con rewriteBatchedStatements en la url de MySQL cada lote se envia como un unico INSERT con
+ * varias filas
+ */
+public class ReservationBatchRepositoryImpl implements ReservationBatchRepository {
+    private static final String INSERT = """
+            INSERT INTO reservation (user_id, room_id, room_type, entry_date, exit_date, creation_date, total_price, status)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    /**
+     * Numero maximo de reservas de cada lote
+     */
+    private final int batchSize;
+
+    public ReservationBatchRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                          @Value("${reservations.batch.jdbc-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void insertAll(List<Reservation> reservations) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < reservations.size(); from += batchSize) {
+                    List<Reservation> batch = reservations.subList(from, Math.min(from + batchSize, reservations.size()));
+                    for (Reservation reservation : batch) {
+                        statement.setLong(1, reservation.getUser().getId());
+                        statement.setLong(2, reservation.getRoom().getId());
+                        statement.setString(3, reservation.getRoomType());
+                        statement.setTimestamp(4, new Timestamp(reservation.getEntryDate().getTime()));
+                        statement.setTimestamp(5, new Timestamp(reservation.getExitDate().getTime()));
+                        statement.setTimestamp(6, Timestamp.valueOf(reservation.getCreationDate()));
+                        statement.setBigDecimal(7, reservation.getTotalPrice());
+                        statement.setString(8, reservation.getStatus().name());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (Reservation reservation : batch) {
+                            if (!keys.next()) {
+                                throw new IncorrectResultSizeDataAccessException(batch.size());
+                            }
+                            reservation.setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+}
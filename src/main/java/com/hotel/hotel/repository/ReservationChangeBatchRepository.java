@@ -0,0 +1,16 @@
+package com.hotel.hotel.repository;
+
+import com.hotel.hotel.entity.ReservationChange;
+
+import java.util.List;
+
+/**
+ * Operaciones de ReservationChangeRepository que se hacen con JDBC en lugar de con JPA
+ */
+public interface ReservationChangeBatchRepository {
+    /**
+     * Inserta los cambios en lotes de sentencias JDBC sin leer los ids generados, que solo se usan para
+     * leerlos en orden
+     */
+    void insertAll(List<ReservationChange> changes);
+}
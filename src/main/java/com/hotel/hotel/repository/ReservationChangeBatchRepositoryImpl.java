@@ -0,0 +1,55 @@
+package com.hotel.hotel.repository;
+
+import com.hotel.hotel.entity.ReservationChange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Implementacion de ReservationChangeBatchRepository. Los cambios de un lote de reservas se insertan con
+ * un PreparedStatement en lotes, igual que las reservas, en lugar de una sentencia por cambio
+ */
+public class ReservationChangeBatchRepositoryImpl implements ReservationChangeBatchRepository {
+    private static final String INSERT = """
+            INSERT INTO reservation_change (change_type, change_date, reservation_id, room_id, user_id, entry_date,
+                                            exit_date, total_price, status)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    /**
+     * Numero maximo de cambios de cada lote
+     */
+    private final int batchSize;
+
+    public ReservationChangeBatchRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                                @Value("${reservations.batch.jdbc-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void insertAll(List<ReservationChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, changes, batchSize, (statement, change) -> {
+            statement.setString(1, change.getType().name());
+            statement.setTimestamp(2, new Timestamp(change.getChangeDate().getTime()));
+            statement.setLong(3, change.getReservationId());
+            statement.setLong(4, change.getRoomId());
+            if (change.getUserId() == null) {
+                statement.setNull(5, Types.BIGINT);
+            } else {
+                statement.setLong(5, change.getUserId());
+            }
+            statement.setTimestamp(6, new Timestamp(change.getEntryDate().getTime()));
+            statement.setTimestamp(7, new Timestamp(change.getExitDate().getTime()));
+            statement.setBigDecimal(8, change.getTotalPrice());
+            statement.setString(9, change.getStatus().name());
+        });
+    }
+}
@@ -0,0 +1,13 @@
+package com.hotel.hotel.repository;
+
+import com.hotel.hotel.entity.ReservationChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReservationChangeRepository extends JpaRepository<ReservationChange, Long>, ReservationChangeBatchRepository {
+    List<ReservationChange> findByOrderByIdAsc(Pageable pageable);
+}
@@ -2,16 +2,25 @@ package com.hotel.hotel.repository;
 
 import com.hotel.hotel.entity.Reservation;
 import com.hotel.hotel.other.Status;
+import com.hotel.hotel.repository.projection.ReservationFact;
+import com.hotel.hotel.repository.projection.ReservationStay;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+public interface ReservationRepository extends JpaRepository<Reservation, Long>, ReservationBatchRepository {
     @Query(value = """
             SELECT COUNT(*)
             FROM reservation
@@ -26,9 +35,65 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
             """, nativeQuery = true)
     int isAvailable(@Param("roomId") Long roomId, @Param("entryDate") Date entryDate, @Param("exitDate") Date exitDate);
 
+    @Override
+    @EntityGraph(attributePaths = {"user", "room"})
+    List<Reservation> findAll();
+
+    @EntityGraph(attributePaths = {"user", "room"})
     List<Reservation> findByRoomId(Long roomId);
 
+    @EntityGraph(attributePaths = {"user", "room"})
     List<Reservation> findByUserId(Long userId);
 
+    @EntityGraph(attributePaths = {"user", "room"})
     List<Reservation> findByStatusIn(List<Status> status);
+
+    @EntityGraph(attributePaths = {"room"})
+    List<Reservation> findByUserIdAndStatusNot(Long userId, Status status);
+
+    @Query("""
+            SELECT r.id AS id, r.room.id AS roomId, r.entryDate AS entryDate, r.exitDate AS exitDate
+            FROM Reservation r
+            WHERE r.status <> :status
+            """)
+    List<ReservationStay> findStaysByStatusNot(@Param("status") Status status);
+
+    @Query("""
+            SELECT r.id AS id, r.room.id AS roomId, r.entryDate AS entryDate, r.exitDate AS exitDate
+            FROM Reservation r
+            WHERE r.room.id = :roomId AND r.status <> :status
+            """)
+    List<ReservationStay> findStaysByRoomIdAndStatusNot(@Param("roomId") Long roomId, @Param("status") Status status);
+
+    @Query("""
+            SELECT r.id AS id, r.room.id AS roomId, r.entryDate AS entryDate, r.exitDate AS exitDate
+            FROM Reservation r
+            WHERE r.id > :id AND r.status <> :status
+            """)
+    List<ReservationStay> findStaysByIdGreaterThanAndStatusNot(@Param("id") Long id, @Param("status") Status status);
+
+    @Query("""
+            SELECT r.id AS id, r.room.id AS roomId, r.roomType AS roomType, r.entryDate AS entryDate,
+                   r.exitDate AS exitDate, r.totalPrice AS totalPrice, r.status AS status
+            FROM Reservation r
+            WHERE r.id > :id
+            ORDER BY r.id
+            """)
+    List<ReservationFact> findFactsByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    /**
+     * Cambia el estado de una reserva solo si sigue en el estado leido, por lo que de dos cambios simultaneos
+     * solo uno modifica la fila
+     */
+    @Modifying
+    @Query("UPDATE Reservation r SET r.status = :status WHERE r.id = :id AND r.status = :previous")
+    int updateStatus(@Param("id") Long id, @Param("previous") Status previous, @Param("status") Status status);
+
+    @EntityGraph(attributePaths = {"user", "room"})
+    List<Reservation> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "room"})
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT r FROM Reservation r ORDER BY r.id")
+    Stream<Reservation> streamAll();
 }
@@ -0,0 +1,69 @@
+package com.hotel.hotel.repository;
+
+import com.hotel.hotel.entity.RoomRating;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface RoomRatingRepository extends JpaRepository<RoomRating, Long> {
+    /**
+     * Suma o resta una calificacion al resumen de la habitacion en una sola sentencia, creando el resumen
+     * si la habitacion aun no tenia
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO room_rating (room_id, comments, qualification_sum, stars_1, stars_2, stars_3, stars_4, stars_5, version)
+            VALUES (:roomId, :delta, :delta * :qualification,
+                    CASE WHEN :qualification = 1 THEN :delta ELSE 0 END,
+                    CASE WHEN :qualification = 2 THEN :delta ELSE 0 END,
+                    CASE WHEN :qualification = 3 THEN :delta ELSE 0 END,
+                    CASE WHEN :qualification = 4 THEN :delta ELSE 0 END,
+                    CASE WHEN :qualification = 5 THEN :delta ELSE 0 END, 1)
+            ON DUPLICATE KEY UPDATE
+                comments = comments + :delta,
+                qualification_sum = qualification_sum + :delta * :qualification,
+                stars_1 = stars_1 + CASE WHEN :qualification = 1 THEN :delta ELSE 0 END,
+                stars_2 = stars_2 + CASE WHEN :qualification = 2 THEN :delta ELSE 0 END,
+                stars_3 = stars_3 + CASE WHEN :qualification = 3 THEN :delta ELSE 0 END,
+                stars_4 = stars_4 + CASE WHEN :qualification = 4 THEN :delta ELSE 0 END,
+                stars_5 = stars_5 + CASE WHEN :qualification = 5 THEN :delta ELSE 0 END,
+                version = version + 1
+            """, nativeQuery = true)
+    void add(@Param("roomId") Long roomId, @Param("qualification") int qualification, @Param("delta") int delta);
+
+    /**
+     * Vuelve a calcular el resumen de la habitacion a partir de sus comentarios
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO room_rating (room_id, comments, qualification_sum, stars_1, stars_2, stars_3, stars_4, stars_5, version)
+            SELECT :roomId, COUNT(c.qualification), COALESCE(SUM(c.qualification), 0),
+                   COALESCE(SUM(CASE WHEN c.qualification = 1 THEN 1 ELSE 0 END), 0),
+                   COALESCE(SUM(CASE WHEN c.qualification = 2 THEN 1 ELSE 0 END), 0),
+                   COALESCE(SUM(CASE WHEN c.qualification = 3 THEN 1 ELSE 0 END), 0),
+                   COALESCE(SUM(CASE WHEN c.qualification = 4 THEN 1 ELSE 0 END), 0),
+                   COALESCE(SUM(CASE WHEN c.qualification = 5 THEN 1 ELSE 0 END), 0), 1
+            FROM comment c WHERE c.room_id = :roomId
+            ON DUPLICATE KEY UPDATE
+                comments = VALUES(comments),
+                qualification_sum = VALUES(qualification_sum),
+                stars_1 = VALUES(stars_1),
+                stars_2 = VALUES(stars_2),
+                stars_3 = VALUES(stars_3),
+                stars_4 = VALUES(stars_4),
+                stars_5 = VALUES(stars_5),
+                version = version + 1
+            """, nativeQuery = true)
+    void rebuild(@Param("roomId") Long roomId);
+
+    @Query("SELECT DISTINCT c.room.id FROM Comment c WHERE c.user.id = :userId AND c.room IS NOT NULL")
+    List<Long> findRoomIdsCommentedBy(@Param("userId") Long userId);
+}
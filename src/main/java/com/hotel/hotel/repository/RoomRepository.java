@@ -1,13 +1,19 @@
 package com.hotel.hotel.repository;
 
 import com.hotel.hotel.entity.Room;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface RoomRepository extends JpaRepository<Room,Long> {
@@ -15,4 +21,23 @@ public interface RoomRepository extends JpaRepository<Room,Long> {
     List<Room> findByPriceBetween(int min, int max);
 
     List<Room> findByTypeIn(List<String> types);
+
+    boolean existsByImageHash(String imageHash);
+
+    @Query("""
+            SELECT r FROM Room r
+            WHERE NOT EXISTS (
+                SELECT 1 FROM Reservation res
+                WHERE res.room = r
+                AND res.status <> com.hotel.hotel.other.Status.CANCELADA
+                AND res.entryDate <= :exitDate AND res.exitDate >= :entryDate
+            )
+            """)
+    List<Room> findAvailable(@Param("entryDate") Date entryDate, @Param("exitDate") Date exitDate);
+
+    List<Room> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT r FROM Room r ORDER BY r.id")
+    Stream<Room> streamAll();
 }
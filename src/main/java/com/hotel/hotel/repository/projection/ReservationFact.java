@@ -0,0 +1,29 @@
+package com.hotel.hotel.repository.projection;
+
+import com.hotel.hotel.other.Status;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Proyeccion con los datos de una reserva necesarios para los informes de ingresos y ocupacion,
+ * evitando cargar el usuario y la habitacion
+ */
+public interface ReservationFact {
+    Long getId();
+
+    Long getRoomId();
+
+    /**
+     * Tipo de la habitacion al reservar, nulo en las reservas anteriores a guardarlo
+     */
+    String getRoomType();
+
+    Date getEntryDate();
+
+    Date getExitDate();
+
+    BigDecimal getTotalPrice();
+
+    Status getStatus();
+}
@@ -0,0 +1,17 @@
+package com.hotel.hotel.repository.projection;
+
+import java.util.Date;
+
+/**
+ * Proyeccion con los datos minimos de una reserva necesarios para conocer
+ * la ocupacion de una habitacion, evitando cargar el usuario y la habitacion
+ */
+public interface ReservationStay {
+    Long getId();
+
+    Long getRoomId();
+
+    Date getEntryDate();
+
+    Date getExitDate();
+}
@@ -2,7 +2,9 @@ package com.hotel.hotel.service;
 
 import com.hotel.hotel.dto.CommentDTO;
 import com.hotel.hotel.dto.InsertCommentDTO;
+import com.hotel.hotel.dto.KeysetPageDTO;
 
+import java.io.OutputStream;
 import java.util.List;
 
 public interface CommentService {
@@ -17,4 +19,8 @@ public interface CommentService {
     List<CommentDTO> findByUser(Long id);
 
     void delete(Long id, Long userId);
+
+    KeysetPageDTO<CommentDTO> getCommentsPage(Long after, Integer size);
+
+    void exportAllComments(OutputStream out);
 }
@@ -3,7 +3,16 @@ package com.hotel.hotel.service;
 import org.springframework.web.multipart.MultipartFile;
 
 public interface FileService {
-    String uploadImage(MultipartFile file, String directory);
+    StoredImage uploadImage(MultipartFile file, String directory);
 
     void remove(String image);
+
+    /**
+     * Imagen guardada en disco
+     *
+     * @param path es la ruta completa de la imagen
+     * @param hash es el SHA-256 del contenido en hexadecimal, identifica las variantes de la imagen
+     */
+    record StoredImage(String path, String hash) {
+    }
 }
@@ -1,15 +1,26 @@
 package com.hotel.hotel.service;
 
+import com.hotel.hotel.dto.BatchReservationDTO;
+import com.hotel.hotel.dto.ChangeFeedDTO;
+import com.hotel.hotel.dto.DailyStatDTO;
 import com.hotel.hotel.dto.InsertReservationDTO;
+import com.hotel.hotel.dto.KeysetPageDTO;
+import com.hotel.hotel.dto.OccupancyDTO;
 import com.hotel.hotel.dto.ReservationDTO;
+import com.hotel.hotel.dto.RevenueReportDTO;
+import com.hotel.hotel.dto.RoomDTO;
 import com.hotel.hotel.entity.Reservation;
+import com.hotel.hotel.other.ReportPeriod;
 import com.hotel.hotel.other.Status;
 
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
 
 public interface ReservationService {
     ReservationDTO reserve(InsertReservationDTO dto, Long userId);
+
+    List<BatchReservationDTO> reserveAll(List<InsertReservationDTO> dtos, Long userId);
     boolean isValidDateRange(InsertReservationDTO reservationDTO);
     boolean isAvailable(Long id, Date entry, Date exit);
     int calculateDays(Date entry, Date exit);
@@ -26,5 +37,27 @@ public interface ReservationService {
 
     ReservationDTO cancel(Long id, Long userId);
 
+    List<Reservation> findStaysByUser(Long userId);
+
+    void releaseDeleted(List<Reservation> reservations);
+
     String getAvailability(Long id, Date entry, Date exit);
+
+    List<RoomDTO> findAvailableRooms(Date entry, Date exit, List<String> types, Integer capacity, Long min, Long max);
+
+    OccupancyDTO getOccupancy(Date from, Date to);
+
+    long countFreeRooms(Date entry, Date exit);
+
+    List<RevenueReportDTO> getRevenueReport(Date from, Date to, ReportPeriod period, boolean byType);
+
+    List<DailyStatDTO> getDailyStats(Date from, Date to, String roomType);
+
+    long rebuildDailyStats();
+
+    ChangeFeedDTO getChanges(long from, Integer limit);
+
+    KeysetPageDTO<ReservationDTO> getReservesPage(Long after, Integer size);
+
+    void exportAllReserves(OutputStream out);
 }
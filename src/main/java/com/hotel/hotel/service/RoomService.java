@@ -1,11 +1,14 @@
 package com.hotel.hotel.service;
 
+import com.hotel.hotel.dto.CacheStatsDTO;
 import com.hotel.hotel.dto.InsertRoomDTO;
+import com.hotel.hotel.dto.KeysetPageDTO;
 import com.hotel.hotel.dto.RoomDTO;
 import com.hotel.hotel.entity.Room;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
 
@@ -23,8 +26,19 @@ public interface RoomService {
 
     List<RoomDTO> findByPrice(int min, int max);
 
+    List<RoomDTO> search(List<String> types, Integer capacity, Long min, Long max);
+
+    List<RoomDTO> getRanking(Integer size);
+
     RoomDTO update(RoomDTO dto);
 
     RoomDTO updateImage(Long id, MultipartFile file,String path);
 
+    List<RoomDTO> findAvailable(Date entry, Date exit);
+
+    KeysetPageDTO<RoomDTO> getRoomsPage(Long after, Integer size);
+
+    void exportAllRooms(OutputStream out);
+
+    CacheStatsDTO getCacheStats();
 }
@@ -1,10 +1,13 @@
 package com.hotel.hotel.service;
 
 import com.hotel.hotel.dto.InsertUserDTO;
+import com.hotel.hotel.dto.KeysetPageDTO;
 import com.hotel.hotel.dto.LoginUserDTO;
 import com.hotel.hotel.dto.UserDTO;
 import com.hotel.hotel.entity.User;
+import com.hotel.hotel.other.Role;
 
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Locale;
 
@@ -24,4 +27,10 @@ public interface UserService {
     UserDTO update(UserDTO userDTO, Long id);
 
     String updatePassword(String password, Long id);
+
+    UserDTO updateRole(Long id, Role role);
+
+    KeysetPageDTO<UserDTO> getUsersPage(Long after, Integer size);
+
+    void exportAllUsers(OutputStream out);
 }
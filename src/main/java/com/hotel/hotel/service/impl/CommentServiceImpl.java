@@ -1,7 +1,12 @@
 package com.hotel.hotel.service.impl;
 
 import com.hotel.hotel.components.DTOConverter;
+import com.hotel.hotel.components.HotelMetrics;
+import com.hotel.hotel.components.JsonStreamWriter;
+import com.hotel.hotel.components.Pagination;
+import com.hotel.hotel.components.RoomRatings;
 import com.hotel.hotel.dto.CommentDTO;
+import com.hotel.hotel.dto.KeysetPageDTO;
 import com.hotel.hotel.entity.Comment;
 import com.hotel.hotel.dto.InsertCommentDTO;
 import com.hotel.hotel.entity.Room;
@@ -11,15 +16,20 @@ import com.hotel.hotel.repository.CommentRepository;
 import com.hotel.hotel.service.CommentService;
 import com.hotel.hotel.service.RoomService;
 import com.hotel.hotel.service.UserService;
+import io.micrometer.core.annotation.Timed;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.OutputStream;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
+@Timed(value = HotelMetrics.SERVICE_TIMER, histogram = true)
 public class CommentServiceImpl implements CommentService {
     /**
      * Instancia del convertir de dtos
@@ -37,6 +47,22 @@ public class CommentServiceImpl implements CommentService {
      * Intancia del servicio de repositorios
      */
     private CommentRepository repository;
+    /**
+     * Instancia del componente que pagina los listados por id
+     */
+    private Pagination pagination;
+    /**
+     * Instancia del componente que escribe los listados completos en JSON sin cargarlos en memoria
+     */
+    private JsonStreamWriter jsonStreamWriter;
+    /**
+     * Instancia del componente que mantiene el resumen de las calificaciones de cada habitacion
+     */
+    private RoomRatings roomRatings;
+    /**
+     * Plantilla para guardar el comentario y su calificacion en la misma transaccion
+     */
+    private TransactionTemplate transactionTemplate;
 
     /**
      * Este metodo permite guardar un comentario en la base de datos
@@ -50,7 +76,13 @@ public class CommentServiceImpl implements CommentService {
         Comment comment = converter.convertDTOToComment(dto);
         comment.setUser(userService.findById(id));
         comment.setRoom(roomService.findById(dto.getRoomId()));
-        return converter.convertCommentToDTO(repository.save(comment));
+        Comment dbComment = transactionTemplate.execute(status -> {
+            Comment saved = repository.save(comment);
+            roomRatings.add(saved.getRoom().getId(), saved.getQualification());
+            return saved;
+        });
+        roomRatings.refresh(dbComment.getRoom().getId());
+        return converter.convertCommentToDTO(dbComment);
     }
 
     /**
@@ -116,10 +148,39 @@ public class CommentServiceImpl implements CommentService {
         Comment comment = repository.findById(id).orElseThrow(() -> new NoSuchElementException("error.comment.id"));
         User user = userService.findById(userId);
         if(user.getType().equals(Role.ADMIN) || comment.getUser().equals(user)){
-            repository.delete(comment);
+            Long roomId = comment.getRoom() == null ? null : comment.getRoom().getId();
+            transactionTemplate.executeWithoutResult(status -> {
+                repository.delete(comment);
+                roomRatings.remove(roomId, comment.getQualification());
+            });
+            roomRatings.refresh(roomId);
             return;
         }
         throw new NoSuchElementException("error.comment.id");
 
     }
+
+    /**
+     * Este metodo permite obtener una pagina de los comentarios ordenados por id
+     *
+     * @param after es el ultimo id de la pagina anterior, si es nulo se empieza por el principio
+     * @param size  es el numero de elementos de la pagina, si es nulo se usa el tamano por defecto
+     * @return la pagina con los dtos y el id para pedir la siguiente
+     */
+    @Override
+    public KeysetPageDTO<CommentDTO> getCommentsPage(Long after, Integer size) {
+        Pageable limit = pagination.limit(size);
+        List<Comment> rows = repository.findByIdGreaterThanOrderByIdAsc(pagination.after(after), limit);
+        return pagination.page(rows, limit, Comment::getId, converter::convertCommentToDTO);
+    }
+
+    /**
+     * Este metodo permite escribir todos los comentarios como array JSON sin cargarlos en memoria
+     *
+     * @param out es la salida en la que se escribe el JSON
+     */
+    @Override
+    public void exportAllComments(OutputStream out) {
+        jsonStreamWriter.write(out, repository::streamAll, converter::convertCommentToDTO);
+    }
 }
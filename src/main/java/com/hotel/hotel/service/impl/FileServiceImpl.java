@@ -1,58 +1,169 @@
 package com.hotel.hotel.service.impl;
 
+import com.hotel.hotel.components.BoundedExecutor;
+import com.hotel.hotel.exception.FileStorageException;
 import com.hotel.hotel.service.FileService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.UUID;
 
+/**
+ * Guarda las imagenes de las habitaciones en disco. La imagen se copia del stream de la peticion al fichero
+ * con canales NIO en bloques, sin cargarla entera en memoria, y el formato se obtiene de los primeros bytes
+ * del contenido en lugar del nombre del fichero. Durante la copia se calcula el SHA-256 del contenido, que
+ * identifica las variantes redimensionadas de la imagen. Las copias se hacen en el pool acotado
+ * imageUploadExecutor, cuando su cola esta llena se rechaza la subida con un 429
+ */
 @Service
 public class FileServiceImpl implements FileService {
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    /**
+     * Numero de bytes que se leen para reconocer el formato
+     */
+    private static final int HEADER_BYTES = 8;
+    /**
+     * Numero maximo de bytes que se copian en cada llamada a transferFrom
+     */
+    private static final long CHUNK_BYTES = 1 << 20;
+
+    /**
+     * Tamano maximo de las imagenes en bytes
+     */
+    private final long maxSize;
+    /**
+     * Pool en el que se copian las imagenes
+     */
+    private final BoundedExecutor executor;
+
+    private final Logger log = LoggerFactory.getLogger(FileServiceImpl.class);
+
+    /**
+     * @param maxSize  es el tamano maximo de las imagenes en bytes
+     * @param executor es el pool en el que se copian las imagenes
+     */
+    public FileServiceImpl(@Value("${images.max-size:5242880}") long maxSize,
+                           @Qualifier("imageUploadExecutor") BoundedExecutor executor) {
+        this.maxSize = maxSize;
+        this.executor = executor;
+    }
+
     /**
      * Este metodo permite guardar una imagen en el servidor
      *
      * @param file      es la imagen que se va a subir
      * @param directory es el directorio al que se va a subir
-     * @return la ruta completa de la imagen en el servidor en formato String
+     * @return la ruta completa de la imagen en el servidor y el hash de su contenido
+     * @throws IllegalArgumentException si la imagen supera el tamano maximo o no es jpeg ni png
+     * @throws FileStorageException     si no se ha podido guardar la imagen
      */
     @Override
-    public String uploadImage(MultipartFile file, String directory) {
-        try {
-            //obtenemos un random uuid para la foto
-            String fileName = UUID.randomUUID().toString();
-            byte[] bytes = file.getBytes();
-            //obtenemos el nombre original de la foto
-            String fileOriginalnName = file.getOriginalFilename();
+    public StoredImage uploadImage(MultipartFile file, String directory) {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("error.imagen.vacia");
+        }
+        //el tamano se vuelve a comprobar al copiar, por si el indicado en la peticion no es el real
+        if (file.getSize() > maxSize) {
+            throw new IllegalArgumentException("error.imagen.tamano");
+        }
+        return executor.call(() -> store(file, Path.of(directory)));
+    }
 
-            //comprobamos que el tamaño del archivo sea el correcto
-            long fileSize = file.getSize();
-            long maxSize = 5 * 1024 * 1024;
-            if (fileSize > maxSize) {
-                throw new IllegalArgumentException("error.imagen.tamano");
-            }
-            if (!file.getOriginalFilename().endsWith(".jpg") && !file.getOriginalFilename().endsWith(".jpeg") && !file.getOriginalFilename().endsWith(".png")) {
-                throw new IllegalArgumentException("error.imagen.formato");
-            }
-            //creamos el nombre del archivo
-            String fileExtension = fileOriginalnName.substring(fileOriginalnName.lastIndexOf("."));
-            String newFileName = fileName + fileExtension;
-            //creamos la carpeta y comprobamos que existe
-            File folder = new File(directory);
-            if (!folder.exists()) {
-                folder.mkdirs();
+    /**
+     * Este metodo permite copiar una imagen a un fichero temporal del directorio y renombrarlo cuando
+     * esta completa, para que nunca quede una imagen a medias con el nombre definitivo
+     *
+     * @param file      es la imagen que se va a subir
+     * @param directory es el directorio al que se va a subir
+     * @return la ruta completa de la imagen y el hash de su contenido
+     */
+    private StoredImage store(MultipartFile file, Path directory) {
+        String fileName = UUID.randomUUID().toString();
+        Path temp = directory.resolve("." + fileName + ".part");
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            byte[] header = in.readNBytes(HEADER_BYTES);
+            String extension = extension(header);
+            Files.createDirectories(directory);
+            try (ReadableByteChannel source = Channels.newChannel(in);
+                 FileChannel target = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                target.write(ByteBuffer.wrap(header));
+                long position = header.length;
+                long copied;
+                while ((copied = target.transferFrom(source, position, CHUNK_BYTES)) > 0) {
+                    position += copied;
+                    if (position > maxSize) {
+                        throw new IllegalArgumentException("error.imagen.tamano");
+                    }
+                }
             }
-            Path path = Paths.get(folder + "//" + newFileName);
-            Files.write(path, bytes);
-            return String.valueOf(path);
+            Path path = directory.resolve(fileName + extension);
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            return new StoredImage(String.valueOf(path), HexFormat.of().formatHex(digest.digest()));
+        } catch (IOException ex) {
+            log.error("No se ha podido guardar la imagen {} en {}", file.getOriginalFilename(), directory, ex);
+            throw new FileStorageException("error.imagen.guardar");
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
 
-        } catch (Exception exception) {
-            exception.printStackTrace();
+    /**
+     * Este metodo permite obtener la extension de una imagen a partir de sus primeros bytes
+     *
+     * @param header son los primeros bytes de la imagen
+     * @return la extension con el punto
+     * @throws IllegalArgumentException si la imagen no es jpeg ni png
+     */
+    private static String extension(byte[] header) {
+        if (startsWith(header, JPEG)) {
+            return ".jpg";
+        }
+        if (startsWith(header, PNG)) {
+            return ".png";
+        }
+        throw new IllegalArgumentException("error.imagen.formato");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static boolean startsWith(byte[] header, byte[] magic) {
+        return header.length >= magic.length && Arrays.equals(header, 0, magic.length, magic, 0, magic.length);
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            log.warn("No se ha podido borrar el fichero temporal {}", path, ex);
         }
-        return "Fallo";
     }
 
     /**
@@ -1,33 +1,67 @@
 package com.hotel.hotel.service.impl;
 
+import com.hotel.hotel.components.AvailabilityIndex;
 import com.hotel.hotel.components.DTOConverter;
+import com.hotel.hotel.components.DailyStatsRollup;
+import com.hotel.hotel.components.DateUtils;
+import com.hotel.hotel.components.HotelMetrics;
+import com.hotel.hotel.components.JsonStreamWriter;
 import com.hotel.hotel.components.MessageComponent;
+import com.hotel.hotel.components.OccupancyCalendar;
+import com.hotel.hotel.components.Pagination;
+import com.hotel.hotel.components.ReservationAnalytics;
+import com.hotel.hotel.components.ReservationChangeLog;
+import com.hotel.hotel.components.RoomLocks;
+import com.hotel.hotel.dto.BatchReservationDTO;
+import com.hotel.hotel.dto.ChangeFeedDTO;
+import com.hotel.hotel.dto.DailyStatDTO;
 import com.hotel.hotel.dto.InsertReservationDTO;
+import com.hotel.hotel.dto.KeysetPageDTO;
+import com.hotel.hotel.dto.OccupancyDTO;
 import com.hotel.hotel.dto.ReservationDTO;
+import com.hotel.hotel.dto.RevenueReportDTO;
 import com.hotel.hotel.dto.RoomDTO;
 import com.hotel.hotel.entity.Reservation;
 import com.hotel.hotel.entity.Room;
 import com.hotel.hotel.entity.User;
 import com.hotel.hotel.exception.RoomNotAvailableException;
+import com.hotel.hotel.other.ChangeType;
+import com.hotel.hotel.other.ReportPeriod;
 import com.hotel.hotel.other.Role;
 import com.hotel.hotel.other.Status;
 import com.hotel.hotel.repository.ReservationRepository;
 import com.hotel.hotel.service.ReservationService;
 import com.hotel.hotel.service.RoomService;
 import com.hotel.hotel.service.UserService;
+import io.micrometer.core.annotation.Timed;
 import jakarta.validation.constraints.AssertTrue;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = HotelMetrics.SERVICE_TIMER, histogram = true)
 public class ReservationServiceImpl implements ReservationService {
     /**
      * Instancia del repositorio
@@ -46,6 +80,63 @@ public class ReservationServiceImpl implements ReservationService {
      */
     private final DTOConverter converter;
     private final MessageComponent message;
+    /**
+     * Indice en memoria con la ocupacion de cada habitacion
+     */
+    private final AvailabilityIndex availabilityIndex;
+    /**
+     * Bloqueos por habitacion para serializar las reservas de una misma habitacion
+     */
+    private final RoomLocks roomLocks;
+    /**
+     * Plantilla para delimitar las transacciones dentro de los bloqueos
+     */
+    private final TransactionTemplate transactionTemplate;
+    /**
+     * Instancia del componente que pagina los listados por id
+     */
+    private final Pagination pagination;
+    /**
+     * Instancia del componente que escribe los listados completos en JSON sin cargarlos en memoria
+     */
+    private final JsonStreamWriter jsonStreamWriter;
+    /**
+     * Calendario de ocupacion por noche de todas las habitaciones
+     */
+    private final OccupancyCalendar occupancyCalendar;
+    /**
+     * Metricas con las reservas rechazadas por no estar disponible la habitacion
+     */
+    private final HotelMetrics metrics;
+    /**
+     * Copia compacta de las reservas con la que se calculan los informes de ingresos y ocupacion
+     */
+    private final ReservationAnalytics analytics;
+    /**
+     * Contadores diarios por tipo de habitacion que se actualizan en la misma transaccion que las reservas
+     */
+    private final DailyStatsRollup dailyStats;
+    /**
+     * Registro de los cambios de estado de las reservas que leen las integraciones
+     */
+    private final ReservationChangeLog changeLog;
+    /**
+     * Indica si la disponibilidad se comprueba con el indice en memoria o con la consulta a la base de datos
+     */
+    @Value("${reservations.availability.index:true}")
+    private boolean useIndex;
+    /**
+     * Indica si el resultado del indice se debe contrastar con la consulta a la base de datos
+     */
+    @Value("${reservations.availability.verify:false}")
+    private boolean verifyIndex;
+    /**
+     * Numero maximo de reservas que se pueden enviar en un lote
+     */
+    @Value("${reservations.batch.max-size:2000}")
+    private int maxBatchSize;
+
+    private final Logger log = LoggerFactory.getLogger(ReservationServiceImpl.class);
 
     /**
      * Este metodo permite insertar una reserva
@@ -56,9 +147,6 @@ public class ReservationServiceImpl implements ReservationService {
      */
     @Override
     public ReservationDTO reserve(InsertReservationDTO dto, Long userId) {
-        if (!isAvailable(dto.getRoomId(), dto.getEntryDate(), dto.getExitDate())) {
-            throw new RoomNotAvailableException("error.room.reservada");
-        }
         if (!isValidDateRange(dto)) {
             throw new IllegalArgumentException("error.reservations.entrada_salida");
         }
@@ -67,11 +155,153 @@ public class ReservationServiceImpl implements ReservationService {
         Room room = converter.convertToRoom(roomdto);
         Reservation reservation = converter.convertDTOToReservation(dto);
         reservation.setRoom(room);
+        reservation.setRoomType(room.getType());
         User user = userService.findById(userId);
         reservation.setUser(user);
         reservation.setTotalPrice(BigDecimal.valueOf(calculateDays(reservation.getEntryDate(), reservation.getExitDate()) * reservation.getRoom().getPrice()));
-        return converter.convertReservationToDTO(repository.save(reservation));
+        //la comprobacion de disponibilidad y el guardado se hacen con el bloqueo de la habitacion adquirido
+        //para que dos reservas simultaneas de la misma habitacion no puedan solaparse
+        Reservation dbReservation = roomLocks.withLock(room.getId(), () -> {
+            if (!isAvailable(room.getId(), reservation.getEntryDate(), reservation.getExitDate())) {
+                metrics.bookingConflict();
+                throw new RoomNotAvailableException("error.room.reservada");
+            }
+            Reservation saved = transactionTemplate.execute(status -> {
+                Reservation inserted = repository.save(reservation);
+                dailyStats.apply(inserted, null);
+                changeLog.stage(ChangeType.RESERVED, inserted);
+                return inserted;
+            });
+            onReserved(saved);
+            changeLog.publish();
+            return saved;
+        });
+        return converter.convertReservationToDTO(dbReservation);
+    }
+
+    /**
+     * Este metodo permite insertar un lote de reservas. Las habitaciones y el usuario se leen una sola vez,
+     * cada reserva se comprueba contra las existentes y contra las anteriores del mismo lote con los bloqueos
+     * de todas las habitaciones adquiridos, y las aceptadas se insertan en una unica transaccion con lotes JDBC
+     *
+     * @param dtos   son los dtos con los datos de las reservas
+     * @param userId es el id del usuario que quiere realizar las reservas
+     * @return el resultado de cada reserva en el mismo orden en el que se han enviado
+     */
+    @Override
+    public List<BatchReservationDTO> reserveAll(List<InsertReservationDTO> dtos, Long userId) {
+        if (dtos.isEmpty() || dtos.size() > maxBatchSize) {
+            throw new IllegalArgumentException("error.reservations.lote");
+        }
+        User user = userService.findById(userId);
+        BatchReservationDTO[] results = new BatchReservationDTO[dtos.size()];
+        Map<Long, Room> rooms = new HashMap<>();
+        Map<Integer, Reservation> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            InsertReservationDTO dto = dtos.get(i);
+            String error = validate(dto);
+            Room room = error == null ? findRoom(dto.getRoomId(), rooms) : null;
+            if (error == null && room == null) {
+                error = "error.room.id";
+            }
+            if (error != null) {
+                results[i] = rejected(i, error);
+                continue;
+            }
+            Reservation reservation = converter.convertDTOToReservation(dto);
+            reservation.setRoom(room);
+            reservation.setRoomType(room.getType());
+            reservation.setUser(user);
+            reservation.setTotalPrice(BigDecimal.valueOf(calculateDays(reservation.getEntryDate(), reservation.getExitDate()) * room.getPrice()));
+            candidates.put(i, reservation);
+        }
+
+        roomLocks.withLocks(rooms.keySet(), () -> {
+            //estancias aceptadas en el lote por habitacion, indexadas por dia de entrada con el de salida
+            Map<Long, TreeMap<Long, Long>> accepted = new HashMap<>();
+            List<Reservation> inserts = new ArrayList<>(candidates.size());
+            for (Iterator<Map.Entry<Integer, Reservation>> it = candidates.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Integer, Reservation> candidate = it.next();
+                Reservation reservation = candidate.getValue();
+                Long roomId = reservation.getRoom().getId();
+                long entry = DateUtils.toEpochDay(reservation.getEntryDate());
+                long exit = DateUtils.toEpochDay(reservation.getExitDate());
+                TreeMap<Long, Long> stays = accepted.computeIfAbsent(roomId, id -> new TreeMap<>());
+                //las estancias aceptadas no se solapan, asi que basta con mirar la ultima que entra antes de la salida
+                Map.Entry<Long, Long> previous = stays.floorEntry(exit);
+                if ((previous != null && previous.getValue() >= entry)
+                        || !isAvailable(roomId, reservation.getEntryDate(), reservation.getExitDate())) {
+                    metrics.bookingConflict();
+                    results[candidate.getKey()] = rejected(candidate.getKey(), "error.room.reservada");
+                    it.remove();
+                    continue;
+                }
+                stays.put(entry, exit);
+                inserts.add(reservation);
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                repository.insertAll(inserts);
+                dailyStats.applyAll(inserts);
+                changeLog.stageAll(ChangeType.RESERVED, inserts);
+            });
+            inserts.forEach(this::onReserved);
+            changeLog.publish();
+            return null;
+        });
+
+        candidates.forEach((index, reservation) ->
+                results[index] = new BatchReservationDTO(index, true, converter.convertReservationToDTO(reservation), null));
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Este metodo permite comprobar los datos de una de las reservas de un lote, que no pasan por la
+     * validacion del controlador
+     *
+     * @param dto es el dto con los datos de la reserva
+     * @return la clave del mensaje de error o nulo si los datos son correctos
+     */
+    private String validate(InsertReservationDTO dto) {
+        if (dto == null || dto.getRoomId() == null) {
+            return "error.room.id";
+        }
+        if (dto.getEntryDate() == null) {
+            return "error.reservation.entry";
+        }
+        if (dto.getExitDate() == null) {
+            return "error.reservation.exit";
+        }
+        if (!dto.getEntryDate().after(new Date())) {
+            return "error.reservation.fechas";
+        }
+        if (!isValidDateRange(dto)) {
+            return "error.reservations.entrada_salida";
+        }
+        return null;
+    }
+
+    /**
+     * Este metodo permite obtener una habitacion de un lote, buscando cada habitacion una sola vez
+     *
+     * @param roomId es el id de la habitacion
+     * @param rooms  son las habitaciones ya encontradas en el lote
+     * @return la habitacion o nulo si no existe
+     */
+    private Room findRoom(Long roomId, Map<Long, Room> rooms) {
+        Room room = rooms.get(roomId);
+        if (room == null) {
+            try {
+                room = converter.convertToRoom(roomService.findByIdAndConvert(roomId));
+                rooms.put(roomId, room);
+            } catch (NoSuchElementException ex) {
+                return null;
+            }
+        }
+        return room;
+    }
 
+    private BatchReservationDTO rejected(int index, String error) {
+        return new BatchReservationDTO(index, false, null, message.getMessage(error));
     }
 
     /**
@@ -90,7 +320,8 @@ public class ReservationServiceImpl implements ReservationService {
 
     /**
      * Este metodo permite comprobar si una habitacion esta disponible  los dias
-     * seleccionados por la reserva
+     * seleccionados por la reserva. Se utiliza el indice en memoria y, si esta desactivado,
+     * la consulta a la base de datos
      *
      * @param roomId es el id de la habitacion
      * @param entry  es la fecha de entrada
@@ -99,8 +330,18 @@ public class ReservationServiceImpl implements ReservationService {
      */
     @Override
     public boolean isAvailable(Long roomId, Date entry, Date exit) {
-        int reservations = repository.isAvailable(roomId, entry, exit);
-        return reservations == 0;
+        if (!useIndex) {
+            return repository.isAvailable(roomId, entry, exit) == 0;
+        }
+        boolean available = availabilityIndex.isAvailable(roomId, entry, exit);
+        if (verifyIndex) {
+            boolean dbAvailable = repository.isAvailable(roomId, entry, exit) == 0;
+            if (available != dbAvailable) {
+                log.warn("El indice de disponibilidad no coincide con la base de datos para la habitacion {} entre {} y {}", roomId, entry, exit);
+                return dbAvailable;
+            }
+        }
+        return available;
     }
 
     /**
@@ -195,9 +436,9 @@ public class ReservationServiceImpl implements ReservationService {
     public ReservationDTO confirm(Long id, Long userId) {
         Reservation reservation = repository.findById(id).orElseThrow(() -> new NoSuchElementException("error.reservation.id"));
         User user = userService.findById(userId);
-        if (reservation.getUser().equals(user) && reservation.getStatus().equals(Status.PENDIENTE)) {
-            reservation.setStatus(Status.CONFIRMADA);
-            return converter.convertReservationToDTO(repository.save(reservation));
+        if (reservation.getUser().equals(user) && reservation.getStatus().equals(Status.PENDIENTE)
+                && changeStatus(reservation, Status.CONFIRMADA)) {
+            return converter.convertReservationToDTO(reservation);
         }
         throw new NoSuchElementException("error.reservation.confirm");
     }
@@ -211,13 +452,53 @@ public class ReservationServiceImpl implements ReservationService {
     public ReservationDTO cancel(Long id, Long userId) {
         Reservation reservation = repository.findById(id).orElseThrow(() -> new NoSuchElementException("error.reservation.id"));
         User user = userService.findById(userId);
-        if (reservation.getUser().equals(user) && !reservation.getStatus().equals(Status.CANCELADA)) {
-            reservation.setStatus(Status.CANCELADA);
-            return converter.convertReservationToDTO(repository.save(reservation));
+        if (reservation.getUser().equals(user) && !reservation.getStatus().equals(Status.CANCELADA)
+                && changeStatus(reservation, Status.CANCELADA)) {
+            return converter.convertReservationToDTO(reservation);
         }
         throw new NoSuchElementException("error.reservation.cancel");
     }
 
+    /**
+     * Este metodo permite obtener las reservas no canceladas de un usuario antes de borrarlo
+     *
+     * @param userId es el id del usuario
+     * @return las reservas no canceladas del usuario con su habitacion
+     */
+    @Override
+    public List<Reservation> findStaysByUser(Long userId) {
+        return repository.findByUserIdAndStatusNot(userId, Status.CANCELADA);
+    }
+
+    /**
+     * Este metodo permite liberar las reservas que se han borrado en cascada con su usuario. Se tratan como
+     * cancelaciones: se restan de los contadores diarios, se publican como canceladas en el registro de
+     * cambios y se liberan sus noches en el indice, el calendario y los informes
+     *
+     * @param reservations son las reservas no canceladas leidas antes de borrar el usuario
+     */
+    @Override
+    public void releaseDeleted(List<Reservation> reservations) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(tx -> {
+            for (Reservation reservation : reservations) {
+                Status previous = reservation.getStatus();
+                reservation.setStatus(Status.CANCELADA);
+                dailyStats.apply(reservation, previous);
+            }
+            changeLog.stageAll(ChangeType.CANCELLED, reservations);
+        });
+        for (Reservation reservation : reservations) {
+            roomLocks.withLock(reservation.getRoom().getId(), () -> {
+                onCancelled(reservation);
+                return null;
+            });
+        }
+        changeLog.publish();
+    }
+
     /**
      * Este metodo permite comprobar si una habitacion esta disponible entre dos dias indicados
      * @param id es el id de la habitacion que queremos comprobar
@@ -233,4 +514,245 @@ public class ReservationServiceImpl implements ReservationService {
         return message.getMessage("mensaje.room.disponible");
     }
 
+    /**
+     * Este metodo permite obtener todas las habitaciones libres entre dos fechas que cumplen los filtros
+     * indicados. Con el indice activo se filtra el catalogo de habitaciones y se comprueba cada una en el
+     * calendario de ocupacion, o en el indice si las fechas estan fuera del calendario. Si no se resuelve con
+     * una unica consulta a la base de datos
+     * @param entry es la fecha de entrada
+     * @param exit es la fecha de salida
+     * @param types es la lista de tipos de habitacion, puede ser nula
+     * @param capacity es la capacidad minima de la habitacion, puede ser nula
+     * @param min es el precio minimo de la habitacion, puede ser nulo
+     * @param max es el precio maximo de la habitacion, puede ser nulo
+     * @return una lista de dtos con los datos de las habitaciones libres
+     */
+    @Override
+    public List<RoomDTO> findAvailableRooms(Date entry, Date exit, List<String> types, Integer capacity, Long min, Long max) {
+        if (!entry.before(exit)) {
+            throw new IllegalArgumentException("error.reservations.entrada_salida");
+        }
+        if (useIndex) {
+            boolean useCalendar = occupancyCalendar.covers(entry, exit);
+            return roomService.search(types, capacity, min, max).stream()
+                    .filter(room -> useCalendar ? occupancyCalendar.isFree(room.getId(), entry, exit)
+                            : availabilityIndex.isAvailable(room.getId(), entry, exit))
+                    .collect(Collectors.toList());
+        }
+        return roomService.findAvailable(entry, exit).stream()
+                .filter(room -> matches(room, types, capacity, min, max))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Este metodo permite obtener la ocupacion del hotel entre dos fechas
+     *
+     * @param from es la fecha de la primera noche
+     * @param to   es la fecha siguiente a la ultima noche
+     * @return un dto con las noches ocupadas y la tasa de ocupacion de todas las habitaciones
+     */
+    @Override
+    public OccupancyDTO getOccupancy(Date from, Date to) {
+        if (!from.before(to)) {
+            throw new IllegalArgumentException("error.reservations.entrada_salida");
+        }
+        List<Long> roomIds = roomIds();
+        long nights = DateUtils.toEpochDay(to) - DateUtils.toEpochDay(from);
+        long occupied = occupancyCalendar.countOccupiedNights(roomIds, from, to);
+        double rate = roomIds.isEmpty() ? 0 : (double) occupied / (roomIds.size() * nights);
+        return new OccupancyDTO(from, to, roomIds.size(), nights, occupied, rate);
+    }
+
+    /**
+     * Este metodo permite contar las habitaciones libres entre dos fechas. Si el calendario de ocupacion no se
+     * puede usar para esas fechas se cuentan con el indice de disponibilidad
+     *
+     * @param entry es la fecha de entrada
+     * @param exit  es la fecha de salida
+     * @return el numero de habitaciones sin ninguna reserva entre las fechas indicadas
+     */
+    @Override
+    public long countFreeRooms(Date entry, Date exit) {
+        if (!entry.before(exit)) {
+            throw new IllegalArgumentException("error.reservations.entrada_salida");
+        }
+        if (occupancyCalendar.covers(entry, exit)) {
+            return occupancyCalendar.countFree(roomIds(), entry, exit);
+        }
+        return roomIds().stream().filter(roomId -> availabilityIndex.isAvailable(roomId, entry, exit)).count();
+    }
+
+    /**
+     * Este metodo permite obtener los ingresos, la ocupacion, el ADR, el RevPAR y la tasa de cancelacion de
+     * cada periodo entre dos fechas
+     *
+     * @param from   es la fecha de la primera noche
+     * @param to     es la fecha siguiente a la ultima noche
+     * @param period es el periodo en el que se agrupan las noches
+     * @param byType indica si ademas se agrupa por tipo de habitacion
+     * @return una lista de dtos con una fila por periodo, o por periodo y tipo
+     */
+    @Override
+    public List<RevenueReportDTO> getRevenueReport(Date from, Date to, ReportPeriod period, boolean byType) {
+        if (!from.before(to)) {
+            throw new IllegalArgumentException("error.reservations.entrada_salida");
+        }
+        Map<Long, String> roomTypes = new HashMap<>();
+        roomService.getAllRooms().forEach(room -> roomTypes.put(room.getId(), room.getType()));
+        return analytics.report(LocalDate.ofEpochDay(DateUtils.toEpochDay(from)), LocalDate.ofEpochDay(DateUtils.toEpochDay(to)),
+                period, roomTypes, byType);
+    }
+
+    /**
+     * Este metodo permite obtener los contadores diarios de las reservas entre dos dias
+     *
+     * @param from     es el primer dia
+     * @param to       es el ultimo dia, incluido
+     * @param roomType es el tipo de habitacion, si es nulo se devuelven todos
+     * @return una lista de dtos con los contadores de cada dia y tipo de habitacion
+     */
+    @Override
+    public List<DailyStatDTO> getDailyStats(Date from, Date to, String roomType) {
+        if (to.before(from)) {
+            throw new IllegalArgumentException("error.reservations.entrada_salida");
+        }
+        return dailyStats.find(LocalDate.ofEpochDay(DateUtils.toEpochDay(from)), LocalDate.ofEpochDay(DateUtils.toEpochDay(to)), roomType);
+    }
+
+    /**
+     * Este metodo permite volver a calcular los contadores diarios a partir de la tabla de reservas
+     *
+     * @return el numero de reservas leidas
+     */
+    @Override
+    public long rebuildDailyStats() {
+        return dailyStats.rebuild();
+    }
+
+    /**
+     * Este metodo permite leer un lote de cambios de estado de las reservas a partir de un offset
+     *
+     * @param from  es el offset del primer cambio que se quiere leer
+     * @param limit es el numero maximo de cambios, si es nulo se usa el maximo
+     * @return un dto con los cambios y el offset con el que se pide el siguiente lote
+     */
+    @Override
+    public ChangeFeedDTO getChanges(long from, Integer limit) {
+        return changeLog.read(from, limit);
+    }
+
+    /**
+     * Este metodo permite cambiar el estado de una reserva y sumarlo a los contadores diarios en la misma
+     * transaccion, junto con el cambio para el registro de cambios. La fila solo se modifica si la reserva
+     * sigue en el estado con el que se leyo, asi que si otra peticion la ha cambiado antes no se cuenta dos
+     * veces. El cambio y su registro en el indice, el calendario, los informes y el registro de cambios se
+     * hacen con el bloqueo de la habitacion adquirido para que se apliquen en el mismo orden en el que se
+     * guardan
+     *
+     * @param reservation es la reserva leida, se le asigna el nuevo estado si se cambia
+     * @param status      es el nuevo estado
+     * @return true si se ha cambiado el estado, false si la reserva ya no estaba en el estado leido
+     */
+    private boolean changeStatus(Reservation reservation, Status status) {
+        Status previous = reservation.getStatus();
+        return roomLocks.withLock(reservation.getRoom().getId(), () -> {
+            Boolean changed = transactionTemplate.execute(tx -> {
+                if (repository.updateStatus(reservation.getId(), previous, status) != 1) {
+                    return false;
+                }
+                reservation.setStatus(status);
+                dailyStats.apply(reservation, previous);
+                changeLog.stage(status == Status.CANCELADA ? ChangeType.CANCELLED : ChangeType.CONFIRMED, reservation);
+                return true;
+            });
+            if (!Boolean.TRUE.equals(changed)) {
+                return false;
+            }
+            if (status == Status.CANCELADA) {
+                onCancelled(reservation);
+            } else {
+                onReserved(reservation);
+            }
+            changeLog.publish();
+            return true;
+        });
+    }
+
+    /**
+     * Este metodo permite registrar una reserva no cancelada en el indice y en el calendario de ocupacion
+     *
+     * @param reservation es la reserva guardada
+     */
+    private void onReserved(Reservation reservation) {
+        Long roomId = reservation.getRoom().getId();
+        availabilityIndex.add(reservation.getId(), roomId, reservation.getEntryDate(), reservation.getExitDate());
+        occupancyCalendar.reserve(reservation.getId(), roomId, reservation.getEntryDate(), reservation.getExitDate());
+        record(reservation);
+    }
+
+    /**
+     * Este metodo permite liberar una reserva cancelada en el indice y en el calendario de ocupacion
+     *
+     * @param reservation es la reserva cancelada
+     */
+    private void onCancelled(Reservation reservation) {
+        Long roomId = reservation.getRoom().getId();
+        availabilityIndex.remove(reservation.getId(), roomId);
+        occupancyCalendar.cancel(roomId, reservation.getEntryDate(), reservation.getExitDate());
+        record(reservation);
+    }
+
+    /**
+     * Este metodo permite registrar una reserva nueva o su cambio de estado en los informes
+     *
+     * @param reservation es la reserva guardada
+     */
+    private void record(Reservation reservation) {
+        analytics.record(reservation.getId(), reservation.getRoom().getId(), reservation.getEntryDate(),
+                reservation.getExitDate(), reservation.getTotalPrice(), reservation.getStatus());
+    }
+
+    private List<Long> roomIds() {
+        return roomService.getAllRooms().stream().map(RoomDTO::getId).toList();
+    }
+
+    /**
+     * Este metodo permite comprobar si una habitacion cumple los filtros de busqueda
+     * @param room es la habitacion que queremos comprobar
+     * @param types es la lista de tipos de habitacion, puede ser nula
+     * @param capacity es la capacidad minima de la habitacion, puede ser nula
+     * @param min es el precio minimo de la habitacion, puede ser nulo
+     * @param max es el precio maximo de la habitacion, puede ser nulo
+     * @return true si la habitacion cumple todos los filtros, false si no
+     */
+    private boolean matches(RoomDTO room, List<String> types, Integer capacity, Long min, Long max) {
+        return (types == null || types.isEmpty() || types.contains(room.getType()))
+                && (capacity == null || room.getCapacity() >= capacity)
+                && (min == null || room.getPrice() >= min)
+                && (max == null || room.getPrice() <= max);
+    }
+
+    /**
+     * Este metodo permite obtener una pagina de las reservas ordenadas por id
+     *
+     * @param after es el ultimo id de la pagina anterior, si es nulo se empieza por el principio
+     * @param size  es el numero de elementos de la pagina, si es nulo se usa el tamano por defecto
+     * @return la pagina con los dtos y el id para pedir la siguiente
+     */
+    @Override
+    public KeysetPageDTO<ReservationDTO> getReservesPage(Long after, Integer size) {
+        Pageable limit = pagination.limit(size);
+        List<Reservation> rows = repository.findByIdGreaterThanOrderByIdAsc(pagination.after(after), limit);
+        return pagination.page(rows, limit, Reservation::getId, converter::convertReservationToDTO);
+    }
+
+    /**
+     * Este metodo permite escribir todas las reservas como array JSON sin cargarlas en memoria
+     *
+     * @param out es la salida en la que se escribe el JSON
+     */
+    @Override
+    public void exportAllReserves(OutputStream out) {
+        jsonStreamWriter.write(out, repository::streamAll, converter::convertReservationToDTO);
+    }
 }
@@ -1,25 +1,42 @@
 package com.hotel.hotel.service.impl;
 
 import com.hotel.hotel.components.DTOConverter;
+import com.hotel.hotel.components.HotelMetrics;
+import com.hotel.hotel.components.ImageVariants;
+import com.hotel.hotel.components.JsonStreamWriter;
 import com.hotel.hotel.components.MessageComponent;
+import com.hotel.hotel.components.Pagination;
+import com.hotel.hotel.components.RoomCache;
+import com.hotel.hotel.components.RoomCatalogue;
+import com.hotel.hotel.components.RoomRatings;
+import com.hotel.hotel.dto.CacheStatsDTO;
 import com.hotel.hotel.dto.InsertRoomDTO;
+import com.hotel.hotel.dto.KeysetPageDTO;
 import com.hotel.hotel.dto.RoomDTO;
 import com.hotel.hotel.entity.Room;
 import com.hotel.hotel.repository.RoomRepository;
 import com.hotel.hotel.service.FileService;
+import com.hotel.hotel.service.FileService.StoredImage;
 import com.hotel.hotel.service.ReservationService;
 import com.hotel.hotel.service.RoomService;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = HotelMetrics.SERVICE_TIMER, histogram = true)
 public class RoomServiceImpl implements RoomService {
     /**
      * Instancia del convertidor de dtos
@@ -33,6 +50,30 @@ public class RoomServiceImpl implements RoomService {
      * Instancia del repositorio
      */
     private final RoomRepository repository;
+    /**
+     * Instancia del componente que pagina los listados por id
+     */
+    private final Pagination pagination;
+    /**
+     * Instancia del componente que escribe los listados completos en JSON sin cargarlos en memoria
+     */
+    private final JsonStreamWriter jsonStreamWriter;
+    /**
+     * Instancia de la cache de habitaciones por id
+     */
+    private final RoomCache roomCache;
+    /**
+     * Instancia del catalogo en memoria con el que se filtran las habitaciones
+     */
+    private final RoomCatalogue roomCatalogue;
+    /**
+     * Instancia del componente con el resumen de las calificaciones de cada habitacion
+     */
+    private final RoomRatings roomRatings;
+    /**
+     * Instancia del componente que genera las variantes redimensionadas de las imagenes
+     */
+    private final ImageVariants imageVariants;
 
 
     /**
@@ -46,9 +87,14 @@ public class RoomServiceImpl implements RoomService {
     @Override
     public RoomDTO insert(InsertRoomDTO dto, MultipartFile file, String path) {
         Room room = converter.convertToRoom(dto);
-        String image_path = fileService.uploadImage(file, path);
-        room.setImage(image_path);
-        return converter.convertRoomToDTO(repository.save(room));
+        StoredImage image = fileService.uploadImage(file, path);
+        room.setImage(image.path());
+        room.setImageHash(image.hash());
+        Room dbRoom = repository.save(room);
+        roomCache.invalidate(dbRoom.getId());
+        roomCatalogue.put(dbRoom);
+        imageVariants.generateAsync(Path.of(image.path()), image.hash());
+        return convert(dbRoom);
     }
 
     /**
@@ -58,9 +104,9 @@ public class RoomServiceImpl implements RoomService {
      */
     @Override
     public List<RoomDTO> getAllRooms() {
-        List<Room> rooms = repository.findAll();
+        List<Room> rooms = roomCatalogue.search(null, null, null, null, null);
         return rooms.stream()
-                .map(converter::convertRoomToDTO)
+                .map(this::convert)
                 .collect(Collectors.toList());
     }
 
@@ -72,8 +118,8 @@ public class RoomServiceImpl implements RoomService {
      */
     @Override
     public RoomDTO findByIdAndConvert(Long id) {
-        Room room = repository.findById(id).orElseThrow(() -> new NoSuchElementException("error.room.id"));
-        return converter.convertRoomToDTO(room);
+        Room room = roomCache.findById(id).orElseThrow(() -> new NoSuchElementException("error.room.id"));
+        return convert(room);
     }
 
     /**
@@ -83,7 +129,7 @@ public class RoomServiceImpl implements RoomService {
      */
     @Override
     public Room findById(Long id) {
-        return repository.findById(id).orElseThrow(() -> new NoSuchElementException("error.room.id"));
+        return roomCache.findById(id).orElseThrow(() -> new NoSuchElementException("error.room.id"));
     }
 
     /**
@@ -96,9 +142,9 @@ public class RoomServiceImpl implements RoomService {
      */
     @Override
     public List<RoomDTO> findByTypeIn(List<String> types) {
-        List<Room> rooms = repository.findByTypeIn(types);
+        List<Room> rooms = roomCatalogue.search(types, null, null, null, null);
         return rooms.stream()
-                .map(converter::convertRoomToDTO)
+                .map(this::convert)
                 .collect(Collectors.toList());
     }
 
@@ -111,9 +157,12 @@ public class RoomServiceImpl implements RoomService {
      */
     @Override
     public List<RoomDTO> findByCapacity(Long capacity) {
-        List<Room> rooms = repository.findByCapacity(capacity);
+        if (capacity < Integer.MIN_VALUE || capacity > Integer.MAX_VALUE) {
+            return new ArrayList<>();
+        }
+        List<Room> rooms = roomCatalogue.search(null, capacity.intValue(), capacity.intValue(), null, null);
         return rooms.stream()
-                .map(converter::convertRoomToDTO)
+                .map(this::convert)
                 .collect(Collectors.toList());
     }
 
@@ -127,9 +176,40 @@ public class RoomServiceImpl implements RoomService {
      */
     @Override
     public List<RoomDTO> findByPrice(int min, int max) {
-        List<Room> rooms = repository.findByPriceBetween(min, max);
+        List<Room> rooms = roomCatalogue.search(null, null, null, (long) min, (long) max);
         return rooms.stream()
-                .map(converter::convertRoomToDTO)
+                .map(this::convert)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Este metodo permite obtener las habitaciones que cumplen a la vez los filtros de tipo, capacidad y precio
+     *
+     * @param types    es la lista de tipos, si es nula o vacia se admiten todos
+     * @param capacity es la capacidad minima, si es nula no se filtra por capacidad
+     * @param min      es el precio minimo, si es nulo no hay minimo
+     * @param max      es el precio maximo, si es nulo no hay maximo
+     * @return una lista de dtos con las habitaciones que cumplen todos los filtros
+     */
+    @Override
+    public List<RoomDTO> search(List<String> types, Integer capacity, Long min, Long max) {
+        return roomCatalogue.search(types, capacity, null, min, max).stream()
+                .map(this::convert)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Este metodo permite obtener las habitaciones mejor valoradas, sin recorrer sus comentarios
+     *
+     * @param size es el numero maximo de habitaciones, si es nulo se usa el tamano por defecto de los listados
+     * @return una lista de dtos con las habitaciones con comentarios ordenadas de mejor a peor calificacion media
+     */
+    @Override
+    public List<RoomDTO> getRanking(Integer size) {
+        return roomRatings.ranking(pagination.limit(size).getPageSize()).stream()
+                .map(roomCache::findById)
+                .flatMap(Optional::stream)
+                .map(this::convert)
                 .collect(Collectors.toList());
     }
 
@@ -145,11 +225,16 @@ public class RoomServiceImpl implements RoomService {
         room.setCapacity(dto.getCapacity());
         room.setPrice(dto.getPrice());
         room.setDescripcion(dto.getDescripcion());
-        return converter.convertRoomToDTO(repository.save(room));
+        Room dbRoom = repository.save(room);
+        roomCache.invalidate(dbRoom.getId());
+        roomCatalogue.put(dbRoom);
+        return convert(dbRoom);
     }
 
     /**
-     * Este metodo permite modificar ls imagen de una habitacion
+     * Este metodo permite modificar ls imagen de una habitacion. La imagen anterior solo se borra cuando la
+     * nueva esta guardada y la habitacion apunta a ella, asi que si falla la subida la habitacion conserva su
+     * imagen. Las variantes de la imagen anterior se borran si ninguna otra habitacion tiene la misma imagen
      * @param id es el id de la habitacion a la que le queremos modificar la imagen
      * @param file es la nueva imagen de la habitacion
      * @param path es la ruta donde se va a guardar la imagen
@@ -158,11 +243,88 @@ public class RoomServiceImpl implements RoomService {
     @Override
     public RoomDTO updateImage(Long id, MultipartFile file, String path) {
         Room room = repository.findById(id).orElseThrow(() -> new NoSuchElementException("error.room.id"));
-        fileService.remove(room.getImage());
-        String image = fileService.uploadImage(file,path);
-        room.setImage(image);
-        return converter.convertRoomToDTO(repository.save(room));
+        String oldImage = room.getImage();
+        String oldHash = room.getImageHash();
+        StoredImage image = fileService.uploadImage(file,path);
+        room.setImage(image.path());
+        room.setImageHash(image.hash());
+        Room dbRoom;
+        try {
+            dbRoom = repository.save(room);
+        } catch (RuntimeException ex) {
+            fileService.remove(image.path());
+            throw ex;
+        }
+        if (oldImage != null && !oldImage.equals(image.path())) {
+            fileService.remove(oldImage);
+        }
+        roomCache.invalidate(dbRoom.getId());
+        roomCatalogue.put(dbRoom);
+        if (oldImage != null && oldHash != null && !oldHash.equals(image.hash()) && !repository.existsByImageHash(oldHash)) {
+            imageVariants.remove(Path.of(oldImage), oldHash);
+        }
+        imageVariants.generateAsync(Path.of(image.path()), image.hash());
+        return convert(dbRoom);
     }
 
+    /**
+     * Este metodo permite obtener todas las habitaciones que no tienen ninguna reserva sin cancelar
+     * entre las fechas indicadas, resolviendolo en una unica consulta
+     * @param entry es la fecha de entrada
+     * @param exit es la fecha de salida
+     * @return una lista de dtos con los datos de las habitaciones libres
+     */
+    @Override
+    public List<RoomDTO> findAvailable(Date entry, Date exit) {
+        return repository.findAvailable(entry, exit).stream()
+                .map(this::convert)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Este metodo permite obtener una pagina de las habitaciones ordenadas por id
+     *
+     * @param after es el ultimo id de la pagina anterior, si es nulo se empieza por el principio
+     * @param size  es el numero de elementos de la pagina, si es nulo se usa el tamano por defecto
+     * @return la pagina con los dtos y el id para pedir la siguiente
+     */
+    @Override
+    public KeysetPageDTO<RoomDTO> getRoomsPage(Long after, Integer size) {
+        Pageable limit = pagination.limit(size);
+        List<Room> rows = repository.findByIdGreaterThanOrderByIdAsc(pagination.after(after), limit);
+        return pagination.page(rows, limit, Room::getId, this::convert);
+    }
 
+    /**
+     * Este metodo permite escribir todas las habitaciones como array JSON sin cargarlas en memoria
+     *
+     * @param out es la salida en la que se escribe el JSON
+     */
+    @Override
+    public void exportAllRooms(OutputStream out) {
+        jsonStreamWriter.write(out, repository::streamAll, this::convert);
+    }
+
+    /**
+     * Este metodo permite obtener las estadisticas de la cache de habitaciones
+     *
+     * @return un dto con el tamano, aciertos, fallos y desalojos de la cache
+     */
+    @Override
+    public CacheStatsDTO getCacheStats() {
+        return roomCache.getStats();
+    }
+
+    /**
+     * Este metodo permite convertir una habitacion a dto incluyendo el resumen de sus calificaciones
+     *
+     * @param room es la habitacion
+     * @return un dto con los datos y la valoracion de la habitacion
+     */
+    private RoomDTO convert(Room room) {
+        RoomDTO dto = converter.convertRoomToDTO(room);
+        dto.setRating(roomRatings.get(room.getId()));
+        dto.setVariants(imageVariants.urls(room.getImageHash()));
+        return dto;
+    }
 }
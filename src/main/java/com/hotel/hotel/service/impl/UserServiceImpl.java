@@ -1,22 +1,33 @@
 package com.hotel.hotel.service.impl;
 
 import com.hotel.hotel.components.DTOConverter;
+import com.hotel.hotel.components.HotelMetrics;
+import com.hotel.hotel.components.JsonStreamWriter;
 import com.hotel.hotel.components.MessageComponent;
+import com.hotel.hotel.components.Pagination;
+import com.hotel.hotel.components.PasswordHasher;
+import com.hotel.hotel.components.RoomRatings;
+import com.hotel.hotel.components.TokenVersions;
 import com.hotel.hotel.dto.InsertUserDTO;
+import com.hotel.hotel.dto.KeysetPageDTO;
 import com.hotel.hotel.dto.LoginUserDTO;
 import com.hotel.hotel.dto.UserDTO;
+import com.hotel.hotel.entity.Reservation;
 import com.hotel.hotel.entity.User;
 import com.hotel.hotel.exception.BadLoginExcepcion;
 import com.hotel.hotel.exception.DuplicateUserException;
 import com.hotel.hotel.exception.ForbiddenException;
 import com.hotel.hotel.other.Role;
 import com.hotel.hotel.repository.UserRepository;
+import com.hotel.hotel.service.ReservationService;
 import com.hotel.hotel.service.UserService;
-import de.mkammerer.argon2.Argon2;
-import de.mkammerer.argon2.Argon2Factory;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.io.OutputStream;
 import java.util.IllformedLocaleException;
 import java.util.List;
 import java.util.Locale;
@@ -25,6 +36,7 @@ import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = HotelMetrics.SERVICE_TIMER, histogram = true)
 public class UserServiceImpl implements UserService {
     /**
      * instancia del repositorio
@@ -38,6 +50,34 @@ public class UserServiceImpl implements UserService {
      * Instancia del componetne que nos permite acceder al archivo de mensajes
      */
     private final MessageComponent message;
+    /**
+     * Instancia del componente que guarda la version actual de los tokens de cada usuario
+     */
+    private final TokenVersions tokenVersions;
+    /**
+     * Instancia del componente que calcula y verifica los hash de las contrasenas
+     */
+    private final PasswordHasher passwordHasher;
+    /**
+     * Instancia del componente que pagina los listados por id
+     */
+    private final Pagination pagination;
+    /**
+     * Instancia del componente que escribe los listados completos en JSON sin cargarlos en memoria
+     */
+    private final JsonStreamWriter jsonStreamWriter;
+    /**
+     * Instancia del componente que mantiene el resumen de las calificaciones de cada habitacion
+     */
+    private final RoomRatings roomRatings;
+    /**
+     * Metricas con los logins fallidos
+     */
+    private final HotelMetrics metrics;
+    /**
+     * Servicio de reservas, se obtiene al usarlo porque el servicio de reservas depende de este servicio
+     */
+    private final ObjectProvider<ReservationService> reservationService;
 
     /**
      * Este metodo permite insertar un usaurio en la base de datos
@@ -55,9 +95,7 @@ public class UserServiceImpl implements UserService {
         if (repository.findByEmail(user.getEmail()).isPresent()) {
             throw new DuplicateUserException("error.usuario.email_repetido");
         }
-        Argon2 argon2 = Argon2Factory.create(Argon2Factory.Argon2Types.ARGON2id);
-        String hash = argon2.hash(1, 1024, 1, user.getPassword().toCharArray());
-        user.setPassword(hash);
+        user.setPassword(passwordHasher.hash(user.getPassword()));
         User dbUser = repository.save(user);
         return converter.convertToUserDto(dbUser);
     }
@@ -71,11 +109,19 @@ public class UserServiceImpl implements UserService {
     @Override
     public User login(LoginUserDTO dto) {
         User user = converter.convertDTOLoginToUser(dto);
-        User dbUser = repository.findByEmail(user.getEmail()).orElseThrow(() -> new BadLoginExcepcion("error.usuario.login_email"));
-        Argon2 argon2 = Argon2Factory.create(Argon2Factory.Argon2Types.ARGON2id);
-        if (!argon2.verify(dbUser.getPassword(), user.getPassword())) {
+        User dbUser = repository.findByEmail(user.getEmail()).orElseThrow(() -> {
+            metrics.loginFailure(true);
+            return new BadLoginExcepcion("error.usuario.login_email");
+        });
+        if (!passwordHasher.verify(dbUser.getPassword(), user.getPassword())) {
+            metrics.loginFailure(false);
             throw new BadLoginExcepcion("error.usuario.login_password");
         }
+        //si han cambiado los parametros de Argon2 se aprovecha el login para actualizar el hash
+        if (passwordHasher.needsRehash(dbUser.getPassword())) {
+            dbUser.setPassword(passwordHasher.hash(user.getPassword()));
+            dbUser = repository.save(dbUser);
+        }
         return dbUser;
     }
 
@@ -120,7 +166,14 @@ public class UserServiceImpl implements UserService {
     @Override
     public void delete(Long id) {
         User user = repository.findById(id).orElseThrow(() -> new NoSuchElementException("error.usuario.id"));
+        //los comentarios del usuario se borran en cascada, hay que recalcular las valoraciones de sus habitaciones
+        List<Long> commentedRooms = roomRatings.roomsCommentedBy(id);
+        //las reservas tambien se borran en cascada, hay que liberar las noches que ocupaban
+        List<Reservation> stays = reservationService.getObject().findStaysByUser(id);
         repository.delete(user);
+        tokenVersions.revoke(id);
+        roomRatings.rebuild(commentedRooms);
+        reservationService.getObject().releaseDeleted(stays);
     }
 
     /**
@@ -161,10 +214,57 @@ public class UserServiceImpl implements UserService {
             throw new IllegalArgumentException("error.user.password");
         }
         User user = repository.findById(id).orElseThrow(() -> new NoSuchElementException("error.usuario.id"));
-        Argon2 argon2 = Argon2Factory.create(Argon2Factory.Argon2Types.ARGON2id);
-        String hash = argon2.hash(1, 1024, 1, password);
-        user.setPassword(hash);
+        user.setPassword(passwordHasher.hash(password));
+        //al cambiar la contrasena se invalidan los tokens emitidos con la anterior
+        user.setTokenVersion(user.getTokenVersion() + 1);
         repository.save(user);
+        tokenVersions.update(id, user.getTokenVersion());
         return message.getMessage("mensaje.usuario.password");
     }
+
+    /**
+     * Este metodo permite cambiar el rol de un usuario. Los tokens emitidos con el rol anterior dejan de ser
+     * validos, por lo que el usuario tendra que volver a loguearse
+     * @param id es el id del usuario al que se le va a cambiar el rol
+     * @param role es el nuevo rol del usuario
+     * @return un dto con los datos del usuario modificado
+     */
+    @Override
+    public UserDTO updateRole(Long id, Role role) {
+        if (role == null) {
+            throw new IllegalArgumentException("error.usuario.rol");
+        }
+        User user = repository.findById(id).orElseThrow(() -> new NoSuchElementException("error.usuario.id"));
+        if (role != user.getType()) {
+            user.setType(role);
+            user.setTokenVersion(user.getTokenVersion() + 1);
+            user = repository.save(user);
+            tokenVersions.update(id, user.getTokenVersion());
+        }
+        return converter.convertToUserDto(user);
+    }
+
+    /**
+     * Este metodo permite obtener una pagina de los usuarios ordenados por id
+     *
+     * @param after es el ultimo id de la pagina anterior, si es nulo se empieza por el principio
+     * @param size  es el numero de elementos de la pagina, si es nulo se usa el tamano por defecto
+     * @return la pagina con los dtos y el id para pedir la siguiente
+     */
+    @Override
+    public KeysetPageDTO<UserDTO> getUsersPage(Long after, Integer size) {
+        Pageable limit = pagination.limit(size);
+        List<User> rows = repository.findByIdGreaterThanOrderByIdAsc(pagination.after(after), limit);
+        return pagination.page(rows, limit, User::getId, converter::convertToUserDto);
+    }
+
+    /**
+     * Este metodo permite escribir todos los usuarios como array JSON sin cargarlos en memoria
+     *
+     * @param out es la salida en la que se escribe el JSON
+     */
+    @Override
+    public void exportAllUsers(OutputStream out) {
+        jsonStreamWriter.write(out, repository::streamAll, converter::convertToUserDto);
+    }
 }
@@ -47,6 +47,7 @@ CREATE TABLE `reservation` (
   `id` int(11) NOT NULL,
   `user_id` int(11) DEFAULT NULL,
   `room_id` int(11) DEFAULT NULL,
+  `room_type` varchar(50) DEFAULT NULL,
   `entry_date` date DEFAULT NULL,
   `exit_date` date DEFAULT NULL,
   `creation_date` datetime DEFAULT NULL,
@@ -67,7 +68,62 @@ CREATE TABLE `room` (
   `capacity` int(11) NOT NULL,
   `price` decimal(10,0) NOT NULL,
   `descripcion` varchar(500) NOT NULL,
-  `image` varchar(256) NOT NULL
+  `image` varchar(256) NOT NULL,
+  `image_hash` varchar(64) DEFAULT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+
+-- --------------------------------------------------------
+
+--
+-- Estructura de tabla para la tabla `daily_stats`
+--
+
+CREATE TABLE `daily_stats` (
+  `stat_date` date NOT NULL,
+  `room_type` varchar(50) NOT NULL,
+  `nights_sold` bigint(20) NOT NULL DEFAULT 0,
+  `revenue` decimal(14,2) NOT NULL DEFAULT 0,
+  `arrivals` bigint(20) NOT NULL DEFAULT 0,
+  `departures` bigint(20) NOT NULL DEFAULT 0,
+  `cancellations` bigint(20) NOT NULL DEFAULT 0
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- --------------------------------------------------------
+
+--
+-- Estructura de tabla para la tabla `reservation_change`
+--
+
+CREATE TABLE `reservation_change` (
+  `id` bigint(20) NOT NULL,
+  `change_type` varchar(20) NOT NULL,
+  `change_date` datetime NOT NULL,
+  `reservation_id` bigint(20) NOT NULL,
+  `room_id` bigint(20) NOT NULL,
+  `user_id` bigint(20) DEFAULT NULL,
+  `entry_date` date NOT NULL,
+  `exit_date` date NOT NULL,
+  `total_price` decimal(10,2) DEFAULT NULL,
+  `status` varchar(20) NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- --------------------------------------------------------
+
+--
+-- Estructura de tabla para la tabla `room_rating`
+--
+
+CREATE TABLE `room_rating` (
+  `room_id` int(11) NOT NULL,
+  `comments` bigint(20) NOT NULL DEFAULT 0,
+  `qualification_sum` bigint(20) NOT NULL DEFAULT 0,
+  `stars_1` bigint(20) NOT NULL DEFAULT 0,
+  `stars_2` bigint(20) NOT NULL DEFAULT 0,
+  `stars_3` bigint(20) NOT NULL DEFAULT 0,
+  `stars_4` bigint(20) NOT NULL DEFAULT 0,
+  `stars_5` bigint(20) NOT NULL DEFAULT 0,
+  `version` bigint(20) NOT NULL DEFAULT 0
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 
@@ -82,7 +138,8 @@ CREATE TABLE `user` (
   `name` varchar(50) NOT NULL,
   `email` varchar(255) NOT NULL,
   `password` varchar(255) NOT NULL,
-  `type` varchar(10) NOT NULL DEFAULT 'USER'
+  `type` varchar(10) NOT NULL DEFAULT 'USER',
+  `token_version` int(11) NOT NULL DEFAULT 0
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 --
@@ -111,6 +168,24 @@ ALTER TABLE `reservation`
 ALTER TABLE `room`
   ADD PRIMARY KEY (`id`);
 
+--
+-- Indices de la tabla `daily_stats`
+--
+ALTER TABLE `daily_stats`
+  ADD PRIMARY KEY (`stat_date`, `room_type`);
+
+--
+-- Indices de la tabla `reservation_change`
+--
+ALTER TABLE `reservation_change`
+  ADD PRIMARY KEY (`id`);
+
+--
+-- Indices de la tabla `room_rating`
+--
+ALTER TABLE `room_rating`
+  ADD PRIMARY KEY (`room_id`);
+
 --
 -- Indices de la tabla `user`
 --
@@ -135,6 +210,12 @@ ALTER TABLE `comment`
 ALTER TABLE `reservation`
   MODIFY `id` int(11) NOT NULL AUTO_INCREMENT, AUTO_INCREMENT=18;
 
+--
+-- AUTO_INCREMENT de la tabla `reservation_change`
+--
+ALTER TABLE `reservation_change`
+  MODIFY `id` bigint(20) NOT NULL AUTO_INCREMENT;
+
 --
 -- AUTO_INCREMENT de la tabla `room`
 --
@@ -164,6 +245,20 @@ ALTER TABLE `comment`
 ALTER TABLE `reservation`
   ADD CONSTRAINT `fk_room_id` FOREIGN KEY (`room_id`) REFERENCES `room` (`id`) ON DELETE CASCADE,
   ADD CONSTRAINT `fk_user_id` FOREIGN KEY (`user_id`) REFERENCES `user` (`id`) ON DELETE CASCADE;
+
+--
+-- Filtros para la tabla `room_rating`
+--
+ALTER TABLE `room_rating`
+  ADD CONSTRAINT `fk_room_rating_room_id` FOREIGN KEY (`room_id`) REFERENCES `room` (`id`) ON DELETE CASCADE;
+
+--
+-- Resumen de las calificaciones de los comentarios existentes
+--
+INSERT INTO `room_rating` (`room_id`, `comments`, `qualification_sum`, `stars_1`, `stars_2`, `stars_3`, `stars_4`, `stars_5`, `version`)
+SELECT `room_id`, COUNT(`qualification`), COALESCE(SUM(`qualification`), 0),
+       SUM(`qualification` <=> 1), SUM(`qualification` <=> 2), SUM(`qualification` <=> 3), SUM(`qualification` <=> 4), SUM(`qualification` <=> 5), 1
+FROM `comment` WHERE `room_id` IS NOT NULL GROUP BY `room_id`;
 COMMIT;
 
 /*!40101 SET CHARACTER_SET_CLIENT=@OLD_CHARACTER_SET_CLIENT */;
@@ -0,0 +1,84 @@
+package com.hotel.hotel.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedCacheTest {
+    @Test
+    void evictsEntriesThatHaveNotBeenUsedRecently() throws Exception {
+        BoundedCache<Long, String> cache = new BoundedCache<>(100, 60000);
+        for (long key = 0; key < 100; key++) {
+            cache.put(key, "v" + key);
+        }
+        Thread.sleep(5);
+        for (long key = 0; key < 100; key += 10) {
+            assertEquals("v" + key, cache.get(key));
+        }
+
+        for (long key = 100; key < 150; key++) {
+            cache.put(key, "v" + key);
+        }
+
+        assertEquals(100, cache.size());
+        assertEquals(50, cache.getEvictions());
+        for (long key = 0; key < 100; key += 10) {
+            assertEquals("v" + key, cache.get(key), "se ha descartado la entrada usada " + key);
+        }
+    }
+
+    @Test
+    void expiresEntries() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 60000);
+        cache.put("caducada", "a", System.currentTimeMillis() - 1);
+        cache.put("vigente", "b");
+
+        assertNull(cache.get("caducada"));
+        assertEquals("b", cache.get("vigente"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void concurrentReadsAndWritesStayWithinTheLimit() throws Exception {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(100, 60000);
+        int threads = 8;
+        int operations = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int reads = 0;
+                for (int j = 0; j < operations; j++) {
+                    int key = random.nextInt(1000);
+                    if (random.nextInt(4) == 0) {
+                        cache.put(key, key);
+                    } else {
+                        Integer value = cache.get(key);
+                        assertTrue(value == null || value == key);
+                        reads++;
+                    }
+                }
+                return reads;
+            }));
+        }
+        start.countDown();
+        long reads = 0;
+        for (Future<Integer> future : futures) {
+            reads += future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        //un hilo que no puede desalojar lo deja al que ya esta desalojando, puede sobrar una entrada por hilo
+        assertTrue(cache.size() <= 100 + threads, "entradas: " + cache.size());
+        assertEquals(reads, cache.getHits() + cache.getMisses());
+    }
+}
@@ -0,0 +1,109 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.exception.RoomNotAvailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+    private SimpleMeterRegistry registry;
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        store = new IdempotencyStore(100, 60000, 5000, new HotelMetrics(registry));
+    }
+
+    @Test
+    void answersRetriesWithTheOriginalResponse() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String first = store.execute("reservations", 1L, "key", "room 1", () -> "reservation " + calls.incrementAndGet());
+        String retry = store.execute("reservations", 1L, "key", "room 1", () -> "reservation " + calls.incrementAndGet());
+
+        assertEquals("reservation 1", first);
+        assertEquals("reservation 1", retry);
+        assertEquals(1, calls.get());
+        assertEquals(1.0, registry.get("hotel.idempotency.replays").counter().count());
+    }
+
+    @Test
+    void scopesKeysByOperationAndUser() {
+        AtomicInteger calls = new AtomicInteger();
+
+        store.execute("reservations", 1L, "key", "body", calls::incrementAndGet);
+        store.execute("reservations", 2L, "key", "body", calls::incrementAndGet);
+        store.execute("comments", 1L, "key", "body", calls::incrementAndGet);
+        store.execute("reservations", 1L, null, "body", calls::incrementAndGet);
+        store.execute("reservations", 1L, null, "body", calls::incrementAndGet);
+
+        assertEquals(5, calls.get());
+    }
+
+    @Test
+    void rejectsAKeyReusedWithADifferentBody() {
+        store.execute("reservations", 1L, "key", "room 1", () -> "reservation");
+
+        assertThrows(IllegalArgumentException.class, () -> store.execute("reservations", 1L, "key", "room 2", () -> "other"));
+        assertThrows(IllegalArgumentException.class, () -> store.execute("reservations", 1L, " ", "room 1", () -> "other"));
+    }
+
+    @Test
+    void doesNotStoreFailures() {
+        assertThrows(RoomNotAvailableException.class, () -> store.execute("reservations", 1L, "key", "room 1", () -> {
+            throw new RoomNotAvailableException("error.room.reservada");
+        }));
+
+        assertEquals("reservation", store.execute("reservations", 1L, "key", "room 1", () -> "reservation"));
+    }
+
+    @Test
+    void coalescesRetriesOfARequestInFlight() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<String> original = executor.submit(() -> store.execute("reservations", 1L, "key", "room 1", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "reservation";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            List<Future<String>> retries = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                retries.add(executor.submit(() -> store.execute("reservations", 1L, "key", "room 1", () -> "reservation " + calls.incrementAndGet())));
+            }
+            release.countDown();
+
+            assertEquals("reservation", original.get(5, TimeUnit.SECONDS));
+            for (Future<String> retry : retries) {
+                assertEquals("reservation", retry.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.hotel.hotel.components;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageServerTest {
+    private static final String NAME = "0b6f2a4e-57c1-4c3e-9d62-7f1e3f0a9c11.jpg";
+
+    @TempDir
+    Path dir;
+
+    private final ImageServer server = new ImageServer(3600);
+    private byte[] bytes;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        bytes = new byte[1000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        Files.write(dir.resolve(NAME), bytes);
+    }
+
+    @Test
+    void servesTheWholeImageWithCachingHeaders() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        server.serve(dir, NAME, new MockHttpServletRequest("GET", "/api/rooms/images/" + NAME), response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("image/jpeg", response.getContentType());
+        assertEquals("\"0b6f2a4e-57c1-4c3e-9d62-7f1e3f0a9c11\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals("max-age=3600, public, immutable", response.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertArrayEquals(bytes, response.getContentAsByteArray());
+    }
+
+    @Test
+    void answersNotModifiedWhenTheETagMatches() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/rooms/images/" + NAME);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"0b6f2a4e-57c1-4c3e-9d62-7f1e3f0a9c11\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        server.serve(dir, NAME, request, response);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void servesASingleRange() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/rooms/images/" + NAME);
+        request.addHeader(HttpHeaders.RANGE, "bytes=100-199");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        server.serve(dir, NAME, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 100-199/1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(bytes, 100, 200), response.getContentAsByteArray());
+
+        MockHttpServletRequest outside = new MockHttpServletRequest("GET", "/api/rooms/images/" + NAME);
+        outside.addHeader(HttpHeaders.RANGE, "bytes=2000-");
+        MockHttpServletResponse unsatisfiable = new MockHttpServletResponse();
+        server.serve(dir, NAME, outside, unsatisfiable);
+        assertEquals(416, unsatisfiable.getStatus());
+        assertEquals("bytes */1000", unsatisfiable.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void handsTheFileToSendfileWhenTheContainerSupportsIt() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/rooms/images/" + NAME);
+        request.setAttribute(ImageServer.SENDFILE_SUPPORT, Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=-10");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        server.serve(dir, NAME, request, response);
+
+        assertEquals(dir.resolve(NAME).toAbsolutePath().toString(), request.getAttribute(ImageServer.SENDFILE_FILENAME));
+        assertEquals(990L, request.getAttribute(ImageServer.SENDFILE_START));
+        assertEquals(1000L, request.getAttribute(ImageServer.SENDFILE_END));
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void copiesTheRangeThroughTheResponseWithoutSendfile() throws IOException {
+        String name = "5d1c0e9a-2b7f-4a61-8c3e-91f0a6b2d4e7-medium.png";
+        byte[] large = new byte[100_000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) (i * 31);
+        }
+        Files.write(dir.resolve(name), large);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/rooms/images/" + name);
+        request.setAttribute(ImageServer.SENDFILE_SUPPORT, Boolean.FALSE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=5000-70000");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        server.serve(dir, name, request, response);
+
+        assertNull(request.getAttribute(ImageServer.SENDFILE_FILENAME));
+        assertEquals(206, response.getStatus());
+        assertEquals("image/png", response.getContentType());
+        assertEquals("bytes 5000-70000/100000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(65001, response.getContentLengthLong());
+        assertArrayEquals(Arrays.copyOfRange(large, 5000, 70001), response.getContentAsByteArray());
+    }
+
+    @Test
+    void rejectsNamesOutsideTheImageDirectory() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/rooms/images/x");
+
+        assertThrows(NoSuchElementException.class, () -> server.serve(dir, "../application.properties", request, new MockHttpServletResponse()));
+        assertThrows(NoSuchElementException.class, () -> server.serve(dir, "missing.png", request, new MockHttpServletResponse()));
+    }
+}
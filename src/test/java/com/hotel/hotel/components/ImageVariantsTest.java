@@ -0,0 +1,92 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.other.ImageVariant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageVariantsTest {
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @TempDir
+    Path dir;
+
+    private final ImageVariants variants = new ImageVariants("/api/rooms/images/", 0.8f, 4);
+
+    @AfterEach
+    void tearDown() {
+        variants.shutdown();
+    }
+
+    @Test
+    void generatesEachVariantOnceNextToTheOriginal() throws IOException {
+        Path original = image("room.png", 3000, 2000, BufferedImage.TYPE_INT_ARGB);
+
+        variants.generate(original, HASH);
+
+        BufferedImage thumbnail = ImageIO.read(dir.resolve(ImageVariant.THUMBNAIL.fileName(HASH)).toFile());
+        BufferedImage medium = ImageIO.read(dir.resolve(ImageVariant.MEDIUM.fileName(HASH)).toFile());
+        assertEquals(320, thumbnail.getWidth());
+        assertEquals(213, thumbnail.getHeight());
+        assertEquals(1024, medium.getWidth());
+        assertEquals(683, medium.getHeight());
+        assertTrue(Files.size(dir.resolve(ImageVariant.THUMBNAIL.fileName(HASH))) < Files.size(original) / 10);
+
+        //las variantes se identifican por el contenido, si ya existen no se vuelven a generar
+        Path thumbnailPath = dir.resolve(ImageVariant.THUMBNAIL.fileName(HASH));
+        FileTime generated = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(thumbnailPath, generated);
+        variants.generate(image("other.png", 3000, 2000, BufferedImage.TYPE_INT_RGB), HASH);
+        assertEquals(generated, Files.getLastModifiedTime(thumbnailPath));
+    }
+
+    @Test
+    void doesNotEnlargeSmallImages() throws IOException {
+        Path original = image("room.png", 200, 100, BufferedImage.TYPE_INT_RGB);
+
+        variants.generate(original, HASH);
+
+        assertEquals(200, ImageIO.read(dir.resolve(ImageVariant.THUMBNAIL.fileName(HASH)).toFile()).getWidth());
+        assertEquals(200, ImageIO.read(dir.resolve(ImageVariant.MEDIUM.fileName(HASH)).toFile()).getWidth());
+    }
+
+    @Test
+    void buildsTheUrlsAndRemovesTheVariants() throws IOException {
+        Path original = image("room.png", 800, 600, BufferedImage.TYPE_INT_RGB);
+        variants.generate(original, HASH);
+
+        assertEquals(Map.of("thumb", "/api/rooms/images/" + HASH + "-thumb.jpg",
+                "medium", "/api/rooms/images/" + HASH + "-medium.jpg"), variants.urls(HASH));
+        assertNull(variants.urls(null));
+
+        variants.remove(original, HASH);
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    private Path image(String name, int width, int height, int type) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D graphics = image.createGraphics();
+        for (int x = 0; x < width; x += 50) {
+            graphics.setColor(new Color(x * 7 % 255, x * 13 % 255, x * 3 % 255));
+            graphics.fillRect(x, 0, 25, height);
+        }
+        graphics.dispose();
+        Path path = dir.resolve(name);
+        ImageIO.write(image, "png", path.toFile());
+        return path;
+    }
+}
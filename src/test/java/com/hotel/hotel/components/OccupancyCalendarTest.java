@@ -0,0 +1,189 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.other.Status;
+import com.hotel.hotel.repository.ReservationRepository;
+import com.hotel.hotel.repository.projection.ReservationStay;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OccupancyCalendarTest {
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @TempDir
+    Path dir;
+
+    private ReservationRepository repository;
+    private final List<ReservationStay> stays = new ArrayList<>();
+    private final List<OccupancyCalendar> calendars = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ReservationRepository.class);
+        when(repository.findStaysByStatusNot(Status.CANCELADA)).thenAnswer(invocation -> new ArrayList<>(stays));
+        when(repository.findStaysByRoomIdAndStatusNot(anyLong(), eq(Status.CANCELADA))).thenAnswer(invocation ->
+                stays.stream().filter(stay -> stay.getRoomId().equals(invocation.getArgument(0))).toList());
+        when(repository.findStaysByIdGreaterThanAndStatusNot(anyLong(), eq(Status.CANCELADA))).thenAnswer(invocation ->
+                stays.stream().filter(stay -> stay.getId() > (Long) invocation.getArgument(0)).toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        calendars.forEach(OccupancyCalendar::close);
+    }
+
+    @Test
+    void agreesWithTheAvailabilityIndex() {
+        Random random = new Random(3);
+        long id = 0;
+        for (long room = 1; room <= 20; room++) {
+            for (int day = random.nextInt(4); day < 400; day += 3 + random.nextInt(8)) {
+                int length = 1 + random.nextInt(3);
+                stays.add(stay(++id, room, day, day + length));
+                day += length;
+            }
+        }
+        OccupancyCalendar calendar = calendar(4);
+        AvailabilityIndex index = new AvailabilityIndex(repository);
+        index.load();
+
+        for (int i = 0; i < 2000; i++) {
+            long room = 1 + random.nextInt(22);
+            int entry = random.nextInt(400);
+            Date from = date(entry);
+            Date to = date(entry + 1 + random.nextInt(6));
+            assertTrue(calendar.covers(from, to));
+            assertEquals(index.isAvailable(room, from, to), calendar.isFree(room, from, to), "habitacion " + room + " dia " + entry);
+        }
+    }
+
+    @Test
+    void countsFreeRoomsAndOccupiedNights() {
+        stays.add(stay(1, 1, 0, 3));
+        stays.add(stay(2, 2, 2, 4));
+        OccupancyCalendar calendar = calendar(4);
+        calendar.reserve(3L, 5000L, date(1), date(2));
+
+        assertEquals(6, calendar.countOccupiedNights(List.of(1L, 2L, 3L, 5000L), date(0), date(10)));
+        assertEquals(2, calendar.countOccupiedNights(List.of(1L, 2L), date(2), date(3)));
+        assertEquals(4, calendar.countFree(List.of(1L, 2L, 3L, 5000L), date(5), date(6)));
+        //la salida de la habitacion 2 coincide con la entrada
+        assertEquals(3, calendar.countFree(List.of(1L, 2L, 3L, 5000L), date(4), date(6)));
+        assertEquals(1, calendar.countFree(List.of(1L, 2L, 3L, 5000L), date(1), date(2)));
+
+        calendar.cancel(1L, date(0), date(3));
+        assertEquals(3, calendar.countOccupiedNights(List.of(1L, 2L, 3L, 5000L), date(0), date(10)));
+        assertThrows(IllegalArgumentException.class, () -> calendar.countOccupiedNights(List.of(1L), date(0), date(3000)));
+    }
+
+    @Test
+    void startsFromTheSnapshotAfterACleanShutdown() {
+        stays.add(stay(1, 1, 10, 12));
+        stays.add(stay(2, 2, 10, 12));
+        OccupancyCalendar first = calendar(4);
+        first.cancel(2L, date(10), date(12));
+        first.close();
+        //reserva hecha mientras la aplicacion estaba parada
+        stays.add(stay(3, 3, 10, 12));
+
+        OccupancyCalendar second = calendar(4);
+
+        assertFalse(second.isFree(1L, date(10), date(11)));
+        assertTrue(second.isFree(2L, date(10), date(11)));
+        assertFalse(second.isFree(3L, date(10), date(11)));
+        verify(repository, times(1)).findStaysByStatusNot(Status.CANCELADA);
+        verify(repository).findStaysByIdGreaterThanAndStatusNot(2L, Status.CANCELADA);
+    }
+
+    @Test
+    void rebuildsFromTheReservationsAfterACrash() {
+        stays.add(stay(1, 1, 10, 12));
+        calendar(4);
+
+        OccupancyCalendar second = calendar(4);
+
+        assertFalse(second.isFree(1L, date(10), date(11)));
+        verify(repository, times(2)).findStaysByStatusNot(Status.CANCELADA);
+    }
+
+    @Test
+    void storesLargeRoomIdsInDenseRows() throws Exception {
+        long large = 3_000_000_000L;
+        stays.add(stay(1, large, 10, 12));
+        stays.add(stay(2, 7, 10, 12));
+        OccupancyCalendar first = calendar(4);
+        first.reserve(3L, large + 1, date(20), date(21));
+
+        assertFalse(first.isFree(large, date(10), date(11)));
+        assertTrue(first.isFree(large, date(14), date(16)));
+        assertFalse(first.isFree(large + 1, date(20), date(21)));
+        assertTrue(first.isFree(large + 2, date(10), date(11)));
+        //cuatro filas aunque los ids sean enormes
+        assertTrue(Files.size(dir.resolve("calendar.bin")) < 64 + 4 * 200);
+        first.close();
+
+        OccupancyCalendar second = calendar(4);
+        assertFalse(second.isFree(large, date(10), date(11)));
+        assertFalse(second.isFree(7L, date(10), date(11)));
+        assertFalse(second.isFree(large + 1, date(20), date(21)));
+        assertTrue(second.isFree(large + 1, date(10), date(11)));
+        verify(repository, times(1)).findStaysByStatusNot(Status.CANCELADA);
+    }
+
+    @Test
+    void doesNotCoverAnyDateWhenTheReservationsCannotBeRead() {
+        when(repository.findStaysByStatusNot(Status.CANCELADA)).thenThrow(new IllegalStateException("sin base de datos"));
+        OccupancyCalendar calendar = calendar(4);
+
+        assertFalse(calendar.covers(date(1), date(2)));
+    }
+
+    private OccupancyCalendar calendar(int initialRooms) {
+        OccupancyCalendar calendar = new OccupancyCalendar(repository, dir.resolve("calendar.bin").toString(), 4, initialRooms);
+        calendar.load();
+        calendars.add(calendar);
+        return calendar;
+    }
+
+    private static Date date(int day) {
+        return Date.from(TODAY.plusDays(day).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static ReservationStay stay(long id, long roomId, int entry, int exit) {
+        return new ReservationStay() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getRoomId() {
+                return roomId;
+            }
+
+            @Override
+            public Date getEntryDate() {
+                return date(entry);
+            }
+
+            @Override
+            public Date getExitDate() {
+                return date(exit);
+            }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+    private final List<BoundedExecutor> executors = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        executors.forEach(BoundedExecutor::shutdown);
+    }
+
+    @Test
+    void verifiesHashesAndDetectsParameterChanges() {
+        PasswordHasher current = hasher(1, 1024, 1, 64);
+        PasswordHasher stronger = hasher(2, 4096, 1, 64);
+
+        String hash = current.hash("123456789");
+
+        assertTrue(current.verify(hash, "123456789"));
+        assertFalse(current.verify(hash, "987654321"));
+        assertFalse(current.needsRehash(hash));
+        assertTrue(stronger.needsRehash(hash));
+        assertTrue(stronger.verify(hash, "123456789"));
+    }
+
+    @Test
+    void rejectsRequestsWhenTheQueueIsFull() throws Exception {
+        PasswordHasher hasher = hasher(4, 65536, 1, 1);
+        String hash = hasher.hash("123456789");
+        int callers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return hasher.verify(hash, "123456789");
+            }));
+        }
+        start.countDown();
+
+        int verified = 0;
+        int rejected = 0;
+        for (Future<Boolean> result : results) {
+            try {
+                assertTrue(result.get(60, TimeUnit.SECONDS));
+                verified++;
+            } catch (ExecutionException ex) {
+                assertInstanceOf(TooManyRequestsException.class, ex.getCause());
+                rejected++;
+            }
+        }
+        executor.shutdownNow();
+
+        assertTrue(verified >= 1, "al menos una verificacion se tiene que completar");
+        assertTrue(rejected >= 1, "con la cola llena se tienen que rechazar verificaciones");
+        assertEquals(callers, verified + rejected);
+    }
+
+    private PasswordHasher hasher(int iterations, int memory, int threads, int queue) {
+        BoundedExecutor executor = new BoundedExecutor("argon2", threads, queue, 60000);
+        executors.add(executor);
+        return new PasswordHasher(iterations, memory, 1, executor, new HotelMetrics(new SimpleMeterRegistry()));
+    }
+}
@@ -0,0 +1,103 @@
+package com.hotel.hotel.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong time = new AtomicLong();
+
+    @Test
+    void allowsABurstAndRefillsOverTime() {
+        RateLimiter limiter = limiter(100, "POST /api/users/login=5/10");
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire("POST", "/api/users/login", "ip:1"));
+        }
+
+        assertEquals(2 * SECOND, limiter.tryAcquire("POST", "/api/users/login", "ip:1"));
+        //un token se recupera cada 2 segundos
+        time.addAndGet(2 * SECOND);
+        assertEquals(0, limiter.tryAcquire("POST", "/api/users/login", "ip:1"));
+        assertTrue(limiter.tryAcquire("POST", "/api/users/login", "ip:1") > 0);
+        //otro cliente y otro metodo tienen su propio limite
+        assertEquals(0, limiter.tryAcquire("POST", "/api/users/login", "ip:2"));
+        assertEquals(0, limiter.tryAcquire("GET", "/api/users/login", "ip:1"));
+    }
+
+    @Test
+    void appliesTheFirstMatchingRule() {
+        RateLimiter limiter = limiter(100, "GET /api/rooms/images/**=3/1", "/api/**=1/1");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("GET", "/api/rooms/images/a.jpg", "ip:1"));
+        }
+        assertTrue(limiter.tryAcquire("GET", "/api/rooms/images/a.jpg", "ip:1") > 0);
+        assertEquals(0, limiter.tryAcquire("GET", "/api/rooms/", "ip:1"));
+        assertTrue(limiter.tryAcquire("DELETE", "/api/users/1", "ip:1") > 0);
+        assertEquals(0, limiter.tryAcquire("GET", "/actuator/prometheus", "ip:1"));
+    }
+
+    @Test
+    void dropsRefilledBucketsAndSharesOneWhenFull() {
+        RateLimiter limiter = limiter(2, "/api/**=1/1");
+        assertEquals(0, limiter.tryAcquire("GET", "/api/rooms/", "ip:1"));
+        assertEquals(0, limiter.tryAcquire("GET", "/api/rooms/", "ip:2"));
+
+        //el mapa esta lleno, los clientes nuevos comparten el cubo de la regla
+        assertEquals(0, limiter.tryAcquire("GET", "/api/rooms/", "ip:3"));
+        assertTrue(limiter.tryAcquire("GET", "/api/rooms/", "ip:4") > 0);
+        assertEquals(2, limiter.size());
+
+        //pasado un segundo los cubos estan llenos y se eliminan al llegar un cliente nuevo
+        time.addAndGet(2 * SECOND);
+        assertEquals(0, limiter.tryAcquire("GET", "/api/rooms/", "ip:5"));
+        assertEquals(1, limiter.size());
+    }
+
+    @Test
+    void neverAllowsMoreThanTheCapacityConcurrently() throws Exception {
+        RateLimiter limiter = limiter(100, "/api/**=100/3600");
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        if (limiter.tryAcquire("GET", "/api/rooms/", "ip:1") == 0) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(100, allowed.get());
+    }
+
+    @Test
+    void rejectsMalformedRules() {
+        assertThrows(IllegalArgumentException.class, () -> limiter(10, "POST /api/users/login"));
+        assertThrows(IllegalArgumentException.class, () -> limiter(10, "/api/**=0/1"));
+    }
+
+    private RateLimiter limiter(int maxKeys, String... routes) {
+        return new RateLimiter(true, List.of(routes), maxKeys, time::get);
+    }
+}
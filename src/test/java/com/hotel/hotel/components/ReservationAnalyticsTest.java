@@ -0,0 +1,227 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.dto.RevenueReportDTO;
+import com.hotel.hotel.other.ReportPeriod;
+import com.hotel.hotel.other.Status;
+import com.hotel.hotel.repository.ReservationRepository;
+import com.hotel.hotel.repository.projection.ReservationFact;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReservationAnalyticsTest {
+    private static final LocalDate START = LocalDate.of(2023, 10, 30);
+
+    private final List<ReservationFact> facts = new ArrayList<>();
+    private ReservationAnalytics analytics;
+
+    @BeforeEach
+    void setUp() {
+        ReservationRepository repository = mock(ReservationRepository.class);
+        when(repository.findFactsByIdGreaterThan(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            Pageable page = invocation.getArgument(1);
+            return facts.stream().filter(fact -> fact.getId() > after).limit(page.getPageSize()).toList();
+        });
+        analytics = new ReservationAnalytics(repository, 2, 400);
+    }
+
+    @Test
+    void splitsRevenueAndNightsAcrossMonths() {
+        //3 noches: 30 y 31 de octubre y 1 de noviembre, 100 euros
+        facts.add(fact(1, 1, 0, 3, "100", Status.CONFIRMADA));
+        facts.add(fact(2, 2, 1, 2, "50", Status.PENDIENTE));
+        facts.add(fact(3, 2, 3, 5, "80", Status.CANCELADA));
+        analytics.load();
+
+        List<RevenueReportDTO> rows = analytics.report(START, START.plusDays(5), ReportPeriod.MONTH, Map.of(1L, "Doble", 2L, "Individual"), false);
+
+        assertEquals(2, rows.size());
+        RevenueReportDTO october = rows.get(0);
+        assertEquals(date(START), october.getPeriod());
+        assertEquals(4, october.getAvailableNights());
+        assertEquals(3, october.getSoldNights());
+        assertEquals(new BigDecimal("116.66"), october.getRevenue());
+        assertEquals(0.75, october.getOccupancy(), 1e-9);
+        assertEquals(2, october.getArrivals());
+        assertEquals(0, october.getCancellations());
+        RevenueReportDTO november = rows.get(1);
+        assertEquals(6, november.getAvailableNights());
+        assertEquals(1, november.getSoldNights());
+        assertEquals(new BigDecimal("33.34"), november.getRevenue());
+        assertEquals(33.34, november.getAdr(), 1e-9);
+        assertEquals(1, november.getArrivals());
+        assertEquals(1.0, november.getCancellationRate(), 1e-9);
+    }
+
+    @Test
+    void groupsByTypeAndAppliesRecordedChanges() {
+        facts.add(fact(1, 1, 0, 2, "100", Status.PENDIENTE));
+        facts.add(fact(2, 2, 0, 1, "40", Status.PENDIENTE));
+        facts.add(fact(3, 3, 0, 1, "60", Status.PENDIENTE));
+        analytics.load();
+        //la reserva 1 se cancela y llega una nueva fuera de orden
+        analytics.record(1L, 1L, date(START), date(START.plusDays(2)), new BigDecimal("100"), Status.CANCELADA);
+        analytics.record(5L, 1L, date(START.plusDays(1)), date(START.plusDays(2)), new BigDecimal("70"), Status.CONFIRMADA);
+        analytics.record(4L, 3L, date(START.plusDays(1)), date(START.plusDays(2)), new BigDecimal("30"), Status.CONFIRMADA);
+
+        List<RevenueReportDTO> rows = analytics.report(START, START.plusDays(2), ReportPeriod.DAY,
+                Map.of(1L, "Doble", 2L, "Individual", 3L, "Individual"), true);
+
+        assertEquals(4, rows.size());
+        assertRow(rows.get(0), "Doble", 1, 0, "0.00", 1, 1);
+        assertRow(rows.get(1), "Individual", 2, 2, "100.00", 2, 0);
+        assertRow(rows.get(2), "Doble", 1, 1, "70.00", 1, 0);
+        assertRow(rows.get(3), "Individual", 2, 1, "30.00", 1, 0);
+        assertEquals(50.0, rows.get(1).getAdr(), 1e-9);
+        assertEquals(50.0, rows.get(1).getRevpar(), 1e-9);
+    }
+
+    @Test
+    void agreesWithASequentialScan() {
+        Random random = new Random(11);
+        Map<Long, String> types = new HashMap<>();
+        for (long room = 1; room <= 40; room++) {
+            types.put(room, room % 3 == 0 ? "Suite" : "Doble");
+        }
+        long sold = 0;
+        long cents = 0;
+        for (long id = 1; id <= 200_000; id++) {
+            int entry = random.nextInt(400) - 20;
+            int exit = entry + 1 + random.nextInt(6);
+            Status status = Status.values()[random.nextInt(3)];
+            int price = 100 * (1 + random.nextInt(900));
+            facts.add(fact(id, 1 + random.nextInt(40), entry, exit, BigDecimal.valueOf(price, 2).toPlainString(), status));
+            if (status != Status.CANCELADA) {
+                int nights = exit - entry;
+                for (int night = 0; night < nights; night++) {
+                    if (entry + night >= 0 && entry + night < 365) {
+                        sold++;
+                        cents += (long) price * (night + 1) / nights - (long) price * night / nights;
+                    }
+                }
+            }
+        }
+        analytics = new ReservationAnalytics(mockRepository(), 10000, 400);
+        analytics.load();
+
+        List<RevenueReportDTO> rows = analytics.report(START, START.plusDays(365), ReportPeriod.MONTH, types, true);
+
+        assertEquals(sold, rows.stream().mapToLong(RevenueReportDTO::getSoldNights).sum());
+        assertEquals(BigDecimal.valueOf(cents, 2), rows.stream().map(RevenueReportDTO::getRevenue).reduce(BigDecimal.ZERO, BigDecimal::add));
+        assertEquals(40 * 365, rows.stream().mapToLong(RevenueReportDTO::getAvailableNights).sum());
+    }
+
+    @Test
+    void concurrentFirstReportsLoadOnce() throws Exception {
+        facts.add(fact(1, 1, 0, 2, "100", Status.CONFIRMADA));
+        ReservationRepository repository = mockRepository();
+        analytics = new ReservationAnalytics(repository, 10000, 400);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<RevenueReportDTO>>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return analytics.report(START, START.plusDays(2), ReportPeriod.DAY, Map.of(1L, "Doble"), false);
+            }));
+        }
+        start.countDown();
+        for (Future<List<RevenueReportDTO>> future : futures) {
+            assertEquals(2, future.get(1, TimeUnit.MINUTES).stream().mapToLong(RevenueReportDTO::getSoldNights).sum());
+        }
+        executor.shutdown();
+
+        verify(repository, times(1)).findFactsByIdGreaterThan(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void retriesTheLoadAfterAFailure() {
+        facts.add(fact(1, 1, 0, 2, "100", Status.CONFIRMADA));
+        ReservationRepository repository = mockRepository();
+        when(repository.findFactsByIdGreaterThan(anyLong(), any(Pageable.class)))
+                .thenThrow(new IllegalStateException("sin conexion"), new IllegalStateException("sin conexion"))
+                .thenAnswer(invocation -> facts.subList(0, 1));
+        analytics = new ReservationAnalytics(repository, 10000, 400);
+
+        analytics.load();
+        assertThrows(IllegalStateException.class,
+                () -> analytics.report(START, START.plusDays(2), ReportPeriod.DAY, Map.of(1L, "Doble"), false));
+        List<RevenueReportDTO> rows = analytics.report(START, START.plusDays(2), ReportPeriod.DAY, Map.of(1L, "Doble"), false);
+
+        assertEquals(2, rows.stream().mapToLong(RevenueReportDTO::getSoldNights).sum());
+    }
+
+    @Test
+    void rejectsRangesBeyondTheMaximum() {
+        assertThrows(IllegalArgumentException.class,
+                () -> analytics.report(START, START.plusDays(401), ReportPeriod.MONTH, Map.of(1L, "Doble"), false));
+        assertFalse(analytics.report(START, START.plusDays(400), ReportPeriod.MONTH, Map.of(1L, "Doble"), false).isEmpty());
+    }
+
+    private ReservationRepository mockRepository() {
+        ReservationRepository repository = mock(ReservationRepository.class);
+        when(repository.findFactsByIdGreaterThan(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            Pageable page = invocation.getArgument(1);
+            int from = (int) after;
+            return facts.subList(Math.min(from, facts.size()), Math.min(from + page.getPageSize(), facts.size()));
+        });
+        return repository;
+    }
+
+    private static void assertRow(RevenueReportDTO row, String type, int rooms, long sold, String revenue, long arrivals, long cancellations) {
+        assertEquals(type, row.getType());
+        assertEquals(rooms, row.getRooms());
+        assertEquals(sold, row.getSoldNights());
+        assertEquals(new BigDecimal(revenue), row.getRevenue());
+        assertEquals(arrivals, row.getArrivals());
+        assertEquals(cancellations, row.getCancellations());
+    }
+
+    private static Date date(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static ReservationFact fact(long id, long roomId, int entry, int exit, String price, Status status) {
+        return new ReservationFact() {
+            public Long getId() {
+                return id;
+            }
+
+            public Long getRoomId() {
+                return roomId;
+            }
+
+            public String getRoomType() {
+                return null;
+            }
+
+            public Date getEntryDate() {
+                return date(START.plusDays(entry));
+            }
+
+            public Date getExitDate() {
+                return date(START.plusDays(exit));
+            }
+
+            public BigDecimal getTotalPrice() {
+                return new BigDecimal(price);
+            }
+
+            public Status getStatus() {
+                return status;
+            }
+        };
+    }
+}
@@ -0,0 +1,235 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.dto.ChangeFeedDTO;
+import com.hotel.hotel.dto.ReservationChangeDTO;
+import com.hotel.hotel.entity.Reservation;
+import com.hotel.hotel.entity.ReservationChange;
+import com.hotel.hotel.entity.Room;
+import com.hotel.hotel.entity.User;
+import com.hotel.hotel.other.ChangeType;
+import com.hotel.hotel.other.Status;
+import com.hotel.hotel.repository.ReservationChangeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReservationChangeLogTest {
+    private static final LocalDate DAY = LocalDate.of(2023, 10, 10);
+
+    @TempDir
+    Path dir;
+
+    private final List<ReservationChangeLog> logs = new ArrayList<>();
+    /**
+     * Filas de la tabla reservation_change por id
+     */
+    private final TreeMap<Long, ReservationChange> table = new TreeMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicBoolean failDeletes = new AtomicBoolean();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ReservationChangeRepository repository;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = mock(ReservationChangeRepository.class);
+        when(repository.save(any(ReservationChange.class))).thenAnswer(invocation -> insert(invocation.getArgument(0)));
+        doAnswer(invocation -> {
+            List<ReservationChange> changes = invocation.getArgument(0);
+            changes.forEach(this::insert);
+            return null;
+        }).when(repository).insertAll(anyList());
+        when(repository.findByOrderByIdAsc(any(Pageable.class))).thenAnswer(invocation -> {
+            Pageable page = invocation.getArgument(0);
+            return table.values().stream().limit(page.getPageSize()).toList();
+        });
+        doAnswer(invocation -> {
+            if (failDeletes.get()) {
+                throw new DataAccessResourceFailureException("sin conexion");
+            }
+            ((Iterable<Long>) invocation.getArgument(0)).forEach(table::remove);
+            return null;
+        }).when(repository).deleteAllByIdInBatch(any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        logs.forEach(ReservationChangeLog::close);
+    }
+
+    @Test
+    void readsBatchesAcrossSegments() throws IOException {
+        ReservationChangeLog changeLog = changeLog(dir);
+        List<Reservation> reservations = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            reservations.add(reservation(id, Status.PENDIENTE));
+        }
+        changeLog.stageAll(ChangeType.RESERVED, reservations);
+        changeLog.stage(ChangeType.CONFIRMED, reservation(3, Status.CONFIRMADA));
+        changeLog.stage(ChangeType.CANCELLED, reservation(7, Status.CANCELADA));
+        assertEquals(0, changeLog.read(0, null).getEnd());
+        changeLog.publish();
+        assertTrue(table.isEmpty());
+
+        ChangeFeedDTO first = changeLog.read(0, 5);
+        assertEquals(5, first.getChanges().size());
+        assertEquals(5, first.getNext());
+        assertEquals(12, first.getEnd());
+
+        ChangeFeedDTO second = changeLog.read(first.getNext(), null);
+        assertEquals(7, second.getChanges().size());
+        assertEquals(12, second.getNext());
+        ReservationChangeDTO confirmed = second.getChanges().get(5);
+        assertEquals(10, confirmed.getOffset());
+        assertEquals(ChangeType.CONFIRMED, confirmed.getType());
+        assertEquals(Status.CONFIRMADA, confirmed.getStatus());
+        assertEquals(3, confirmed.getReservationId());
+        assertEquals(13, confirmed.getRoomId());
+        assertEquals(1, confirmed.getUserId());
+        assertEquals(date(DAY.plusDays(3)), confirmed.getEntryDate());
+        assertEquals(date(DAY.plusDays(5)), confirmed.getExitDate());
+        assertEquals(new BigDecimal("120.50"), confirmed.getTotalPrice());
+        assertEquals(ChangeType.CANCELLED, second.getChanges().get(6).getType());
+
+        assertTrue(changeLog.read(12, 10).getChanges().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> changeLog.read(13, 10));
+        //4 cambios por segmento
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(3, files.count());
+        }
+    }
+
+    @Test
+    void keepsChangesInTheTableUntilTheLogCanBeWritten() throws IOException {
+        //el directorio del registro es un fichero, asi que no se puede abrir
+        Path logDir = Files.createFile(dir.resolve("changes"));
+        ReservationChangeLog changeLog = changeLog(logDir);
+        changeLog.stage(ChangeType.RESERVED, reservation(1, Status.PENDIENTE));
+        changeLog.publish();
+
+        assertEquals(1, table.size());
+        assertEquals(2.0, registry.get("hotel.reservations.changes.failures").counter().count());
+
+        Files.delete(logDir);
+        //la lectura vuelve a intentar pasar los cambios pendientes
+        List<ReservationChangeDTO> changes = changeLog.read(0, null).getChanges();
+        assertEquals(1, changes.size());
+        assertEquals(1, changes.get(0).getReservationId());
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    void doesNotRepeatChangesWrittenBeforeACrash() {
+        ReservationChangeLog changeLog = changeLog(dir);
+        changeLog.stage(ChangeType.RESERVED, reservation(1, Status.PENDIENTE));
+        changeLog.publish();
+        //la aplicacion se cae despues de escribir los cambios y antes de borrarlos de la tabla
+        failDeletes.set(true);
+        changeLog.stageAll(ChangeType.RESERVED, List.of(reservation(2, Status.PENDIENTE), reservation(3, Status.PENDIENTE)));
+        changeLog.publish();
+        changeLog.close();
+        assertEquals(2, table.size());
+        failDeletes.set(false);
+
+        ReservationChangeLog reopened = changeLog(dir);
+        reopened.stage(ChangeType.CANCELLED, reservation(2, Status.CANCELADA));
+        reopened.publish();
+
+        List<ReservationChangeDTO> changes = reopened.read(0, null).getChanges();
+        assertEquals(List.of(1L, 2L, 3L, 2L), changes.stream().map(ReservationChangeDTO::getReservationId).toList());
+        assertEquals(ChangeType.CANCELLED, changes.get(3).getType());
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    void discardsTornRecordsWhenReopened() throws IOException {
+        ReservationChangeLog changeLog = changeLog(dir);
+        for (long id = 1; id <= 5; id++) {
+            changeLog.stage(ChangeType.RESERVED, reservation(id, Status.PENDIENTE));
+            changeLog.publish();
+        }
+        failDeletes.set(true);
+        changeLog.stage(ChangeType.RESERVED, reservation(6, Status.PENDIENTE));
+        changeLog.publish();
+        changeLog.close();
+        failDeletes.set(false);
+        //el cambio con offset 5 es el segundo del segmento que empieza en 4 y se queda escrito a medias
+        try (FileChannel channel = FileChannel.open(dir.resolve("00000000000000000004.log"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f}), 64 + 20);
+        }
+
+        //al arrancar se descarta el registro a medias y se vuelve a escribir desde la tabla
+        ReservationChangeLog reopened = changeLog(dir);
+        reopened.stage(ChangeType.CANCELLED, reservation(2, Status.CANCELADA));
+        reopened.publish();
+
+        List<ReservationChangeDTO> changes = reopened.read(0, null).getChanges();
+        assertEquals(7, changes.size());
+        assertEquals(6, changes.get(5).getReservationId());
+        assertEquals(6, changes.get(6).getOffset());
+        assertEquals(ChangeType.CANCELLED, changes.get(6).getType());
+        assertEquals(2, changes.get(6).getReservationId());
+        assertEquals(4, changes.get(3).getReservationId());
+    }
+
+    private ReservationChangeLog changeLog(Path directory) {
+        ReservationChangeLog changeLog = new ReservationChangeLog(directory.toString(), 4 * 64, 100, repository, new HotelMetrics(registry));
+        changeLog.load();
+        logs.add(changeLog);
+        return changeLog;
+    }
+
+    private ReservationChange insert(ReservationChange change) {
+        change.setId(ids.incrementAndGet());
+        table.put(change.getId(), change);
+        return change;
+    }
+
+    private static Reservation reservation(long id, Status status) {
+        User user = new User();
+        user.setId(1L);
+        Room room = new Room();
+        room.setId(10 + id);
+        Reservation reservation = new Reservation();
+        reservation.setId(id);
+        reservation.setUser(user);
+        reservation.setRoom(room);
+        reservation.setEntryDate(date(DAY.plusDays(id)));
+        reservation.setExitDate(date(DAY.plusDays(id + 2)));
+        reservation.setTotalPrice(new BigDecimal("120.5"));
+        reservation.setStatus(status);
+        return reservation;
+    }
+
+    private static Date date(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,82 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.entity.Room;
+import com.hotel.hotel.repository.RoomRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RoomCacheTest {
+    private RoomRepository repository;
+    private RoomCache cache;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RoomRepository.class);
+        when(repository.findById(1L)).thenAnswer(invocation -> Optional.of(room(40L)));
+        cache = new RoomCache(repository, 100, 60000);
+    }
+
+    @Test
+    void readsTheDatabaseOnlyOnce() {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(40L, cache.findById(1L).orElseThrow().getPrice());
+        }
+
+        verify(repository, times(1)).findById(1L);
+        assertEquals(9, cache.getStats().getHits());
+        assertEquals(1, cache.getStats().getMisses());
+    }
+
+    @Test
+    void returnsCopiesThatDoNotChangeTheCache() {
+        cache.findById(1L).orElseThrow().setPrice(1L);
+
+        assertEquals(40L, cache.findById(1L).orElseThrow().getPrice());
+    }
+
+    @Test
+    void reloadsAfterInvalidation() {
+        cache.findById(1L);
+        when(repository.findById(1L)).thenReturn(Optional.of(room(80L)));
+        cache.invalidate(1L);
+
+        assertEquals(80L, cache.findById(1L).orElseThrow().getPrice());
+        verify(repository, times(2)).findById(1L);
+    }
+
+    @Test
+    void doesNotCacheARoomReadBeforeAnInvalidation() {
+        when(repository.findById(1L)).thenAnswer(invocation -> {
+            //la habitacion se modifica mientras se esta leyendo la version anterior
+            cache.invalidate(1L);
+            return Optional.of(room(40L));
+        });
+        cache.findById(1L);
+        when(repository.findById(1L)).thenReturn(Optional.of(room(80L)));
+
+        assertEquals(80L, cache.findById(1L).orElseThrow().getPrice());
+    }
+
+    @Test
+    void doesNotCacheMissingRooms() {
+        when(repository.findById(2L)).thenReturn(Optional.empty());
+
+        assertTrue(cache.findById(2L).isEmpty());
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    private static Room room(long price) {
+        Room room = new Room();
+        room.setId(1L);
+        room.setType("Doble");
+        room.setCapacity(2);
+        room.setPrice(price);
+        room.setDescripcion("Habitacion doble");
+        return room;
+    }
+}
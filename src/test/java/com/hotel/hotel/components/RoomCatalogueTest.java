@@ -0,0 +1,105 @@
+package com.hotel.hotel.components;
+
+import com.hotel.hotel.entity.Room;
+import com.hotel.hotel.repository.RoomRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RoomCatalogueTest {
+    private RoomRepository repository;
+    private RoomCatalogue catalogue;
+    private final List<Room> rooms = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RoomRepository.class);
+        rooms.add(room(1L, "Individual", 1, 40L));
+        rooms.add(room(2L, "Doble", 2, 60L));
+        rooms.add(room(3L, "Doble", 3, 80L));
+        rooms.add(room(4L, "Suite", 4, 150L));
+        when(repository.findAll()).thenAnswer(invocation -> new ArrayList<>(rooms));
+        catalogue = new RoomCatalogue(repository);
+    }
+
+    @Test
+    void combinesTheFiltersWithoutQueryingAgain() {
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(catalogue.search(null, null, null, null, null)));
+        assertEquals(List.of(2L, 3L), ids(catalogue.search(List.of("doble"), null, null, null, null)));
+        assertEquals(List.of(3L, 4L), ids(catalogue.search(List.of("Doble", "Suite"), 3, null, null, null)));
+        assertEquals(List.of(3L), ids(catalogue.search(null, 3, 3, null, null)));
+        assertEquals(List.of(2L, 3L), ids(catalogue.search(null, null, null, 60L, 80L)));
+        assertEquals(List.of(3L), ids(catalogue.search(List.of("Doble"), 2, null, 70L, null)));
+        assertTrue(catalogue.search(List.of("Triple"), null, null, null, null).isEmpty());
+        assertTrue(catalogue.search(null, 3, 2, null, null).isEmpty());
+
+        verify(repository, times(1)).findAll();
+    }
+
+    @Test
+    void refreshesInsertedAndUpdatedRooms() {
+        catalogue.load();
+        catalogue.put(room(5L, "Doble", 2, 70L));
+        catalogue.put(room(1L, "Doble", 2, 90L));
+
+        assertEquals(List.of(1L, 2L, 3L, 5L), ids(catalogue.search(List.of("Doble"), null, null, null, null)));
+        assertEquals(List.of(1L, 2L, 5L), ids(catalogue.search(null, 2, 2, null, null)));
+        assertEquals(List.of(1L, 3L, 5L), ids(catalogue.search(null, null, null, 70L, 90L)));
+        assertTrue(catalogue.search(List.of("Individual"), null, null, null, null).isEmpty());
+        verify(repository, times(1)).findAll();
+    }
+
+    @Test
+    void matchesAFullScanAfterManyUpdates() {
+        Random random = new Random(7);
+        String[] types = {"Individual", "Doble", "Suite"};
+        catalogue.load();
+        for (int i = 0; i < 500; i++) {
+            Room room = room(1L + random.nextInt(60), types[random.nextInt(types.length)],
+                    1 + random.nextInt(4), 30L + random.nextInt(100));
+            rooms.removeIf(existing -> existing.getId().equals(room.getId()));
+            rooms.add(room);
+            catalogue.put(room);
+        }
+        rooms.sort((a, b) -> a.getId().compareTo(b.getId()));
+
+        for (int i = 0; i < 200; i++) {
+            List<String> filter = List.of(types[random.nextInt(types.length)]);
+            int capacity = 1 + random.nextInt(4);
+            long min = 30L + random.nextInt(100);
+            long max = min + random.nextInt(50);
+            List<Long> expected = ids(rooms.stream()
+                    .filter(room -> filter.contains(room.getType()) && room.getCapacity() >= capacity
+                            && room.getPrice() >= min && room.getPrice() <= max)
+                    .toList());
+            assertEquals(expected, ids(catalogue.search(filter, capacity, null, min, max)));
+        }
+    }
+
+    @Test
+    void returnsCopiesThatDoNotChangeTheCatalogue() {
+        catalogue.search(null, null, null, null, null).get(0).setPrice(1L);
+
+        assertEquals(40L, catalogue.search(null, null, null, null, null).get(0).getPrice());
+    }
+
+    private static List<Long> ids(List<Room> rooms) {
+        return rooms.stream().map(Room::getId).toList();
+    }
+
+    private static Room room(Long id, String type, int capacity, long price) {
+        Room room = new Room();
+        room.setId(id);
+        room.setType(type);
+        room.setCapacity(capacity);
+        room.setPrice(price);
+        room.setDescripcion("Habitacion " + type);
+        return room;
+    }
+}
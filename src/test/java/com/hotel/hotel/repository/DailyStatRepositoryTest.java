@@ -0,0 +1,174 @@
+package com.hotel.hotel.repository;
+
+import com.hotel.hotel.components.DailyStatsRollup;
+import com.hotel.hotel.dto.DailyStatDTO;
+import com.hotel.hotel.entity.Reservation;
+import com.hotel.hotel.entity.Room;
+import com.hotel.hotel.entity.User;
+import com.hotel.hotel.other.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static com.hotel.hotel.repository.RepositoryFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba las sentencias que mantienen los contadores diarios de las reservas
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+class DailyStatRepositoryTest {
+    private static final LocalDate DAY = LocalDate.of(2023, 10, 10);
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private DailyStatRepository repository;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private RoomRepository roomRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private DailyStatsRollup rollup;
+
+    @BeforeEach
+    void setUp() {
+        rollup = new DailyStatsRollup(repository, reservationRepository, roomRepository, transactionManager, 2);
+    }
+
+    @Test
+    void appliesReservationsConfirmationsAndCancellations() {
+        User user = user(entityManager, "user");
+        Room doble = room(entityManager, "Doble");
+        Room suite = room(entityManager, "Suite");
+        Reservation first = reservation(user, doble, 0, 3, "100", Status.PENDIENTE);
+        Reservation second = reservation(user, doble, 1, 2, "50", Status.PENDIENTE);
+        Reservation third = reservation(user, suite, 1, 3, "300", Status.PENDIENTE);
+        rollup.apply(first, null);
+        rollup.applyAll(List.of(second, third));
+
+        first.setStatus(Status.CONFIRMADA);
+        rollup.apply(first, Status.PENDIENTE);
+        second.setStatus(Status.CANCELADA);
+        rollup.apply(second, Status.PENDIENTE);
+        entityManager.clear();
+
+        List<DailyStatDTO> stats = rollup.find(DAY, DAY.plusDays(3), null);
+        assertStat(stats.get(0), "Doble", 1, "33.33", 1, 0, 0);
+        assertStat(stats.get(1), "Doble", 1, "33.33", 0, 0, 1);
+        assertStat(stats.get(2), "Suite", 1, "150.00", 1, 0, 0);
+        assertStat(stats.get(3), "Doble", 1, "33.34", 0, 0, 0);
+        //la reserva cancelada ya no cuenta como noche vendida ni como salida
+        assertStat(stats.get(4), "Suite", 1, "150.00", 0, 0, 0);
+        assertStat(stats.get(5), "Doble", 0, "0.00", 0, 1, 0);
+        assertStat(stats.get(6), "Suite", 0, "0.00", 0, 1, 0);
+        assertEquals(7, stats.size());
+        assertEquals(3, rollup.find(DAY, DAY.plusDays(3), "Suite").size());
+    }
+
+    @Test
+    void rebuildsTheSameCountersInChunks() {
+        User user = user(entityManager, "user");
+        Room doble = room(entityManager, "Doble");
+        Room suite = room(entityManager, "Suite");
+        for (int i = 0; i < 15; i++) {
+            Reservation reservation = reservation(user, i % 2 == 0 ? doble : suite, i % 5, i % 5 + 1 + i % 3,
+                    String.valueOf(10 * (i + 1)), i % 4 == 0 ? Status.CANCELADA : Status.PENDIENTE);
+            rollup.apply(reservation, null);
+        }
+        entityManager.clear();
+        List<DailyStatDTO> applied = rollup.find(DAY, DAY.plusDays(10), null);
+
+        repository.add(DAY, "Doble", 100, BigDecimal.TEN, 1, 1, 1);
+        assertEquals(15, rollup.rebuild());
+        entityManager.clear();
+
+        List<DailyStatDTO> rebuilt = rollup.find(DAY, DAY.plusDays(10), null);
+        assertEquals(applied.size(), rebuilt.size());
+        for (int i = 0; i < applied.size(); i++) {
+            assertEquals(applied.get(i).getRoomType(), rebuilt.get(i).getRoomType());
+            assertEquals(applied.get(i).getNightsSold(), rebuilt.get(i).getNightsSold());
+            assertEquals(0, applied.get(i).getRevenue().compareTo(rebuilt.get(i).getRevenue()));
+            assertEquals(applied.get(i).getArrivals(), rebuilt.get(i).getArrivals());
+            assertEquals(applied.get(i).getDepartures(), rebuilt.get(i).getDepartures());
+            assertEquals(applied.get(i).getCancellations(), rebuilt.get(i).getCancellations());
+        }
+    }
+
+    @Test
+    void keepsReservationsInTheTypeTheyWereBookedWith() {
+        Room room = room(entityManager, "Doble");
+        Reservation reservation = reservation(user(entityManager, "user"), room, 0, 2, "100", Status.PENDIENTE);
+        rollup.apply(reservation, null);
+        room.setType("Suite");
+        entityManager.flush();
+
+        reservation.setStatus(Status.CANCELADA);
+        rollup.apply(reservation, Status.PENDIENTE);
+        entityManager.clear();
+
+        List<DailyStatDTO> applied = rollup.find(DAY, DAY.plusDays(2), null);
+        assertStat(applied.get(0), "Doble", 0, "0.00", 0, 0, 1);
+        assertStat(applied.get(1), "Doble", 0, "0.00", 0, 0, 0);
+        assertStat(applied.get(2), "Doble", 0, "0.00", 0, 0, 0);
+        assertEquals(3, applied.size());
+
+        rollup.rebuild();
+        entityManager.clear();
+        List<DailyStatDTO> rebuilt = rollup.find(DAY, DAY.plusDays(2), null);
+        assertStat(rebuilt.get(0), "Doble", 0, "0.00", 0, 0, 1);
+        assertEquals(1, rebuilt.size());
+    }
+
+    private static void assertStat(DailyStatDTO stat, String type, long nights, String revenue, long arrivals,
+                                   long departures, long cancellations) {
+        assertEquals(type, stat.getRoomType());
+        assertEquals(nights, stat.getNightsSold());
+        assertEquals(0, new BigDecimal(revenue).compareTo(stat.getRevenue()), stat.getRevenue().toPlainString());
+        assertEquals(arrivals, stat.getArrivals());
+        assertEquals(departures, stat.getDepartures());
+        assertEquals(cancellations, stat.getCancellations());
+    }
+
+    private Reservation reservation(User user, Room room, int entry, int exit, String price, Status status) {
+        Reservation reservation = new Reservation();
+        reservation.setUser(user);
+        reservation.setRoom(room);
+        reservation.setRoomType(room.getType());
+        reservation.setEntryDate(Date.from(DAY.plusDays(entry).atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        reservation.setExitDate(Date.from(DAY.plusDays(exit).atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        reservation.setCreationDate(LocalDateTime.now());
+        reservation.setTotalPrice(new BigDecimal(price));
+        reservation.setStatus(status);
+        return entityManager.persist(reservation);
+    }
+
+    /**
+     * Configuracion solo con la capa de persistencia, HotelApplication activa Spring MVC y no se puede usar
+     * en un test sin servidor web
+     */
+    @SpringBootConfiguration
+    @EntityScan(basePackageClasses = User.class)
+    @EnableJpaRepositories(basePackageClasses = DailyStatRepository.class)
+    static class PersistenceConfig {
+    }
+}
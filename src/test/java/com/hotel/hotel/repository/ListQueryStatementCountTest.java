@@ -0,0 +1,146 @@
+package com.hotel.hotel.repository;
+
+import com.hotel.hotel.components.DTOConverter;
+import com.hotel.hotel.entity.Comment;
+import com.hotel.hotel.entity.Reservation;
+import com.hotel.hotel.entity.Room;
+import com.hotel.hotel.entity.User;
+import com.hotel.hotel.other.Status;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static com.hotel.hotel.repository.RepositoryFixtures.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Comprueba que los listados de reservas y comentarios, incluida su conversion a dto, se resuelven con una
+ * sola sentencia sea cual sea el numero de filas, usuarios y habitaciones
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ListQueryStatementCountTest {
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+
+    private final DTOConverter converter = new DTOConverter(new ModelMapper());
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 40})
+    void reservationListsUseOneStatement(int rows) {
+        Room room = insert(rows);
+
+        assertEquals(rows, statements(() -> reservationRepository.findAll().stream()
+                .map(converter::convertReservationToDTO).toList()));
+        assertEquals(rows - 1, statements(() -> reservationRepository.findByRoomId(room.getId()).stream()
+                .map(converter::convertReservationToDTO).toList()));
+        assertEquals(rows, statements(() -> reservationRepository.findByStatusIn(List.of(Status.PENDIENTE)).stream()
+                .map(converter::convertReservationToDTO).toList()));
+        assertEquals(rows, statements(() -> reservationRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 100)).stream()
+                .map(converter::convertReservationToDTO).toList()));
+        assertEquals(rows, statements(() -> streamed(reservationRepository.streamAll(), converter::convertReservationToDTO)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 40})
+    void commentListsUseOneStatement(int rows) {
+        Room room = insert(rows);
+
+        assertEquals(rows, statements(() -> commentRepository.findAll().stream()
+                .map(converter::convertCommentToDTO).toList()));
+        assertEquals(rows - 1, statements(() -> commentRepository.findByRoomId(room.getId()).stream()
+                .map(converter::convertCommentToDTO).toList()));
+        assertEquals(rows, statements(() -> commentRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 100)).stream()
+                .map(converter::convertCommentToDTO).toList()));
+        assertEquals(rows, statements(() -> streamed(commentRepository.streamAll(), converter::convertCommentToDTO)));
+    }
+
+    /**
+     * Inserta una reserva y un comentario por fila, cada uno de un usuario distinto. Todos son de la misma
+     * habitacion salvo el ultimo, para que tambien haya varias habitaciones
+     */
+    private Room insert(int rows) {
+        Room room = room(entityManager, "Doble");
+        for (int i = 0; i < rows; i++) {
+            User user = user(entityManager, "user" + i);
+
+            Room reserved = i == rows - 1 ? room(entityManager, "Doble") : room;
+            Reservation reservation = new Reservation();
+            reservation.setUser(user);
+            reservation.setRoom(reserved);
+            reservation.setEntryDate(new Date());
+            reservation.setExitDate(new Date());
+            reservation.setTotalPrice(BigDecimal.TEN);
+            reservation.setStatus(Status.PENDIENTE);
+            entityManager.persist(reservation);
+
+            Comment comment = new Comment();
+            comment.setUser(user);
+            comment.setRoom(reserved);
+            comment.setQualification(5);
+            comment.setComment("comentario " + i);
+            entityManager.persist(comment);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return room;
+    }
+
+    /**
+     * Ejecuta un listado con el contexto de persistencia vacio y comprueba que solo se prepara una sentencia
+     *
+     * @return el numero de elementos del listado
+     */
+    private int statements(Supplier<List<?>> list) {
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        int size = list.get().size();
+        assertEquals(1, statistics.getPrepareStatementCount());
+        return size;
+    }
+
+    private static <E, D> List<D> streamed(Stream<E> stream, Function<E, D> converter) {
+        try (stream) {
+            return stream.map(converter).toList();
+        }
+    }
+
+    /**
+     * Configuracion solo con la capa de persistencia, HotelApplication activa Spring MVC y no se puede usar
+     * en un test sin servidor web
+     */
+    @SpringBootConfiguration
+    @EntityScan(basePackageClasses = User.class)
+    @EnableJpaRepositories(basePackageClasses = ReservationRepository.class)
+    static class PersistenceConfig {
+    }
+}
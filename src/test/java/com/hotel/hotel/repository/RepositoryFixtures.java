@@ -0,0 +1,33 @@
+package com.hotel.hotel.repository;
+
+import com.hotel.hotel.entity.Room;
+import com.hotel.hotel.entity.User;
+import com.hotel.hotel.other.Role;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+/**
+ * Habitaciones y usuarios minimos que guardan los tests de los repositorios. Se escriben en la base de datos
+ * al crearlos para que tambien los vean las sentencias JDBC
+ */
+final class RepositoryFixtures {
+    private RepositoryFixtures() {
+    }
+
+    static Room room(TestEntityManager entityManager, String type) {
+        Room room = new Room();
+        room.setType(type);
+        room.setCapacity(2);
+        room.setPrice(60L);
+        room.setDescripcion("Habitacion " + type);
+        return entityManager.persistAndFlush(room);
+    }
+
+    static User user(TestEntityManager entityManager, String name) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(name + "@gmail.com");
+        user.setPassword("HASHED_PASSWORD");
+        user.setType(Role.USER);
+        return entityManager.persistAndFlush(user);
+    }
+}
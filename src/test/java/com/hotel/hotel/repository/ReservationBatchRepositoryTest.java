@@ -0,0 +1,115 @@
+package com.hotel.hotel.repository;
+
+import com.hotel.hotel.entity.Reservation;
+import com.hotel.hotel.entity.ReservationChange;
+import com.hotel.hotel.entity.Room;
+import com.hotel.hotel.entity.User;
+import com.hotel.hotel.other.ChangeType;
+import com.hotel.hotel.other.Status;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static com.hotel.hotel.repository.RepositoryFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba la insercion de reservas en lotes JDBC
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@TestPropertySource(properties = "reservations.batch.jdbc-size=4")
+class ReservationBatchRepositoryTest {
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private ReservationRepository repository;
+    @Autowired
+    private ReservationChangeRepository changeRepository;
+
+    @Test
+    void insertsInBatchesAndAssignsTheGeneratedIds() {
+        User user = user(entityManager, "user");
+        Room room = room(entityManager, "Doble");
+        LocalDate entry = LocalDate.now().plusDays(1);
+        List<Reservation> reservations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            reservations.add(reservation(user, room, entry.plusDays(3L * i), entry.plusDays(3L * i + 2)));
+        }
+
+        repository.insertAll(reservations);
+
+        assertEquals(10, reservations.stream().map(Reservation::getId).distinct().count());
+        assertEquals(10, repository.count());
+        for (Reservation reservation : reservations) {
+            Reservation stored = repository.findById(reservation.getId()).orElseThrow();
+            assertEquals(room.getId(), stored.getRoom().getId());
+            assertEquals(user.getId(), stored.getUser().getId());
+            assertEquals(reservation.getEntryDate().getTime(), stored.getEntryDate().getTime());
+            assertEquals(Status.PENDIENTE, stored.getStatus());
+            assertEquals(0, BigDecimal.valueOf(120).compareTo(stored.getTotalPrice()));
+        }
+        assertEquals(10, repository.findStaysByRoomIdAndStatusNot(room.getId(), Status.CANCELADA).size());
+    }
+
+    @Test
+    void insertsChangesInBatchesInOrder() {
+        User user = user(entityManager, "user");
+        Room room = room(entityManager, "Doble");
+        LocalDate entry = LocalDate.now().plusDays(1);
+        List<Reservation> reservations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            reservations.add(reservation(user, room, entry.plusDays(3L * i), entry.plusDays(3L * i + 2)));
+        }
+        repository.insertAll(reservations);
+        Date time = new Date();
+
+        changeRepository.insertAll(reservations.stream().map(reservation -> new ReservationChange(ChangeType.RESERVED, time, reservation)).toList());
+
+        List<ReservationChange> changes = changeRepository.findByOrderByIdAsc(PageRequest.of(0, 100));
+        assertEquals(reservations.stream().map(Reservation::getId).toList(), changes.stream().map(ReservationChange::getReservationId).toList());
+        assertEquals(room.getId(), changes.get(0).getRoomId());
+        assertEquals(user.getId(), changes.get(0).getUserId());
+        assertEquals(Status.PENDIENTE, changes.get(0).getStatus());
+        assertEquals(ChangeType.RESERVED, changes.get(0).getType());
+    }
+
+    private Reservation reservation(User user, Room room, LocalDate entry, LocalDate exit) {
+        Reservation reservation = new Reservation();
+        reservation.setUser(user);
+        reservation.setRoom(room);
+        reservation.setEntryDate(Date.from(entry.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        reservation.setExitDate(Date.from(exit.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        reservation.setCreationDate(LocalDateTime.now());
+        reservation.setTotalPrice(BigDecimal.valueOf(120));
+        reservation.setStatus(Status.PENDIENTE);
+        return reservation;
+    }
+
+    /**
+     * Configuracion solo con la capa de persistencia, HotelApplication activa Spring MVC y no se puede usar
+     * en un test sin servidor web
+     */
+    @SpringBootConfiguration
+    @EntityScan(basePackageClasses = User.class)
+    @EnableJpaRepositories(basePackageClasses = ReservationRepository.class)
+    static class PersistenceConfig {
+    }
+}
@@ -0,0 +1,97 @@
+package com.hotel.hotel.repository;
+
+import com.hotel.hotel.components.RoomRatings;
+import com.hotel.hotel.dto.RatingDTO;
+import com.hotel.hotel.entity.Comment;
+import com.hotel.hotel.entity.Room;
+import com.hotel.hotel.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static com.hotel.hotel.repository.RepositoryFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba las sentencias que mantienen el resumen de las calificaciones de cada habitacion
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+class RoomRatingRepositoryTest {
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private RoomRatingRepository repository;
+
+    @Test
+    void addsAndRemovesQualificationsInPlace() {
+        Long roomId = room(entityManager, "Doble").getId();
+        RoomRatings ratings = new RoomRatings(repository);
+
+        ratings.add(roomId, 5);
+        ratings.add(roomId, 4);
+        ratings.add(roomId, 5);
+        ratings.remove(roomId, 4);
+        ratings.add(roomId, null);
+        ratings.refresh(roomId);
+
+        RatingDTO rating = ratings.get(roomId);
+        assertEquals(2, rating.getComments());
+        assertEquals(5.0, rating.getAverage());
+        assertArrayEquals(new long[]{0, 0, 0, 0, 2}, rating.getHistogram());
+        assertEquals(4, repository.findById(roomId).orElseThrow().getVersion());
+    }
+
+    @Test
+    void rebuildsFromTheCommentsAndRanksByAverage() {
+        Room first = room(entityManager, "Doble");
+        Room second = room(entityManager, "Doble");
+        Room empty = room(entityManager, "Doble");
+        User user = user(entityManager, "user");
+        comment(user, first, 3);
+        comment(user, first, 4);
+        comment(user, second, 5);
+        comment(user, second, null);
+        entityManager.flush();
+
+        assertEquals(List.of(first.getId(), second.getId()), repository.findRoomIdsCommentedBy(user.getId()).stream().sorted().toList());
+        RoomRatings ratings = new RoomRatings(repository);
+        ratings.add(first.getId(), 1);
+        ratings.rebuild(List.of(first.getId(), second.getId(), empty.getId()));
+
+        assertEquals(2, ratings.get(first.getId()).getComments());
+        assertEquals(3.5, ratings.get(first.getId()).getAverage());
+        assertEquals(1, ratings.get(second.getId()).getComments());
+        assertEquals(0, ratings.get(empty.getId()).getComments());
+        assertEquals(List.of(second.getId(), first.getId()), ratings.ranking(10));
+        assertEquals(List.of(second.getId()), ratings.ranking(1));
+    }
+
+    private void comment(User user, Room room, Integer qualification) {
+        Comment comment = new Comment();
+        comment.setUser(user);
+        comment.setRoom(room);
+        comment.setQualification(qualification);
+        comment.setComment("comentario");
+        entityManager.persist(comment);
+    }
+
+    /**
+     * Configuracion solo con la capa de persistencia, HotelApplication activa Spring MVC y no se puede usar
+     * en un test sin servidor web
+     */
+    @SpringBootConfiguration
+    @EntityScan(basePackageClasses = User.class)
+    @EnableJpaRepositories(basePackageClasses = RoomRatingRepository.class)
+    static class PersistenceConfig {
+    }
+}
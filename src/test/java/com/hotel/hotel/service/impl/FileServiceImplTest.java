@@ -0,0 +1,133 @@
+package com.hotel.hotel.service.impl;
+
+import com.hotel.hotel.components.BoundedExecutor;
+import com.hotel.hotel.exception.TooManyRequestsException;
+import com.hotel.hotel.service.FileService.StoredImage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileServiceImplTest {
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    @TempDir
+    Path dir;
+
+    private final BoundedExecutor executor = new BoundedExecutor("image-upload", 1, 1, 10000);
+    private final FileServiceImpl service = new FileServiceImpl(1024, executor);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void storesTheImageWithTheExtensionOfItsContent() throws Exception {
+        byte[] bytes = image(PNG, 1000);
+
+        StoredImage stored = service.uploadImage(new MockMultipartFile("file", "room.jpg", "image/jpeg", bytes), dir.toString());
+
+        assertTrue(stored.path().endsWith(".png"));
+        assertArrayEquals(bytes, Files.readAllBytes(Path.of(stored.path())));
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes)), stored.hash());
+        assertEquals(1, files());
+    }
+
+    @Test
+    void rejectsFilesThatAreNotImagesOrTooLarge() throws IOException {
+        MockMultipartFile text = new MockMultipartFile("file", "room.png", "image/png", "no soy una imagen".getBytes());
+        IllegalArgumentException format = assertThrows(IllegalArgumentException.class, () -> service.uploadImage(text, dir.toString()));
+        assertEquals("error.imagen.formato", format.getMessage());
+
+        //el tamano indicado es pequeno pero el contenido no
+        MockMultipartFile large = new MockMultipartFile("file", "room.png", "image/png", new byte[0]) {
+            @Override
+            public long getSize() {
+                return 10;
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return false;
+            }
+
+            @Override
+            public InputStream getInputStream() {
+                return new ByteArrayInputStream(image(PNG, 5000));
+            }
+        };
+        IllegalArgumentException size = assertThrows(IllegalArgumentException.class, () -> service.uploadImage(large, dir.toString()));
+        assertEquals("error.imagen.tamano", size.getMessage());
+        assertEquals(0, files());
+    }
+
+    @Test
+    void rejectsUploadsWhenTheQueueIsFull() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MockMultipartFile slow = new MockMultipartFile("file", "room.png", "image/png", image(PNG, 100)) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getInputStream();
+            }
+        };
+        MockMultipartFile image = new MockMultipartFile("file", "room.png", "image/png", image(PNG, 100));
+        ExecutorService requests = Executors.newFixedThreadPool(2);
+        Future<StoredImage> first = requests.submit(() -> service.uploadImage(slow, dir.toString()));
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        //el unico hilo esta ocupado y esta subida ocupa el unico hueco de la cola
+        Future<StoredImage> second = requests.submit(() -> service.uploadImage(image, dir.toString()));
+        while (queued() == 0) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(TooManyRequestsException.class, () -> service.uploadImage(image, dir.toString()));
+        release.countDown();
+        assertNotNull(first.get(10, TimeUnit.SECONDS));
+        assertNotNull(second.get(10, TimeUnit.SECONDS));
+        requests.shutdown();
+    }
+
+    private int queued() {
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) ReflectionTestUtils.getField(executor, "executor");
+        return pool.getQueue().size();
+    }
+
+    private long files() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    private static byte[] image(byte[] magic, int size) {
+        byte[] bytes = Arrays.copyOf(magic, size);
+        Arrays.fill(bytes, magic.length, size, (byte) 7);
+        return bytes;
+    }
+}
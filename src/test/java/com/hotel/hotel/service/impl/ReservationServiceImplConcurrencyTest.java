@@ -0,0 +1,311 @@
+package com.hotel.hotel.service.impl;
+
+import com.hotel.hotel.components.AvailabilityIndex;
+import com.hotel.hotel.components.DTOConverter;
+import com.hotel.hotel.components.DailyStatsRollup;
+import com.hotel.hotel.components.HotelMetrics;
+import com.hotel.hotel.components.JsonStreamWriter;
+import com.hotel.hotel.components.MessageComponent;
+import com.hotel.hotel.components.OccupancyCalendar;
+import com.hotel.hotel.components.Pagination;
+import com.hotel.hotel.components.PasswordHasher;
+import com.hotel.hotel.components.ReservationAnalytics;
+import com.hotel.hotel.components.ReservationChangeLog;
+import com.hotel.hotel.components.RoomLocks;
+import com.hotel.hotel.components.RoomRatings;
+import com.hotel.hotel.components.TokenVersions;
+import com.hotel.hotel.dto.BatchReservationDTO;
+import com.hotel.hotel.dto.InsertReservationDTO;
+import com.hotel.hotel.dto.RoomDTO;
+import com.hotel.hotel.entity.Reservation;
+import com.hotel.hotel.entity.Room;
+import com.hotel.hotel.entity.User;
+import com.hotel.hotel.exception.RoomNotAvailableException;
+import com.hotel.hotel.other.Status;
+import com.hotel.hotel.repository.ReservationRepository;
+import com.hotel.hotel.repository.UserRepository;
+import com.hotel.hotel.service.ReservationService;
+import com.hotel.hotel.service.RoomService;
+import com.hotel.hotel.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReservationServiceImplConcurrencyTest {
+    private static final int ROOMS = 8;
+    private static final int THREADS = 32;
+    private static final int BOOKINGS = 5000;
+
+    private final Queue<Reservation> saved = new ConcurrentLinkedQueue<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    /**
+     * Estado guardado de la reserva 1 que leen las confirmaciones y cancelaciones
+     */
+    private final AtomicReference<Status> status = new AtomicReference<>(Status.PENDIENTE);
+    private final DailyStatsRollup dailyStats = mock(DailyStatsRollup.class);
+    private final User user = new User();
+    private ReservationServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        AtomicLong ids = new AtomicLong();
+        ReservationRepository repository = mock(ReservationRepository.class);
+        when(repository.findStaysByRoomIdAndStatusNot(anyLong(), any())).thenReturn(List.of());
+        when(repository.save(any(Reservation.class))).thenAnswer(invocation -> {
+            Reservation reservation = invocation.getArgument(0);
+            reservation.setId(ids.incrementAndGet());
+            saved.add(reservation);
+            return reservation;
+        });
+        doAnswer(invocation -> {
+            List<Reservation> reservations = invocation.getArgument(0);
+            reservations.forEach(reservation -> reservation.setId(ids.incrementAndGet()));
+            saved.addAll(reservations);
+            return null;
+        }).when(repository).insertAll(anyList());
+
+        user.setId(1L);
+        user.setName("fernando");
+        when(repository.findById(1L)).thenAnswer(invocation -> Optional.of(stored(user)));
+        when(repository.findByUserIdAndStatusNot(eq(1L), eq(Status.CANCELADA))).thenAnswer(invocation ->
+                saved.stream().filter(reservation -> reservation.getStatus() != Status.CANCELADA).toList());
+        when(repository.updateStatus(eq(1L), any(), any())).thenAnswer(invocation ->
+                status.compareAndSet(invocation.getArgument(1), invocation.getArgument(2)) ? 1 : 0);
+        UserService userService = mock(UserService.class);
+        when(userService.findById(anyLong())).thenReturn(user);
+
+        RoomService roomService = mock(RoomService.class);
+        when(roomService.findByIdAndConvert(anyLong())).thenAnswer(invocation -> {
+            RoomDTO room = new RoomDTO();
+            room.setId(invocation.getArgument(0));
+            room.setPrice(40L);
+            return room;
+        });
+
+        service = new ReservationServiceImpl(repository, userService, roomService, new DTOConverter(new ModelMapper()),
+                mock(MessageComponent.class), new AvailabilityIndex(repository), new RoomLocks(16),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new Pagination(50, 500),
+                mock(JsonStreamWriter.class), mock(OccupancyCalendar.class), new HotelMetrics(registry),
+                mock(ReservationAnalytics.class), dailyStats, mock(ReservationChangeLog.class));
+        ReflectionTestUtils.setField(service, "useIndex", true);
+        ReflectionTestUtils.setField(service, "maxBatchSize", 2000);
+    }
+
+    @Test
+    void concurrentReservationsNeverOverlap() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger conflicts = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < BOOKINGS; i++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                LocalDate entry = today.plusDays(1 + random.nextInt(120));
+                InsertReservationDTO dto = new InsertReservationDTO();
+                dto.setRoomId((long) random.nextInt(ROOMS));
+                dto.setEntryDate(toDate(entry));
+                dto.setExitDate(toDate(entry.plusDays(1 + random.nextInt(5))));
+                start.await();
+                try {
+                    service.reserve(dto, 1L);
+                } catch (RoomNotAvailableException ex) {
+                    conflicts.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertEquals(BOOKINGS, saved.size() + conflicts.get());
+        assertEquals(conflicts.get(), registry.counter("hotel.reservations.conflicts").count());
+        assertNoOverlaps();
+    }
+
+    @Test
+    void concurrentBatchesAndReservationsNeverOverlap() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger conflicts = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < BOOKINGS / 10; i++) {
+            boolean batch = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                List<InsertReservationDTO> dtos = new ArrayList<>();
+                for (int j = 0; j < (batch ? 20 : 1); j++) {
+                    dtos.add(randomReservation());
+                }
+                start.await();
+                if (batch) {
+                    service.reserveAll(dtos, 1L).stream().filter(result -> !result.isCreated()).forEach(result -> conflicts.incrementAndGet());
+                } else {
+                    try {
+                        service.reserve(dtos.get(0), 1L);
+                    } catch (RoomNotAvailableException ex) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertEquals(BOOKINGS / 20 * 21, saved.size() + conflicts.get());
+        assertNoOverlaps();
+    }
+
+    @Test
+    void batchReportsEachReservation() {
+        LocalDate today = LocalDate.now();
+        List<InsertReservationDTO> dtos = List.of(
+                reservation(1L, today.plusDays(10), today.plusDays(12)),
+                //se solapa con la anterior del mismo lote
+                reservation(1L, today.plusDays(12), today.plusDays(14)),
+                reservation(2L, today.plusDays(10), today.plusDays(12)),
+                reservation(1L, today.plusDays(14), today.plusDays(13)),
+                reservation(1L, today.plusDays(13), today.plusDays(15)));
+
+        List<BatchReservationDTO> results = service.reserveAll(dtos, 1L);
+
+        assertEquals(List.of(true, false, true, false, true), results.stream().map(BatchReservationDTO::isCreated).toList());
+        assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(BatchReservationDTO::getIndex).toList());
+        assertEquals(3, saved.size());
+        assertTrue(saved.stream().allMatch(reservation -> reservation.getId() != null));
+        assertFalse(service.isAvailable(2L, toDate(today.plusDays(11)), toDate(today.plusDays(11))));
+    }
+
+    @Test
+    void concurrentStatusChangesAreAppliedOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger cancelled = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            boolean confirm = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    if (confirm) {
+                        service.confirm(1L, 1L);
+                    } else {
+                        service.cancel(1L, 1L);
+                        cancelled.incrementAndGet();
+                    }
+                } catch (NoSuchElementException ex) {
+                    //otra peticion ya habia cambiado la reserva
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertEquals(1, cancelled.get());
+        assertEquals(Status.CANCELADA, status.get());
+        verify(dailyStats, times(1)).apply(any(), eq(Status.PENDIENTE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deletedUsersReleaseTheirRooms() {
+        LocalDate today = LocalDate.now();
+        service.reserve(reservation(3L, today.plusDays(10), today.plusDays(12)), 1L);
+        assertFalse(service.isAvailable(3L, toDate(today.plusDays(11)), toDate(today.plusDays(11))));
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        ObjectProvider<ReservationService> reservationService = mock(ObjectProvider.class);
+        when(reservationService.getObject()).thenReturn(service);
+        UserServiceImpl userService = new UserServiceImpl(userRepository, new DTOConverter(new ModelMapper()),
+                mock(MessageComponent.class), mock(TokenVersions.class), mock(PasswordHasher.class),
+                new Pagination(50, 500), mock(JsonStreamWriter.class), mock(RoomRatings.class),
+                new HotelMetrics(registry), reservationService);
+        userService.delete(1L);
+
+        assertTrue(service.isAvailable(3L, toDate(today.plusDays(11)), toDate(today.plusDays(11))));
+        assertEquals(Status.CANCELADA, saved.peek().getStatus());
+        verify(dailyStats).apply(saved.peek(), Status.PENDIENTE);
+        verify(userRepository).delete(user);
+    }
+
+    /**
+     * Este metodo permite leer la reserva 1 con el estado guardado en ese momento
+     */
+    private Reservation stored(User user) {
+        Room room = new Room();
+        room.setId(1L);
+        Reservation reservation = new Reservation();
+        reservation.setId(1L);
+        reservation.setUser(user);
+        reservation.setRoom(room);
+        reservation.setEntryDate(toDate(LocalDate.now().plusDays(1)));
+        reservation.setExitDate(toDate(LocalDate.now().plusDays(2)));
+        reservation.setStatus(status.get());
+        return reservation;
+    }
+
+    private void assertNoOverlaps() {
+        Map<Long, List<Reservation>> byRoom = saved.stream()
+                .collect(Collectors.groupingBy(reservation -> reservation.getRoom().getId()));
+        for (List<Reservation> reservations : byRoom.values()) {
+            reservations.sort(Comparator.comparing(Reservation::getEntryDate));
+            for (int i = 1; i < reservations.size(); i++) {
+                assertTrue(reservations.get(i - 1).getExitDate().before(reservations.get(i).getEntryDate()),
+                        "reservas solapadas en la habitacion " + reservations.get(i).getRoom().getId());
+            }
+        }
+    }
+
+    private static InsertReservationDTO randomReservation() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate entry = LocalDate.now().plusDays(1 + random.nextInt(120));
+        return reservation((long) random.nextInt(ROOMS), entry, entry.plusDays(1 + random.nextInt(5)));
+    }
+
+    private static InsertReservationDTO reservation(Long roomId, LocalDate entry, LocalDate exit) {
+        InsertReservationDTO dto = new InsertReservationDTO();
+        dto.setRoomId(roomId);
+        dto.setEntryDate(toDate(entry));
+        dto.setExitDate(toDate(exit));
+        return dto;
+    }
+
+    private static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}